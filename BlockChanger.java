@@ -1,22 +1,74 @@
 package me.blockchanger;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -27,9 +79,15 @@ import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitTask;
 
 /**
  * @version 1.8.2
@@ -56,10 +114,9 @@ import org.bukkit.scheduler.BukkitTask;
  */
 public class BlockChanger {
 
-	private static final Map<Material, Object> NMS_BLOCK_MATERIALS = new HashMap<>();
 	private static final Map<String, Object> NMS_BLOCK_NAMES = new HashMap<>();
-	private static final Map<World, Object> NMS_WORLDS = new HashMap<>();
-	private static final Map<String, Object> NMS_WORLD_NAMES = new HashMap<>();
+	private static final WorldRegistry NMS_WORLDS = new WorldRegistry();
+	private static final RegionTracker REGION_TRACKER = new RegionTracker();
 	private static final MethodHandle WORLD_GET_HANDLE;
 	/**
 	 * <p>
@@ -107,9 +164,25 @@ public class BlockChanger {
 	 * <i>{@literal<net.minecraft.world.level.block.Block>}.getBlockData()</i>
 	 */
 	private static final MethodHandle ITEM_TO_BLOCK_DATA;
+	/**
+	 * <p>
+	 * Adapted to <i>(Object, Object, Object, int)void</i> and invoked exactly
+	 */
 	private static final MethodHandle SET_TYPE_AND_DATA;
+	/**
+	 * <p>
+	 * Adapted to <i>(Object, int, int)Object</i> and invoked exactly
+	 */
 	private static final MethodHandle WORLD_GET_CHUNK;
+	/**
+	 * <p>
+	 * Adapted to <i>(Object)Object[]</i> and invoked exactly
+	 */
 	private static final MethodHandle CHUNK_GET_SECTIONS;
+	/**
+	 * <p>
+	 * Adapted to <i>(Object, int, int, int, Object)void</i> and invoked exactly
+	 */
 	private static final MethodHandle CHUNK_SECTION_SET_TYPE;
 	/**
 	 * <p>
@@ -150,24 +223,152 @@ public class BlockChanger {
 	private static final MethodHandle GET_SNAPSHOT_NBT;
 	private static final MethodHandle GET_SNAPSHOT;
 	private static final BlockUpdater BLOCK_UPDATER;
+	/**
+	 * Replaces fully covered sections in one go, null if the running version
+	 * isn't supported
+	 */
+	private static final SectionFiller SECTION_FILLER;
+	private static final PaletteRemapper PALETTE_REMAPPER;
+	/**
+	 * Builds the multi block change packets of {@link ClientSync#SECTION_PACKETS},
+	 * null if the running version isn't supported
+	 */
+	private static final SectionPacketFactory SECTION_PACKET_FACTORY;
+	/**
+	 * Builds the packets of chunks that are sent as a whole, null if the running
+	 * version isn't supported
+	 */
+	private static final ChunkPacketFactory CHUNK_PACKET_FACTORY;
+	/**
+	 * <i>(Object nmsWorld, int chunkX, int chunkZ)Object</i>, the players
+	 * tracking a chunk as a list or, up to 1.17, a stream of EntityPlayer. 1.14+
+	 * only, null otherwise
+	 */
+	private static final MethodHandle CHUNK_TRACKING_PLAYERS;
+	/**
+	 * <p>
+	 * Adapted to <i>(Object)Object</i> and invoked exactly, 1.14+
+	 * </p>
+	 * Behavior -> <i>{@literal<WorldServer>}.getLightEngine()</i>
+	 */
+	private static final MethodHandle WORLD_LIGHT_ENGINE;
+	/**
+	 * <p>
+	 * Adapted to <i>(Object, Object)void</i> and invoked exactly, 1.14+
+	 * </p>
+	 * Behavior -> <i>{@literal<LightEngine>}.checkBlock({@literal<BlockPosition>})</i>
+	 */
+	private static final MethodHandle LIGHT_CHECK_BLOCK;
+	/**
+	 * <p>
+	 * Adapted to <i>(Object, int, int)CompletableFuture</i> and invoked exactly,
+	 * null if the light engine doesn't have it
+	 * </p>
+	 * Behavior -> <i>{@literal<LightEngineThreaded>}.waitForPendingTasks(x, z)</i>
+	 */
+	private static final MethodHandle LIGHT_WAIT_FOR_TASKS;
+	/**
+	 * <p>
+	 * Adapted to <i>(Object)void</i> and invoked exactly, up to 1.13
+	 * </p>
+	 * Behavior -> <i>{@literal<Chunk>}.initLighting()</i>
+	 */
+	private static final MethodHandle CHUNK_INIT_LIGHTING;
+	/**
+	 * <p>
+	 * Adapted to <i>(Object, Object)void</i> and invoked exactly, 1.8 - 1.13
+	 * </p>
+	 * Behavior -> <i>{@literal<World>}.c(EnumSkyBlock.SKY, {@literal<BlockPosition>})</i>
+	 */
+	private static final MethodHandle WORLD_CHECK_SKY_LIGHT;
+	/**
+	 * <p>
+	 * Adapted to <i>(Object, Object)void</i> and invoked exactly, 1.8 - 1.13
+	 * </p>
+	 * Behavior -> <i>{@literal<World>}.c(EnumSkyBlock.BLOCK, {@literal<BlockPosition>})</i>
+	 */
+	private static final MethodHandle WORLD_CHECK_BLOCK_LIGHT;
+	/**
+	 * <p>
+	 * Adapted to <i>(Object)Object</i> and invoked exactly, 1.13+
+	 * </p>
+	 * Invoked parameters ->
+	 * <i>{@literal<CraftBlockData>}.getState()</i>
+	 */
+	private static final MethodHandle CRAFT_BLOCK_DATA_GET_STATE;
+	/**
+	 * <p>
+	 * Adapted to <i>(Object, int, int, int)Object</i> and invoked exactly, 1.8+
+	 * </p>
+	 * Invoked parameters ->
+	 * <i>{@literal<ChunkSection>}.getType({@literal<int>}, {@literal<int>},
+	 * {@literal<int>})</i>
+	 */
+	private static final MethodHandle CHUNK_SECTION_GET_TYPE;
 	private static final BlockPositionConstructor BLOCK_POSITION_CONSTRUCTOR;
 	private static final BlockDataRetriever BLOCK_DATA_GETTER;
+	private static final ItemBlockDataCache ITEM_BLOCK_DATA_CACHE;
 	private static final TileEntityManager TILE_ENTITY_MANAGER;
-	private static final String AVAILABLE_BLOCKS;
+	/**
+	 * Completes once {@link #loadBlocks()} built the material and block name
+	 * registries, which happens in parallel after this class is initialized
+	 */
+	private static final CompletableFuture<Void> BLOCKS_LOADED;
+	/**
+	 * Nanoseconds the static initializer took, without the block registries
+	 */
+	private static final long CORE_INIT_NANOS;
+	private static volatile long blocksInitNanos = -1;
+	private static volatile String availableBlocks;
 	private static final UncheckedSetters UNCHECKED_SETTERS;
 	private static final WorkloadRunnable WORKLOAD_RUNNABLE;
+	/**
+	 * <i>MinecraftServer.getServer().tickTimes</i>, nanoseconds of the last 100
+	 * ticks or null if it couldn't be found
+	 */
+	private static final long[] SERVER_TICK_TIMES;
 	private static final JavaPlugin PLUGIN;
 	private static final Object AIR_BLOCK_DATA;
+	/**
+	 * <p>
+	 * Adapted to <i>(Object)int</i> and invoked exactly
+	 * </p>
+	 * <p>
+	 * Invoked parameters ->
+	 * <i>Block.getCombinedId({@literal<net.minecraft.world.level.block.state.IBlockData>})</i>
+	 * </p>
+	 */
+	private static final MethodHandle GET_COMBINED_ID;
+	/**
+	 * <p>
+	 * Adapted to <i>(int)Object</i> and invoked exactly
+	 * </p>
+	 * <p>
+	 * Invoked parameters ->
+	 * <i>Block.getByCombinedId({@literal<int>})</i>
+	 * </p>
+	 */
+	private static final MethodHandle GET_BY_COMBINED_ID;
+	private static final BlockStateRegistry BLOCK_STATES;
+	private static final AccessorBackend ACCESSOR_BACKEND;
+	private static final AccessorFactory ACCESSOR_FACTORY;
+	// Per block calls, bound by the selected backend
+	private static final SectionSetter SECTION_SETTER;
+	private static final ChunkGetter CHUNK_GETTER;
+	private static final SectionsGetter SECTIONS_GETTER;
+	private static final WorldBlockSetter WORLD_BLOCK_SETTER;
+	private static final PositionSetter POSITION_SETTER;
 
 	static {
 
+		long initStartTime = System.nanoTime();
+
 		Class<?> worldServer = ReflectionUtils.getNMSClass("server.level", "WorldServer");
 		Class<?> world = ReflectionUtils.getNMSClass("world.level", "World");
 		Class<?> craftWorld = ReflectionUtils.getCraftClass("CraftWorld");
 		Class<?> craftBlock = ReflectionUtils.getCraftClass("block.CraftBlock");
 		Class<?> blockPosition = ReflectionUtils.supports(8) ? ReflectionUtils.getNMSClass("core", "BlockPosition")
 				: null;
-		Class<?> blocks = ReflectionUtils.getNMSClass("world.level.block", "Blocks");
 		Class<?> mutableBlockPosition = ReflectionUtils.supports(8)
 				? ReflectionUtils.getNMSClass("core", "BlockPosition$MutableBlockPosition") : null;
 		Class<?> blockData = ReflectionUtils.supports(8)
@@ -200,15 +401,32 @@ public class BlockChanger {
 		MethodHandles.Lookup lookup = MethodHandles.lookup();
 
 		Object airBlockData = null;
+		MethodHandle getCombinedId = null;
+		MethodHandle getByCombinedId = null;
 		try {
-			airBlockData = lookup
-					.findStatic(block, ReflectionUtils.supports(18) ? "a" : "getByCombinedId",
-							MethodType.methodType(blockData, int.class))
-					.invoke(0);
+			getByCombinedId = lookup.findStatic(block, ReflectionUtils.supports(18) ? "a" : "getByCombinedId",
+					MethodType.methodType(blockData, int.class));
+			airBlockData = getByCombinedId.invoke(0);
+			MethodType combinedIdType = MethodType.methodType(int.class, blockData);
+			try {
+				getCombinedId = lookup.findStatic(block, ReflectionUtils.supports(18) ? "i" : "getCombinedId",
+						combinedIdType);
+			} catch (NoSuchMethodException e) {
+				// The only static (IBlockData)int of Block
+				getCombinedId = lookup.unreflect(Arrays.stream(block.getMethods())
+						.filter(method -> Modifier.isStatic(method.getModifiers())
+								&& method.getReturnType() == int.class
+								&& Arrays.equals(method.getParameterTypes(), new Class<?>[] { blockData }))
+						.findFirst()
+						.orElseThrow(() -> new NoSuchMethodException("Block.getCombinedId(IBlockData)")));
+			}
 		} catch (Throwable e1) {
 			e1.printStackTrace();
 		}
 		AIR_BLOCK_DATA = airBlockData;
+		GET_COMBINED_ID = exact(getCombinedId, int.class, Object.class);
+		GET_BY_COMBINED_ID = exact(getByCombinedId, Object.class, int.class);
+		BLOCK_STATES = new BlockStateRegistry();
 
 		MethodHandle worldGetHandle = null;
 		MethodHandle blockPositionXYZ = null;
@@ -368,23 +586,33 @@ public class BlockChanger {
 		}
 
 		WORLD_GET_HANDLE = worldGetHandle;
-		WORLD_GET_CHUNK = worldGetChunk;
+		WORLD_GET_CHUNK = exact(worldGetChunk, Object.class, Object.class, int.class, int.class);
 		NMS_ITEM_STACK_COPY = nmsItemStackCopy;
 		NMS_BLOCK_FROM_ITEM = blockFromItem;
 		NMS_BLOCK_FROM_NAME = blockFromName;
 		NMS_BLOCK_NAME = blockName;
 		NMS_ITEM_STACK_TO_ITEM = nmsItemStackToItem;
 		ITEM_TO_BLOCK_DATA = itemToBlockData;
-		SET_TYPE_AND_DATA = setTypeAndData;
+		SET_TYPE_AND_DATA = exact(setTypeAndData, void.class, Object.class, Object.class, Object.class, int.class);
 		CHUNK_SET_TYPE = chunkSetTypeM;
 		BLOCK_NOTIFY = blockNotify;
-		CHUNK_GET_SECTIONS = chunkGetSections;
-		CHUNK_SECTION_SET_TYPE = chunkSectionSetType;
+		CHUNK_GET_SECTIONS = exact(chunkGetSections, Object[].class, Object.class);
+		CHUNK_SECTION_SET_TYPE = exact(chunkSectionSetType, void.class, Object.class, int.class, int.class, int.class,
+				Object.class);
 		GET_LEVEL_HEIGHT_ACCESSOR = getLevelHeightAccessor;
 		GET_SECTION_INDEX = getSectionIndex;
 		SET_SECTION_ELEMENT = setSectionElement;
 		CHUNK_SECTION = chunkSectionConstructor;
 		BLOCK_POSITION_CONSTRUCTOR = blockPositionConstructor;
+		ACCESSOR_FACTORY = new AccessorFactory(lookup, chunkSectionSetType, worldGetChunk, chunkGetSections,
+				setTypeAndData, mutableBlockPositionSet);
+		ACCESSOR_BACKEND = AccessorBackend.fromProperty(System.getProperty("blockchanger.accessors"));
+		Accessors accessors = ACCESSOR_FACTORY.create(ACCESSOR_BACKEND);
+		SECTION_SETTER = accessors.sectionSetter;
+		CHUNK_GETTER = accessors.chunkGetter;
+		SECTIONS_GETTER = accessors.sectionsGetter;
+		WORLD_BLOCK_SETTER = accessors.worldBlockSetter;
+		POSITION_SETTER = accessors.positionSetter;
 		BLOCK_DATA_FROM_LEGACY_DATA = blockDataFromLegacyData;
 		CRAFT_BLOCK_GET_NMS_BLOCK = craftBlockGetNMSBlock;
 		NMS_BLOCK_GET_BLOCK_DATA = nmsBlockGetBlockData;
@@ -397,6 +625,7 @@ public class BlockChanger {
 
 		BLOCK_DATA_GETTER = ReflectionUtils.supports(13) ? new BlockDataGetter()
 				: ReflectionUtils.supports(8) ? new BlockDataGetterLegacy() : new BlockDataGetterAncient();
+		ITEM_BLOCK_DATA_CACHE = new ItemBlockDataCache();
 
 		BLOCK_UPDATER = ReflectionUtils.supports(18) ? new BlockUpdaterLatest(BLOCK_NOTIFY, CHUNK_SET_TYPE,
 				GET_SECTION_INDEX, GET_LEVEL_HEIGHT_ACCESSOR)
@@ -413,44 +642,113 @@ public class BlockChanger {
 		TILE_ENTITY_MANAGER = ReflectionUtils.supports(8) ? new TileEntityManagerSupported()
 				: new TileEntityManagerDummy();
 
-		Arrays.stream(Material.values()).filter(Material::isBlock).forEach(BlockChanger::addNMSBlockData);
-
-		NMS_BLOCK_MATERIALS.put(Material.AIR, AIR_BLOCK_DATA);
+		SECTION_FILLER = ReflectionUtils.supports(18) ? createLatestSectionFiller(lookup, chunkSection, block)
+				: ReflectionUtils.supports(8) ? createLegacySectionFiller(lookup, chunkSection) : null;
+		PALETTE_REMAPPER = ReflectionUtils.supports(18) ? createPaletteRemapper(lookup, chunkSection) : null;
 
-		AVAILABLE_BLOCKS = String.join(", ",
-				NMS_BLOCK_MATERIALS.keySet()
-						.stream()
-						.map(Material::name)
-						.map(String::toLowerCase)
-						.collect(Collectors.toList()));
-
-		Arrays.stream(blocks.getDeclaredFields()).filter(field -> field.getType() == block).map(field -> {
+		SECTION_PACKET_FACTORY = ReflectionUtils.supports(16) && ReflectionUtils.supportsPatch(2)
+				|| ReflectionUtils.supports(17) ? createLatestSectionPacketFactory(lookup, chunkSection)
+				: ReflectionUtils.supports(8) ? createLegacySectionPacketFactory(lookup, chunk) : null;
+		CHUNK_PACKET_FACTORY = ReflectionUtils.supports(8) ? createChunkPacketFactory(lookup, worldServer, chunk)
+				: null;
+		CHUNK_TRACKING_PLAYERS = ReflectionUtils.supports(14) ? findChunkTrackingPlayers(lookup, worldServer) : null;
+
+		MethodHandle worldLightEngine = null;
+		MethodHandle lightCheckBlock = null;
+		MethodHandle lightWaitForTasks = null;
+		MethodHandle chunkInitLighting = null;
+		MethodHandle worldCheckSkyLight = null;
+		MethodHandle worldCheckBlockLight = null;
+		try {
+			if (ReflectionUtils.supports(14)) {
+				Class<?> lightEngine = ReflectionUtils.getNMSClass("world.level.lighting", "LightEngine");
+				Class<?> lightEngineThreaded = ReflectionUtils.getNMSClass("server.level", "LightEngineThreaded");
+				worldLightEngine = lookup.unreflect(findMethod(worldServer.getMethods(),
+						method -> method.getParameterCount() == 0
+								&& lightEngine.isAssignableFrom(method.getReturnType()),
+						"WorldServer.getLightEngine()"));
+				lightCheckBlock = lookup.unreflect(findMethod(lightEngine.getDeclaredMethods(),
+						method -> method.getReturnType() == void.class
+								&& Arrays.equals(method.getParameterTypes(), new Class<?>[] { blockPosition }),
+						"LightEngine.checkBlock(BlockPosition)"));
+				try {
+					lightWaitForTasks = lookup.unreflect(findMethod(lightEngineThreaded.getMethods(),
+							method -> method.getReturnType() == CompletableFuture.class && Arrays
+									.equals(method.getParameterTypes(), new Class<?>[] { int.class, int.class }),
+							"LightEngineThreaded.waitForPendingTasks(int, int)"));
+				} catch (NoSuchMethodException e) {
+					// Relighting completes a tick later instead
+				}
+			} else {
+				chunkInitLighting = lookup.findVirtual(chunk, "initLighting", MethodType.methodType(void.class));
+				if (ReflectionUtils.supports(8)) {
+					Class<?> enumSkyBlock = ReflectionUtils.getNMSClass("world.level", "EnumSkyBlock");
+					MethodHandle worldCheckLight = lookup.unreflect(findMethod(world.getMethods(),
+							method -> method.getReturnType() == boolean.class && Arrays.equals(
+									method.getParameterTypes(), new Class<?>[] { enumSkyBlock, blockPosition }),
+							"World.c(EnumSkyBlock, BlockPosition)"));
+					worldCheckSkyLight = MethodHandles.insertArguments(worldCheckLight, 1,
+							enumSkyBlock.getField("SKY").get(null));
+					worldCheckBlockLight = MethodHandles.insertArguments(worldCheckLight, 1,
+							enumSkyBlock.getField("BLOCK").get(null));
+				}
+			}
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		WORLD_LIGHT_ENGINE = exact(worldLightEngine, Object.class, Object.class);
+		LIGHT_CHECK_BLOCK = exact(lightCheckBlock, void.class, Object.class, Object.class);
+		LIGHT_WAIT_FOR_TASKS = exact(lightWaitForTasks, CompletableFuture.class, Object.class, int.class, int.class);
+		CHUNK_INIT_LIGHTING = exact(chunkInitLighting, void.class, Object.class);
+		WORLD_CHECK_SKY_LIGHT = exact(worldCheckSkyLight, void.class, Object.class, Object.class);
+		WORLD_CHECK_BLOCK_LIGHT = exact(worldCheckBlockLight, void.class, Object.class, Object.class);
+
+		MethodHandle craftBlockDataGetState = null;
+		if (ReflectionUtils.supports(13)) {
 			try {
-				return field.get(block);
-			} catch (IllegalArgumentException | IllegalAccessException e) {
+				craftBlockDataGetState = lookup.findVirtual(ReflectionUtils.getCraftClass("block.data.CraftBlockData"),
+						"getState", MethodType.methodType(blockData));
+			} catch (Throwable e) {
 				e.printStackTrace();
 			}
-			return null;
-		}).forEach(nmsBlock -> {
+		}
+		CRAFT_BLOCK_DATA_GET_STATE = exact(craftBlockDataGetState, Object.class, Object.class);
+
+		MethodHandle chunkSectionGetType = null;
+		if (blockData != null) {
 			try {
-				String name = (String) NMS_BLOCK_NAME.invoke(nmsBlock);
-				name = name.substring(name.lastIndexOf(".") + 1, name.length()).toUpperCase();
-				NMS_BLOCK_NAMES.put(name, nmsBlock);
+				// Named a(int, int, int) since 1.18, the only one returning IBlockData
+				chunkSectionGetType = lookup.unreflect(findMethod(chunkSection.getMethods(),
+						method -> method.getReturnType() == blockData && Arrays.equals(method.getParameterTypes(),
+								new Class<?>[] { int.class, int.class, int.class }),
+						"ChunkSection.getType(int, int, int)"));
 			} catch (Throwable e) {
 				e.printStackTrace();
 			}
-		});
+		}
+		CHUNK_SECTION_GET_TYPE = exact(chunkSectionGetType, Object.class, Object.class, int.class, int.class,
+				int.class);
+
+		// Its workers wait for this initializer to finish, so it must never be joined here
+		BLOCKS_LOADED = CompletableFuture.runAsync(BlockChanger::loadBlocks);
 
-		Bukkit.getWorlds().forEach(BlockChanger::addNMSWorld);
+		Bukkit.getWorlds().forEach(NMS_WORLDS::add);
 
 		UNCHECKED_SETTERS = new UncheckedSetters();
 
+		SERVER_TICK_TIMES = findServerTickTimes();
+
 		WORKLOAD_RUNNABLE = new WorkloadRunnable();
 
 		PLUGIN = JavaPlugin.getProvidingPlugin(BlockChanger.class);
 
+		Bukkit.getPluginManager().registerEvents(NMS_WORLDS, PLUGIN);
+		Bukkit.getPluginManager().registerEvents(REGION_TRACKER, PLUGIN);
+
 		Bukkit.getScheduler().runTaskTimer(PLUGIN, WORKLOAD_RUNNABLE, 1, 1);
 
+		CORE_INIT_NANOS = System.nanoTime() - initStartTime;
+
 	}
 
 	/**
@@ -467,200 +765,787 @@ public class BlockChanger {
 	 */
 	public static void test() {}
 
-	private static void addNMSBlockData(Material material) {
-		ItemStack itemStack = new ItemStack(material);
-		Object nmsData = getNMSBlockData(itemStack);
-		if (nmsData != null) NMS_BLOCK_MATERIALS.put(material, nmsData);
-	}
-
-	private static void addNMSWorld(World world) {
-		if (world == null) return;
-		Object nmsWorld = getNMSWorld(world);
-		if (nmsWorld != null) {
-			NMS_WORLDS.put(world, nmsWorld);
-			NMS_WORLD_NAMES.put(world.getName(), nmsWorld);
-		}
-	}
-
 	/**
-	 * If a material fails to pass this method, then it cannot be placed using any
-	 * of the setBlock methods.
+	 * The block registries are built on other threads once the class is
+	 * initialized. Methods that need them wait for them on their own, this only
+	 * lets you know when waiting isn't needed anymore.
 	 * 
-	 * @param material to check
-	 * @return whether the given material can be placed or not
+	 * @return completes once the materials and block names are loaded
 	 */
-	public static boolean isPlaceable(Material material) {
-		try {
-			return NMS_BLOCK_MATERIALS.containsKey(material) || NMS_BLOCK_NAMES.containsKey(material.name())
-					|| BLOCK_DATA_GETTER.getNMSItem(new ItemStack(material)) != null;
-		} catch (Throwable e) {
-			e.printStackTrace();
-		}
-		return false;
+	public static CompletableFuture<Void> whenBlocksLoaded() {
+		return BLOCKS_LOADED.thenRun(() -> {});
 	}
 
 	/**
-	 * If an ItemStack fails to pass this method, then it cannot be placed using any
-	 * of this class methods.
 	 * 
-	 * @param itemStack to check
-	 * @return whether the given ItemStack can be placed or not
+	 * @return milliseconds the class took to initialize, without building the
+	 *         block registries
 	 */
-	public static boolean isPlaceable(ItemStack itemStack) {
-		Material mat = itemStack.getType();
-		try {
-			return NMS_BLOCK_MATERIALS.containsKey(mat) || NMS_BLOCK_NAMES.containsKey(mat.name())
-					|| BLOCK_DATA_GETTER.getNMSItem(itemStack) != null;
-		} catch (Throwable e) {
-			e.printStackTrace();
-		}
-		return false;
+	public static double getCoreInitMillis() {
+		return CORE_INIT_NANOS / 1E6;
 	}
 
-	public static boolean isValidNMSBlockName(String name) {
-		return NMS_BLOCK_NAMES.containsKey(name);
+	/**
+	 * 
+	 * @return milliseconds building the block registries took or -1 if they're
+	 *         still being built
+	 */
+	public static double getBlocksInitMillis() {
+		long nanos = blocksInitNanos;
+		return nanos < 0 ? -1 : nanos / 1E6;
 	}
 
-	public static boolean isValidNMSBlockName(ItemStack itemStack) {
-		return NMS_BLOCK_NAMES.containsKey(itemStack.getType().name());
+	/**
+	 * The backend is chosen once, when this class is initialized, from the
+	 * <i>blockchanger.accessors</i> system property: <i>lambda</i> selects
+	 * {@link AccessorBackend#LAMBDA_METAFACTORY}, anything else keeps
+	 * {@link AccessorBackend#METHOD_HANDLES}.
+	 * 
+	 * @return backend used for the calls made once per block
+	 */
+	public static AccessorBackend getAccessorBackend() {
+		return ACCESSOR_BACKEND;
 	}
 
 	/**
-	 * Changes block type using native NMS world block type and data setter
-	 * {@code nmsWorld.setTypeAndData(...)},
-	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
-	 * Block.setType(Material)} speed.
+	 * Compares the per block calls of every {@link AccessorBackend} by getting
+	 * the chunk at the given location and rewriting the block there with the
+	 * block that's already placed, so the world is left as it was.
+	 * <p>
+	 * Each backend runs five rounds of <i>iterations</i> calls, the first two
+	 * only warm up the JIT.
+	 * </p>
+	 * <p>
+	 * Added for debugging purposes.
+	 * </p>
 	 * 
-	 * @param world    world where the block is located
-	 * @param x        x location point
-	 * @param y        y location point
-	 * @param z        z location point
-	 * @param material block material to apply on the created block
-	 * @throws IllegalArgumentException if material is not perceived as a block
-	 *                                  material
+	 * @param location   block to rewrite
+	 * @param iterations calls per round, 1_000_000 gives stable numbers
+	 * @return nanoseconds per call of every backend
 	 */
-	public static void setBlock(World world, int x, int y, int z, Material material) {
-		setBlock(world, x, y, z, material, true);
+	public static String benchmarkAccessors(Location location, int iterations) {
+		Object nmsWorld = getWorld(location.getWorld());
+		Object blockData = getBlockData(location.getBlock());
+		int x = location.getBlockX();
+		int y = location.getBlockY();
+		int z = location.getBlockZ();
+		StringBuilder result = new StringBuilder();
+		for (AccessorBackend backend : AccessorBackend.values()) {
+			Accessors accessors = ACCESSOR_FACTORY.create(backend);
+			long chunkNanos = 0, sectionNanos = 0;
+			for (int round = 0; round < 5; round++) {
+				long start = System.nanoTime();
+				Object nmsChunk = null;
+				for (int i = 0; i < iterations; i++)
+					nmsChunk = accessors.chunkGetter.getChunkAt(nmsWorld, x >> 4, z >> 4);
+				long middle = System.nanoTime();
+				Object section = getSection(nmsChunk, accessors.sectionsGetter.getSections(nmsChunk), y);
+				for (int i = 0; i < iterations; i++)
+					accessors.sectionSetter.setType(section, x & 15, y & 15, z & 15, blockData);
+				long end = System.nanoTime();
+				if (round < 2) continue;
+				chunkNanos += middle - start;
+				sectionNanos += end - middle;
+			}
+			double calls = 3.0 * iterations;
+			result.append(backend)
+					.append(": getChunkAt ")
+					.append(String.format("%.2f", chunkNanos / calls))
+					.append(" ns, chunkSection.setType ")
+					.append(String.format("%.2f", sectionNanos / calls))
+					.append(" ns\n");
+		}
+		return result.toString();
 	}
 
 	/**
-	 * Changes block type using native NMS world block type and data setter
-	 * {@code nmsWorld.setTypeAndData(...)},
-	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
-	 * Block.setType(Material)} speed.
+	 * Compares how many workloads fit in a slice of the {@link WorkloadRunnable}
+	 * when the clock is read before every compute, as {@link WorkloadJob} used
+	 * to, and when it's only read between batches. Both loops run the same
+	 * workload, rewriting the block at the given location with the block that's
+	 * already placed, so the world is left as it was.
+	 * <p>
+	 * Each loop runs <i>slices</i> slices, the first fifth only warm up the JIT.
+	 * </p>
+	 * <p>
+	 * Added for debugging purposes.
+	 * </p>
 	 * 
-	 * @param world     world where the block is located
-	 * @param x         x location point
-	 * @param y         y location point
-	 * @param z         z location point
-	 * @param itemStack ItemStack to apply on the created block
-	 * @throws IllegalArgumentException if material is not perceived as a block
-	 *                                  material
+	 * @param location block to rewrite
+	 * @param slices   slices per loop, 1000 gives stable numbers
+	 * @return average computes per slice of both loops
+	 * @throws UnsupportedOperationException before 1.8
 	 */
-	public static void setBlock(World world, int x, int y, int z, ItemStack itemStack) {
-		setBlock(world, x, y, z, itemStack, true);
+	public static String benchmarkWorkloadBatching(Location location, int slices) {
+		if (CHUNK_SECTION_GET_TYPE == null)
+			throw new UnsupportedOperationException("Sections can only be benchmarked on 1.8+");
+		Object nmsWorld = getWorld(location.getWorld());
+		Object blockData = getBlockData(location.getBlock());
+		int x = location.getBlockX();
+		int y = location.getBlockY();
+		int z = location.getBlockZ();
+		Object nmsChunk = getChunkAt(nmsWorld, x, z);
+		Object section = getSection(nmsChunk, getSections(nmsChunk), y);
+		long[] computed = new long[1];
+		Workload workload = () -> {
+			setTypeChunkSection(section, x & 15, y & 15, z & 15, blockData);
+			computed[0]++;
+			return false;
+		};
+		int warmUp = slices / 5;
+		for (int slice = 0; slice < slices; slice++) {
+			if (slice == warmUp) computed[0] = 0;
+			long stopTime = System.nanoTime() + WorkloadRunnable.SLICE_NANOS;
+			while (System.nanoTime() <= stopTime) workload.compute();
+		}
+		long perCompute = computed[0];
+		WorkloadJob job = new WorkloadJob(Priority.NORMAL);
+		job.addWorkload(workload);
+		computed[0] = 0;
+		for (int slice = 0; slice < slices; slice++) {
+			if (slice == warmUp) computed[0] = 0;
+			job.run(System.nanoTime() + WorkloadRunnable.SLICE_NANOS);
+		}
+		long batched = computed[0];
+		double measured = Math.max(1, slices - warmUp);
+		return String.format("Clock read per compute: %.0f computes per slice%n", perCompute / measured)
+				+ String.format("Clock read per batch: %.0f computes per slice%n", batched / measured);
 	}
 
 	/**
-	 * Changes block type using native NMS world block type and data setter
-	 * {@code nmsWorld.setTypeAndData(...)},
-	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
-	 * Block.setType(Material)} speed.
+	 * Adapts a method handle to an erased type once, so hot paths can call it
+	 * with {@code invokeExact} instead of converting arguments on every call.
 	 * 
-	 * @param world    world where the block is located
-	 * @param x        x location point
-	 * @param y        y location point
-	 * @param z        z location point
-	 * @param material block material to apply on the created block
-	 * @param physics  whether physics such as gravity should be applied or not
-	 * @throws IllegalArgumentException if material is not perceived as a block
-	 *                                  material
+	 * @param handle         handle to adapt, may be null if it doesn't exist in
+	 *                       the running version
+	 * @param returnType     erased return type
+	 * @param parameterTypes erased parameter types
+	 * @return the adapted handle or null if <i>handle</i> is null
 	 */
-	public static void setBlock(World world, int x, int y, int z, Material material, boolean physics) {
-		if (!material.isBlock()) throw new IllegalArgumentException("The specified material is not a placeable block!");
-		Object nmsWorld = getWorld(world);
-		Object blockPosition = newBlockPosition(world, x, y, z);
-		Object blockData = getBlockData(material);
-		removeIfTileEntity(nmsWorld, blockPosition);
-		setTypeAndData(nmsWorld, blockPosition, blockData, physics ? 3 : 2);
+	private static @Nullable MethodHandle exact(@Nullable MethodHandle handle, Class<?> returnType,
+			Class<?>... parameterTypes) {
+		return handle == null ? null : handle.asType(MethodType.methodType(returnType, parameterTypes));
 	}
 
 	/**
-	 * Changes block type using native NMS world block type and data setter
-	 * {@code nmsWorld.setTypeAndData(...)},
-	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
-	 * Block.setType(Material)} speed.
-	 * 
-	 * @param world     world where the block is located
-	 * @param x         x location point
-	 * @param y         y location point
-	 * @param z         z location point
-	 * @param itemStack ItemStack to apply on the created block
-	 * @param physics   whether physics such as gravity should be applied or not
+	 * 1.18+ sections are rebuilt around a single value PalettedContainer
+	 * <i>new DataPaletteBlock(Block.BLOCK_STATE_REGISTRY, blockData,
+	 * Strategy.SECTION_STATES)</i>, their constructor recalculates the block
+	 * counts. The members are looked up by their types since their names change
+	 * with every release.
 	 */
-	public static void setBlock(World world, int x, int y, int z, ItemStack itemStack, boolean physics) {
-		Object nmsWorld = getWorld(world);
-		Object blockPosition = newBlockPosition(world, x, y, z);
-		Object blockData = getBlockData(itemStack);
-		removeIfTileEntity(nmsWorld, blockPosition);
-		setTypeAndData(nmsWorld, blockPosition, blockData, physics ? 3 : 2);
+	private static @Nullable SectionFiller createLatestSectionFiller(MethodHandles.Lookup lookup,
+			Class<?> chunkSection, Class<?> block) {
+		try {
+			Class<?> dataPaletteBlock = ReflectionUtils.getNMSClass("world.level.chunk", "DataPaletteBlock");
+			Class<?> strategy = Arrays.stream(dataPaletteBlock.getDeclaredClasses())
+					.filter(nested -> Arrays.stream(nested.getDeclaredFields())
+							.anyMatch(field -> isStatic(field) && field.getType() == nested))
+					.findFirst()
+					.orElseThrow(() -> new NoSuchFieldException("DataPaletteBlock strategy"));
+			// SECTION_STATES is declared before SECTION_BIOMES
+			Field sectionStates = Arrays.stream(strategy.getDeclaredFields())
+					.filter(field -> isStatic(field) && field.getType() == strategy)
+					.findFirst()
+					.orElseThrow(() -> new NoSuchFieldException("SECTION_STATES"));
+			Constructor<?> paletteConstructor = Arrays.stream(dataPaletteBlock.getDeclaredConstructors())
+					.filter(constructor -> constructor.getParameterCount() == 3
+							&& constructor.getParameterTypes()[1] == Object.class
+							&& constructor.getParameterTypes()[2] == strategy)
+					.findFirst()
+					.orElseThrow(() -> new NoSuchMethodException("DataPaletteBlock(Registry, Object, Strategy)"));
+			Class<?> registryType = paletteConstructor.getParameterTypes()[0];
+			Field blockStateRegistry = Arrays.stream(block.getDeclaredFields())
+					.filter(field -> isStatic(field) && registryType.isAssignableFrom(field.getType()))
+					.findFirst()
+					.orElseThrow(() -> new NoSuchFieldException("BLOCK_STATE_REGISTRY"));
+			blockStateRegistry.setAccessible(true);
+			sectionStates.setAccessible(true);
+			MethodHandle newStates = MethodHandles.insertArguments(lookup.unreflectConstructor(paletteConstructor), 0,
+					blockStateRegistry.get(null));
+			newStates = MethodHandles.insertArguments(newStates, 1, sectionStates.get(null));
+
+			Constructor<?> sectionConstructor = getLatestSectionConstructor(chunkSection, dataPaletteBlock);
+			MethodHandle newSection = lookup.unreflectConstructor(sectionConstructor);
+			// 1.20+ sections no longer know their y
+			if (sectionConstructor.getParameterTypes()[0] != int.class)
+				newSection = MethodHandles.dropArguments(newSection, 0, int.class);
+
+			return new SectionFillerLatest(newStates, newSection,
+					lookup.unreflectGetter(getSectionContainer(chunkSection, sectionConstructor, false)),
+					MethodHandles.arrayElementSetter(ReflectionUtils.toArrayClass(chunkSection)));
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	private static Constructor<?> getLatestSectionConstructor(Class<?> chunkSection, Class<?> dataPaletteBlock)
+			throws NoSuchMethodException {
+		return Arrays.stream(chunkSection.getConstructors())
+				.filter(constructor -> Arrays.stream(constructor.getParameterTypes())
+						.anyMatch(type -> type.isAssignableFrom(dataPaletteBlock)))
+				.findFirst()
+				.orElseThrow(() -> new NoSuchMethodException("ChunkSection(DataPaletteBlock, ...)"));
 	}
 
 	/**
-	 * Changes block type using native NMS world block type and data setter
-	 * {@code nmsWorld.setTypeAndData(...)},
-	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
-	 * Block.setType(Material)} speed.
+	 * The containers are told apart by what they hold, <i>DataPaletteBlock
+	 * {@literal<IBlockData>}</i> for the block states, since the order of the
+	 * declared fields isn't guaranteed.
 	 * 
-	 * @param world    world where the block is located
-	 * @param location location to put the block at
-	 * @param material block material to apply on the created block
-	 * @throws IllegalArgumentException if material is not perceived as a block
-	 *                                  material
-	 * @throws NullPointerException     if the specified material has no block data
-	 *                                  assigned to it
+	 * @param states true for the block states, false for the biomes
 	 */
-	public static void setBlock(World world, Location location, Material material) {
-		setBlock(world, location, material, true);
+	private static Field getSectionContainer(Class<?> chunkSection, Constructor<?> sectionConstructor, boolean states)
+			throws NoSuchFieldException {
+		Class<?>[] parameters = sectionConstructor.getParameterTypes();
+		Class<?> containerType = parameters[parameters.length - 1];
+		Class<?> blockData = ReflectionUtils.getNMSClass("world.level.block.state", "IBlockData");
+		Field container = Arrays.stream(chunkSection.getDeclaredFields())
+				.filter(field -> !isStatic(field) && containerType.isAssignableFrom(field.getType())
+						&& holdsType(field, blockData) == states)
+				.findFirst()
+				.orElseThrow(() -> new NoSuchFieldException(
+						states ? "ChunkSection block states" : "ChunkSection biomes"));
+		container.setAccessible(true);
+		return container;
 	}
 
 	/**
-	 * Changes block type using native NMS world block type and data setter
-	 * {@code nmsWorld.setTypeAndData(...)},
-	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
-	 * Block.setType(Material)} speed.
-	 * 
-	 * @param world     world where the block is located
-	 * @param location  location to put the block at
-	 * @param itemStack ItemStack to apply on the created block
+	 * @return whether the field is declared as a generic type of the given type
 	 */
-	public static void setBlock(World world, Location location, ItemStack itemStack) {
-		setBlock(world, location, itemStack, true);
+	private static boolean holdsType(Field field, Class<?> type) {
+		return field.getGenericType() instanceof ParameterizedType
+				&& ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0] == type;
 	}
 
 	/**
-	 * Changes block type using native NMS world block type and data setter
-	 * {@code nmsWorld.setTypeAndData(...)},
-	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
+	 * 1.18+ block states are kept in a <i>DataPaletteBlock</i>, which can tell if
+	 * a state may be in it from its palette alone. Linear palettes are rewritten
+	 * in place, the section is then created again around the same containers so
+	 * it counts its blocks again. Single value palettes are left alone, every copy
+	 * of their container shares the same palette.
+	 */
+	private static @Nullable PaletteRemapper createPaletteRemapper(MethodHandles.Lookup lookup,
+			Class<?> chunkSection) {
+		try {
+			Class<?> dataPaletteBlock = ReflectionUtils.getNMSClass("world.level.chunk", "DataPaletteBlock");
+			Class<?> dataPalette = ReflectionUtils.getNMSClass("world.level.chunk", "DataPalette");
+			Class<?> singleValuePalette = ReflectionUtils.getNMSClass("world.level.chunk", "SingleValuePalette");
+			Class<?> linearPalette = ReflectionUtils.getNMSClass("world.level.chunk", "DataPaletteLinear");
+			Method maybeHas = findMethod(dataPaletteBlock.getMethods(),
+					method -> method.getReturnType() == boolean.class
+							&& Arrays.equals(method.getParameterTypes(), new Class<?>[] { Predicate.class }),
+					"DataPaletteBlock.maybeHas(Predicate)");
+			// The palette and its storage are swapped together in a data record
+			Field data = Arrays.stream(dataPaletteBlock.getDeclaredFields())
+					.filter(field -> !isStatic(field) && Arrays.stream(field.getType().getDeclaredFields())
+							.anyMatch(dataField -> dataField.getType() == dataPalette))
+					.findFirst()
+					.orElseThrow(() -> new NoSuchFieldException("DataPaletteBlock data"));
+			Field palette = Arrays.stream(data.getType().getDeclaredFields())
+					.filter(field -> field.getType() == dataPalette)
+					.findFirst()
+					.orElseThrow(() -> new NoSuchFieldException("DataPaletteBlock.Data palette"));
+			// Next to the configuration record and the palette
+			Field storage = Arrays.stream(data.getType().getDeclaredFields())
+					.filter(field -> !isStatic(field) && field.getType().isInterface()
+							&& field.getType() != dataPalette)
+					.findFirst()
+					.orElseThrow(() -> new NoSuchFieldException("DataPaletteBlock.Data storage"));
+			Method getRaw = findMethod(storage.getType().getMethods(),
+					method -> method.getReturnType() == long[].class && method.getParameterCount() == 0,
+					"BitStorage.getRaw()");
+			Field singleValue = Arrays.stream(singleValuePalette.getDeclaredFields())
+					.filter(field -> !isStatic(field) && field.getType() == Object.class)
+					.findFirst()
+					.orElseThrow(() -> new NoSuchFieldException("SingleValuePalette value"));
+			Field linearValues = Arrays.stream(linearPalette.getDeclaredFields())
+					.filter(field -> !isStatic(field) && field.getType() == Object[].class)
+					.findFirst()
+					.orElseThrow(() -> new NoSuchFieldException("DataPaletteLinear values"));
+			// The bits are final, the size grows with the palette
+			Field linearSize = Arrays.stream(linearPalette.getDeclaredFields())
+					.filter(field -> !isStatic(field) && field.getType() == int.class
+							&& !Modifier.isFinal(field.getModifiers()))
+					.findFirst()
+					.orElseThrow(() -> new NoSuchFieldException("DataPaletteLinear size"));
+			data.setAccessible(true);
+			palette.setAccessible(true);
+			storage.setAccessible(true);
+			singleValue.setAccessible(true);
+			linearValues.setAccessible(true);
+			linearSize.setAccessible(true);
+
+			Constructor<?> sectionConstructor = getLatestSectionConstructor(chunkSection, dataPaletteBlock);
+			MethodHandle newSection = lookup.unreflectConstructor(sectionConstructor);
+			if (sectionConstructor.getParameterTypes()[0] != int.class)
+				newSection = MethodHandles.dropArguments(newSection, 0, int.class);
+
+			return new PaletteRemapperLatest(
+					exact(lookup.unreflect(maybeHas), boolean.class, Object.class, Predicate.class),
+					exact(lookup.unreflectGetter(getSectionContainer(chunkSection, sectionConstructor, true)),
+							Object.class, Object.class),
+					exact(lookup.unreflectGetter(getSectionContainer(chunkSection, sectionConstructor, false)),
+							Object.class, Object.class),
+					exact(lookup.unreflectGetter(data), Object.class, Object.class),
+					exact(lookup.unreflectGetter(palette), Object.class, Object.class),
+					exact(MethodHandles.filterReturnValue(lookup.unreflectGetter(storage), lookup.unreflect(getRaw)),
+							long[].class, Object.class),
+					singleValuePalette, exact(lookup.unreflectGetter(singleValue), Object.class, Object.class),
+					linearPalette,
+					exact(lookup.unreflectGetter(linearValues), Object[].class, Object.class),
+					exact(lookup.unreflectGetter(linearSize), int.class, Object.class),
+					exact(newSection, Object.class, int.class, Object.class, Object.class),
+					exact(MethodHandles.arrayElementSetter(ReflectionUtils.toArrayClass(chunkSection)), void.class,
+							Object[].class, int.class, Object.class));
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Up to 1.17 a new section is created with the CHUNK_SECTION constructor and
+	 * filled before it replaces the old one, so it never carries the old palette
+	 * entries. Sections hold their own light up to 1.13, which is copied over.
+	 */
+	private static @Nullable SectionFiller createLegacySectionFiller(MethodHandles.Lookup lookup,
+			Class<?> chunkSection) {
+		try {
+			MethodHandle getEmittedLight = null, getSkyLight = null, setEmittedLight = null, setSkyLight = null;
+			if (!ReflectionUtils.supports(14)) {
+				Class<?> nibbleArray = ReflectionUtils.getNMSClass("NibbleArray");
+				getEmittedLight = lookup.findVirtual(chunkSection, "getEmittedLightArray",
+						MethodType.methodType(nibbleArray));
+				getSkyLight = lookup.findVirtual(chunkSection, "getSkyLightArray", MethodType.methodType(nibbleArray));
+				setEmittedLight = lookup.findVirtual(chunkSection, "a",
+						MethodType.methodType(void.class, nibbleArray));
+				setSkyLight = lookup.findVirtual(chunkSection, "b", MethodType.methodType(void.class, nibbleArray));
+			}
+			return new SectionFillerLegacy(CHUNK_SECTION, SET_SECTION_ELEMENT, BlockChanger::setTypeChunkSection,
+					getEmittedLight, getSkyLight, setEmittedLight, setSkyLight);
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * 1.14+ <i>nmsWorld.getChunkProvider().playerChunkMap.getPlayers(new
+	 * ChunkCoordIntPair(x, z), false)</i>, found by their types since most of
+	 * them are obfuscated.
+	 */
+	private static @Nullable MethodHandle findChunkTrackingPlayers(MethodHandles.Lookup lookup,
+			Class<?> worldServer) {
+		try {
+			Class<?> chunkProvider = ReflectionUtils.getNMSClass("server.level", "ChunkProviderServer");
+			Class<?> playerChunkMap = ReflectionUtils.getNMSClass("server.level", "PlayerChunkMap");
+			Class<?> chunkCoordIntPair = ReflectionUtils.getNMSClass("world.level", "ChunkCoordIntPair");
+			Method getChunkProvider = findMethod(worldServer.getMethods(),
+					method -> method.getParameterCount() == 0 && method.getReturnType() == chunkProvider,
+					"WorldServer.getChunkProvider()");
+			Field playerChunkMapField = Arrays.stream(chunkProvider.getDeclaredFields())
+					.filter(field -> !isStatic(field) && field.getType() == playerChunkMap)
+					.findFirst()
+					.orElseThrow(() -> new NoSuchFieldException("ChunkProviderServer.playerChunkMap"));
+			playerChunkMapField.setAccessible(true);
+			Method getPlayers = findMethod(playerChunkMap.getMethods(),
+					method -> (method.getReturnType() == List.class || method.getReturnType() == Stream.class)
+							&& Arrays.equals(method.getParameterTypes(),
+									new Class<?>[] { chunkCoordIntPair, boolean.class }),
+					"PlayerChunkMap.getPlayers(ChunkCoordIntPair, boolean)");
+			MethodHandle players = MethodHandles.insertArguments(lookup.unreflect(getPlayers), 2, false);
+			// (PlayerChunkMap, int, int)
+			players = MethodHandles.filterArguments(players, 1,
+					lookup.findConstructor(chunkCoordIntPair, MethodType.methodType(void.class, int.class, int.class)));
+			// (WorldServer, int, int)
+			players = MethodHandles.filterArguments(players, 0, MethodHandles.filterReturnValue(
+					lookup.unreflect(getChunkProvider), lookup.unreflectGetter(playerChunkMapField)));
+			return exact(players, Object.class, Object.class, int.class, int.class);
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * 1.16.2+ packets hold the changes of one section
+	 * <i>new PacketPlayOutMultiBlockChange(SectionPosition.a(x, y, z), new
+	 * ShortArraySet(positions, count), chunkSection[, false])</i>, the light
+	 * flag was dropped in 1.20.
+	 */
+	private static @Nullable SectionPacketFactory createLatestSectionPacketFactory(MethodHandles.Lookup lookup,
+			Class<?> chunkSection) {
+		try {
+			Class<?> packet = ReflectionUtils.getNMSClass("network.protocol.game", "PacketPlayOutMultiBlockChange");
+			Class<?> sectionPosition = ReflectionUtils.getNMSClass("core", "SectionPosition");
+			Class<?> shortArraySet = Class.forName("it.unimi.dsi.fastutil.shorts.ShortArraySet");
+			Method sectionPositionOf = Arrays.stream(sectionPosition.getDeclaredMethods())
+					.filter(method -> Modifier.isStatic(method.getModifiers())
+							&& method.getReturnType() == sectionPosition && Arrays.equals(method.getParameterTypes(),
+									new Class<?>[] { int.class, int.class, int.class }))
+					.findFirst()
+					.orElseThrow(() -> new NoSuchMethodException("SectionPosition.a(int, int, int)"));
+			Constructor<?> packetConstructor = Arrays.stream(packet.getDeclaredConstructors())
+					.filter(constructor -> constructor.getParameterCount() >= 3
+							&& constructor.getParameterTypes()[0] == sectionPosition
+							&& constructor.getParameterTypes()[2] == chunkSection)
+					.findFirst()
+					.orElseThrow(() -> new NoSuchMethodException(
+							"PacketPlayOutMultiBlockChange(SectionPosition, ShortSet, ChunkSection)"));
+			packetConstructor.setAccessible(true);
+			MethodHandle newPacket = lookup.unreflectConstructor(packetConstructor);
+			if (packetConstructor.getParameterCount() == 4)
+				newPacket = MethodHandles.insertArguments(newPacket, 3, false);
+			MethodHandle newShortSet = lookup.findConstructor(shortArraySet,
+					MethodType.methodType(void.class, short[].class, int.class));
+
+			return new SectionPacketFactoryLatest(
+					exact(lookup.unreflect(sectionPositionOf), Object.class, int.class, int.class, int.class),
+					exact(newShortSet, Object.class, short[].class, int.class),
+					exact(newPacket, Object.class, Object.class, Object.class, Object.class));
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Up to 1.16.1 packets hold the changes of a whole chunk
+	 * <i>new PacketPlayOutMultiBlockChange(count, positions, chunk)</i>, they are
+	 * still sent once per section.
+	 */
+	private static @Nullable SectionPacketFactory createLegacySectionPacketFactory(MethodHandles.Lookup lookup,
+			Class<?> chunk) {
+		try {
+			Class<?> packet = ReflectionUtils.getNMSClass("network.protocol.game", "PacketPlayOutMultiBlockChange");
+			MethodHandle newPacket = lookup.findConstructor(packet,
+					MethodType.methodType(void.class, int.class, short[].class, chunk));
+			return new SectionPacketFactoryLegacy(
+					exact(newPacket, Object.class, int.class, short[].class, Object.class));
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * The chunk packet constructor is the one taking a chunk first, its other
+	 * parameters are filled by their types: the light engine of the world
+	 * (1.18+), all sections for masks (1.8 - 1.16), true for flags and null for
+	 * the light BitSets which means they are all sent.
+	 */
+	private static @Nullable ChunkPacketFactory createChunkPacketFactory(MethodHandles.Lookup lookup,
+			Class<?> worldServer, Class<?> chunk) {
+		try {
+			Class<?> packet = ReflectionUtils.supports(18)
+					? ReflectionUtils.getNMSClass("network.protocol.game", "ClientboundLevelChunkWithLightPacket")
+					: ReflectionUtils.getNMSClass("network.protocol.game", "PacketPlayOutMapChunk");
+			Constructor<?> packetConstructor = Arrays.stream(packet.getDeclaredConstructors())
+					.filter(constructor -> constructor.getParameterCount() > 0
+							&& constructor.getParameterTypes()[0].isAssignableFrom(chunk))
+					.findFirst()
+					.orElseThrow(() -> new NoSuchMethodException("Chunk packet constructor"));
+			packetConstructor.setAccessible(true);
+			MethodHandle newPacket = lookup.unreflectConstructor(packetConstructor);
+			Class<?>[] parameters = packetConstructor.getParameterTypes();
+			boolean takesWorld = false;
+			for (int i = parameters.length - 1; i > 0; i--) {
+				Class<?> type = parameters[i];
+				if (type == int.class) {
+					newPacket = MethodHandles.insertArguments(newPacket, i, 0xFFFF);
+				} else if (type == boolean.class) {
+					newPacket = MethodHandles.insertArguments(newPacket, i, true);
+				} else if (type == BitSet.class) {
+					newPacket = MethodHandles.insertArguments(newPacket, i, (Object) null);
+				} else {
+					Method lightEngine = Arrays.stream(worldServer.getMethods())
+							.filter(method -> method.getParameterCount() == 0
+									&& !Modifier.isStatic(method.getModifiers())
+									&& type.isAssignableFrom(method.getReturnType()))
+							.findFirst()
+							.orElseThrow(() -> new NoSuchMethodException("World light engine"));
+					newPacket = MethodHandles.filterArguments(newPacket, i, lookup.unreflect(lightEngine));
+					takesWorld = true;
+				}
+			}
+			if (!takesWorld) newPacket = MethodHandles.dropArguments(newPacket, 1, worldServer);
+			return new ChunkPacketFactory(exact(newPacket, Object.class, Object.class, Object.class));
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Sets how the time asynchronous changes get per tick adapts to the server,
+	 * it's halved whenever a tick takes longer than the target and grows by a
+	 * millisecond per tick while the changes need more.
+	 * <p>
+	 * Defaults to a target of 45 ms per tick, a floor of 1 ms and a ceiling of 40
+	 * ms.
+	 * </p>
+	 * 
+	 * @param targetMillis  milliseconds per tick the server should stay under
+	 * @param floorMillis   least time the changes get per tick
+	 * @param ceilingMillis most time the changes get per tick
+	 * @throws IllegalArgumentException if the floor isn't positive or is above the
+	 *                                  ceiling
+	 */
+	public static void setTickBudget(double targetMillis, double floorMillis, double ceilingMillis) {
+		WORKLOAD_RUNNABLE.getTickBudget().configure(targetMillis, floorMillis, ceilingMillis);
+	}
+
+	/**
+	 * @return milliseconds asynchronous changes got during the last tick they ran
+	 */
+	public static double getTickBudgetMillis() {
+		return WORKLOAD_RUNNABLE.getTickBudget().getBudgetMillis();
+	}
+
+	/**
+	 * Estimates how many blocks of a chunk have to change before sending the
+	 * chunk as a whole takes fewer bytes than sending the changed blocks.
+	 * <p>
+	 * A changed block costs about 4 bytes in a multi block change packet, while a
+	 * section of a chunk packet costs 4096 bytes of sky and block light plus its
+	 * blocks, 2 bytes per block up to 1.8 and usually 4 bits per block since 1.9.
+	 * </p>
+	 * 
+	 * @param world world to get the height of
+	 * @return changed blocks of a single chunk above which it's better to send the
+	 *         whole chunk
+	 */
+	public static int estimateFullChunkThreshold(World world) {
+		int sections = (world.getMaxHeight() - (ReflectionUtils.supports(17) ? world.getMinHeight() : 0)) >> 4;
+		int sectionBytes = (ReflectionUtils.supports(9) ? 4096 / 2 : 4096 * 2) + 4096;
+		return sections * sectionBytes / 4;
+	}
+
+	/**
+	 * The tick times are the only long[] of the server that holds 100 entries,
+	 * it's looked up by its type since its name changes with every release.
+	 */
+	private static @Nullable long[] findServerTickTimes() {
+		try {
+			Class<?> minecraftServer = ReflectionUtils.getNMSClass("server", "MinecraftServer");
+			Method getServer = Arrays.stream(minecraftServer.getDeclaredMethods())
+					.filter(method -> Modifier.isStatic(method.getModifiers()) && method.getParameterCount() == 0
+							&& method.getReturnType() == minecraftServer)
+					.findFirst()
+					.orElseThrow(() -> new NoSuchMethodException("MinecraftServer.getServer()"));
+			getServer.setAccessible(true);
+			Object server = getServer.invoke(null);
+			for (Field field : minecraftServer.getDeclaredFields()) {
+				if (isStatic(field) || field.getType() != long[].class) continue;
+				field.setAccessible(true);
+				long[] tickTimes = (long[]) field.get(server);
+				if (tickTimes != null && tickTimes.length == 100) return tickTimes;
+			}
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	private static Method findMethod(Method[] methods, Predicate<Method> filter, String description)
+			throws NoSuchMethodException {
+		return Arrays.stream(methods)
+				.filter(method -> !Modifier.isStatic(method.getModifiers()) && filter.test(method))
+				.findFirst()
+				.orElseThrow(() -> new NoSuchMethodException(description));
+	}
+
+	private static boolean isStatic(Field field) {
+		return Modifier.isStatic(field.getModifiers());
+	}
+
+	/**
+	 * Converts every block material to block data in parallel, since each one
+	 * takes a copy of an ItemStack, and collects the blocks declared by
+	 * <i>Blocks</i> by name. The state ids of the materials are saved in a
+	 * {@link MappingCache}, a later boot of the same version registers the
+	 * materials from it instead of converting them.
+	 */
+	private static void loadBlocks() {
+		long startTime = System.nanoTime();
+		try {
+			MappingCache mappingCache = GET_COMBINED_ID == null ? null : new MappingCache(PLUGIN.getDataFolder());
+			int[] cachedIds = mappingCache == null ? null : mappingCache.read();
+
+			if (cachedIds == null || !registerCachedMaterials(cachedIds)) {
+				Arrays.stream(Material.values())
+						.parallel()
+						.filter(Material::isBlock)
+						.forEach(BlockChanger::addNMSBlockData);
+
+				BLOCK_STATES.register(Material.AIR, AIR_BLOCK_DATA);
+
+				if (mappingCache != null) mappingCache.write(BLOCK_STATES.getMaterialIds());
+			}
+
+			Class<?> blocks = ReflectionUtils.getNMSClass("world.level.block", "Blocks");
+			Class<?> block = ReflectionUtils.getNMSClass("world.level.block", "Block");
+			Arrays.stream(blocks.getDeclaredFields()).filter(field -> field.getType() == block).map(field -> {
+				try {
+					return field.get(block);
+				} catch (IllegalArgumentException | IllegalAccessException e) {
+					e.printStackTrace();
+				}
+				return null;
+			}).forEach(nmsBlock -> {
+				try {
+					String name = (String) NMS_BLOCK_NAME.invoke(nmsBlock);
+					name = name.substring(name.lastIndexOf(".") + 1, name.length()).toUpperCase();
+					NMS_BLOCK_NAMES.put(name, nmsBlock);
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			});
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		blocksInitNanos = System.nanoTime() - startTime;
+	}
+
+	/**
+	 * Checks a sample of the cached ids against a conversion of their material,
+	 * like the full scan does, before registering any of them.
+	 * 
+	 * @param ids state id of every material by ordinal, -1 for none
+	 * @return false if the ids don't match this server
+	 */
+	private static boolean registerCachedMaterials(int[] ids) {
+		Material[] materials = Material.values();
+		Object[] states = new Object[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			if (ids[i] < 0) continue;
+			states[i] = BLOCK_STATES.get(ids[i]);
+			if (states[i] == null) return false;
+		}
+		int step = Math.max(1, ids.length / 16);
+		for (int i = 0; i < ids.length; i += step) {
+			if (ids[i] < 0 || materials[i] == Material.AIR) continue;
+			if (getNMSBlockData(new ItemStack(materials[i])) != states[i]) return false;
+		}
+		for (int i = 0; i < ids.length; i++) if (states[i] != null) BLOCK_STATES.register(materials[i], states[i]);
+		return true;
+	}
+
+	/**
+	 * @return block names, once {@link #loadBlocks()} is done
+	 */
+	private static Map<String, Object> getNMSBlockNames() {
+		BLOCKS_LOADED.join();
+		return NMS_BLOCK_NAMES;
+	}
+
+	private static void addNMSBlockData(Material material) {
+		ItemStack itemStack = new ItemStack(material);
+		Object nmsData = getNMSBlockData(itemStack);
+		if (nmsData != null) BLOCK_STATES.register(material, nmsData);
+	}
+
+	/**
+	 * If a material fails to pass this method, then it cannot be placed using any
+	 * of the setBlock methods.
+	 * 
+	 * @param material to check
+	 * @return whether the given material can be placed or not
+	 */
+	public static boolean isPlaceable(Material material) {
+		try {
+			return BLOCK_STATES.get(material) != null || getNMSBlockNames().containsKey(material.name())
+					|| BLOCK_DATA_GETTER.getNMSItem(new ItemStack(material)) != null;
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+	/**
+	 * If an ItemStack fails to pass this method, then it cannot be placed using any
+	 * of this class methods.
+	 * 
+	 * @param itemStack to check
+	 * @return whether the given ItemStack can be placed or not
+	 */
+	public static boolean isPlaceable(ItemStack itemStack) {
+		Material mat = itemStack.getType();
+		try {
+			return BLOCK_STATES.get(mat) != null || getNMSBlockNames().containsKey(mat.name())
+					|| BLOCK_DATA_GETTER.getNMSItem(itemStack) != null;
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+	public static boolean isValidNMSBlockName(String name) {
+		return getNMSBlockNames().containsKey(name);
+	}
+
+	public static boolean isValidNMSBlockName(ItemStack itemStack) {
+		return getNMSBlockNames().containsKey(itemStack.getType().name());
+	}
+
+	/**
+	 * Changes block type using native NMS world block type and data setter
+	 * {@code nmsWorld.setTypeAndData(...)},
+	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
 	 * Block.setType(Material)} speed.
 	 * 
 	 * @param world    world where the block is located
-	 * @param location location to put the block at
+	 * @param x        x location point
+	 * @param y        y location point
+	 * @param z        z location point
+	 * @param material block material to apply on the created block
+	 * @throws IllegalArgumentException if material is not perceived as a block
+	 *                                  material
+	 */
+	public static void setBlock(World world, int x, int y, int z, Material material) {
+		setBlock(world, x, y, z, material, true);
+	}
+
+	/**
+	 * Changes block type using native NMS world block type and data setter
+	 * {@code nmsWorld.setTypeAndData(...)},
+	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
+	 * Block.setType(Material)} speed.
+	 * 
+	 * @param world     world where the block is located
+	 * @param x         x location point
+	 * @param y         y location point
+	 * @param z         z location point
+	 * @param itemStack ItemStack to apply on the created block
+	 * @throws IllegalArgumentException if material is not perceived as a block
+	 *                                  material
+	 */
+	public static void setBlock(World world, int x, int y, int z, ItemStack itemStack) {
+		setBlock(world, x, y, z, itemStack, true);
+	}
+
+	/**
+	 * Changes block type using native NMS world block type and data setter
+	 * {@code nmsWorld.setTypeAndData(...)},
+	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
+	 * Block.setType(Material)} speed.
+	 * 
+	 * @param world    world where the block is located
+	 * @param x        x location point
+	 * @param y        y location point
+	 * @param z        z location point
 	 * @param material block material to apply on the created block
 	 * @param physics  whether physics such as gravity should be applied or not
 	 * @throws IllegalArgumentException if material is not perceived as a block
 	 *                                  material
-	 * @throws NullPointerException     if the specified material has no block data
-	 *                                  assigned to it
 	 */
-	public static void setBlock(World world, Location location, Material material, boolean physics) {
+	public static void setBlock(World world, int x, int y, int z, Material material, boolean physics) {
 		if (!material.isBlock()) throw new IllegalArgumentException("The specified material is not a placeable block!");
 		Object nmsWorld = getWorld(world);
-		Object blockPosition = newBlockPosition(world, location.getBlockX(), location.getBlockY(),
-				location.getBlockZ());
+		Object blockPosition = newBlockPosition(world, x, y, z);
 		Object blockData = getBlockData(material);
-		if (blockData == null)
-			throw new NullPointerException("Unable to retrieve block data for the corresponding material.");
 		removeIfTileEntity(nmsWorld, blockPosition);
 		setTypeAndData(nmsWorld, blockPosition, blockData, physics ? 3 : 2);
 	}
@@ -672,14 +1557,15 @@ public class BlockChanger {
 	 * Block.setType(Material)} speed.
 	 * 
 	 * @param world     world where the block is located
-	 * @param location  location to put the block at
+	 * @param x         x location point
+	 * @param y         y location point
+	 * @param z         z location point
 	 * @param itemStack ItemStack to apply on the created block
 	 * @param physics   whether physics such as gravity should be applied or not
 	 */
-	public static void setBlock(World world, Location location, ItemStack itemStack, boolean physics) {
+	public static void setBlock(World world, int x, int y, int z, ItemStack itemStack, boolean physics) {
 		Object nmsWorld = getWorld(world);
-		Object blockPosition = newBlockPosition(world, location.getBlockX(), location.getBlockY(),
-				location.getBlockZ());
+		Object blockPosition = newBlockPosition(world, x, y, z);
 		Object blockData = getBlockData(itemStack);
 		removeIfTileEntity(nmsWorld, blockPosition);
 		setTypeAndData(nmsWorld, blockPosition, blockData, physics ? 3 : 2);
@@ -691,6 +1577,7 @@ public class BlockChanger {
 	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
 	 * Block.setType(Material)} speed.
 	 * 
+	 * @param world    world where the block is located
 	 * @param location location to put the block at
 	 * @param material block material to apply on the created block
 	 * @throws IllegalArgumentException if material is not perceived as a block
@@ -698,8 +1585,8 @@ public class BlockChanger {
 	 * @throws NullPointerException     if the specified material has no block data
 	 *                                  assigned to it
 	 */
-	public static void setBlock(Location location, Material material) {
-		setBlock(location, material, true);
+	public static void setBlock(World world, Location location, Material material) {
+		setBlock(world, location, material, true);
 	}
 
 	/**
@@ -708,11 +1595,12 @@ public class BlockChanger {
 	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
 	 * Block.setType(Material)} speed.
 	 * 
+	 * @param world     world where the block is located
 	 * @param location  location to put the block at
 	 * @param itemStack ItemStack to apply on the created block
 	 */
-	public static void setBlock(Location location, ItemStack itemStack) {
-		setBlock(location, itemStack, true);
+	public static void setBlock(World world, Location location, ItemStack itemStack) {
+		setBlock(world, location, itemStack, true);
 	}
 
 	/**
@@ -721,6 +1609,7 @@ public class BlockChanger {
 	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
 	 * Block.setType(Material)} speed.
 	 * 
+	 * @param world    world where the block is located
 	 * @param location location to put the block at
 	 * @param material block material to apply on the created block
 	 * @param physics  whether physics such as gravity should be applied or not
@@ -729,10 +1618,10 @@ public class BlockChanger {
 	 * @throws NullPointerException     if the specified material has no block data
 	 *                                  assigned to it
 	 */
-	public static void setBlock(Location location, Material material, boolean physics) {
+	public static void setBlock(World world, Location location, Material material, boolean physics) {
 		if (!material.isBlock()) throw new IllegalArgumentException("The specified material is not a placeable block!");
-		Object nmsWorld = getWorld(location.getWorld());
-		Object blockPosition = newBlockPosition(location.getWorld(), location.getBlockX(), location.getBlockY(),
+		Object nmsWorld = getWorld(world);
+		Object blockPosition = newBlockPosition(world, location.getBlockX(), location.getBlockY(),
 				location.getBlockZ());
 		Object blockData = getBlockData(material);
 		if (blockData == null)
@@ -747,13 +1636,14 @@ public class BlockChanger {
 	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
 	 * Block.setType(Material)} speed.
 	 * 
+	 * @param world     world where the block is located
 	 * @param location  location to put the block at
 	 * @param itemStack ItemStack to apply on the created block
 	 * @param physics   whether physics such as gravity should be applied or not
 	 */
-	public static void setBlock(Location location, ItemStack itemStack, boolean physics) {
-		Object nmsWorld = getWorld(location.getWorld());
-		Object blockPosition = newBlockPosition(location.getWorld(), location.getBlockX(), location.getBlockY(),
+	public static void setBlock(World world, Location location, ItemStack itemStack, boolean physics) {
+		Object nmsWorld = getWorld(world);
+		Object blockPosition = newBlockPosition(world, location.getBlockX(), location.getBlockY(),
 				location.getBlockZ());
 		Object blockData = getBlockData(itemStack);
 		removeIfTileEntity(nmsWorld, blockPosition);
@@ -761,14 +1651,89 @@ public class BlockChanger {
 	}
 
 	/**
-	 * Asynchronously changes block type using native NMS world block type and data
-	 * setter {@code nmsWorld.setTypeAndData(...)},
+	 * Changes block type using native NMS world block type and data setter
+	 * {@code nmsWorld.setTypeAndData(...)},
 	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
 	 * Block.setType(Material)} speed.
-	 * <br>
-	 * <br>
-	 * Async within this context means:
-	 * <ul>
+	 * 
+	 * @param location location to put the block at
+	 * @param material block material to apply on the created block
+	 * @throws IllegalArgumentException if material is not perceived as a block
+	 *                                  material
+	 * @throws NullPointerException     if the specified material has no block data
+	 *                                  assigned to it
+	 */
+	public static void setBlock(Location location, Material material) {
+		setBlock(location, material, true);
+	}
+
+	/**
+	 * Changes block type using native NMS world block type and data setter
+	 * {@code nmsWorld.setTypeAndData(...)},
+	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
+	 * Block.setType(Material)} speed.
+	 * 
+	 * @param location  location to put the block at
+	 * @param itemStack ItemStack to apply on the created block
+	 */
+	public static void setBlock(Location location, ItemStack itemStack) {
+		setBlock(location, itemStack, true);
+	}
+
+	/**
+	 * Changes block type using native NMS world block type and data setter
+	 * {@code nmsWorld.setTypeAndData(...)},
+	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
+	 * Block.setType(Material)} speed.
+	 * 
+	 * @param location location to put the block at
+	 * @param material block material to apply on the created block
+	 * @param physics  whether physics such as gravity should be applied or not
+	 * @throws IllegalArgumentException if material is not perceived as a block
+	 *                                  material
+	 * @throws NullPointerException     if the specified material has no block data
+	 *                                  assigned to it
+	 */
+	public static void setBlock(Location location, Material material, boolean physics) {
+		if (!material.isBlock()) throw new IllegalArgumentException("The specified material is not a placeable block!");
+		Object nmsWorld = getWorld(location.getWorld());
+		Object blockPosition = newBlockPosition(location.getWorld(), location.getBlockX(), location.getBlockY(),
+				location.getBlockZ());
+		Object blockData = getBlockData(material);
+		if (blockData == null)
+			throw new NullPointerException("Unable to retrieve block data for the corresponding material.");
+		removeIfTileEntity(nmsWorld, blockPosition);
+		setTypeAndData(nmsWorld, blockPosition, blockData, physics ? 3 : 2);
+	}
+
+	/**
+	 * Changes block type using native NMS world block type and data setter
+	 * {@code nmsWorld.setTypeAndData(...)},
+	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
+	 * Block.setType(Material)} speed.
+	 * 
+	 * @param location  location to put the block at
+	 * @param itemStack ItemStack to apply on the created block
+	 * @param physics   whether physics such as gravity should be applied or not
+	 */
+	public static void setBlock(Location location, ItemStack itemStack, boolean physics) {
+		Object nmsWorld = getWorld(location.getWorld());
+		Object blockPosition = newBlockPosition(location.getWorld(), location.getBlockX(), location.getBlockY(),
+				location.getBlockZ());
+		Object blockData = getBlockData(itemStack);
+		removeIfTileEntity(nmsWorld, blockPosition);
+		setTypeAndData(nmsWorld, blockPosition, blockData, physics ? 3 : 2);
+	}
+
+	/**
+	 * Asynchronously changes block type using native NMS world block type and data
+	 * setter {@code nmsWorld.setTypeAndData(...)},
+	 * which surpasses bukkit's {@linkplain org.bukkit.block.Block#setType(Material)
+	 * Block.setType(Material)} speed.
+	 * <br>
+	 * <br>
+	 * Async within this context means:
+	 * <ul>
 	 * <li>There won't be any TPS loss no matter the amount of blocks being set</li>
 	 * <li>It can be safely executed inside an asynchronous task</li>
 	 * </ul>
@@ -784,8 +1749,10 @@ public class BlockChanger {
 				location.getBlockZ());
 		Object blockData = getBlockData(itemStack);
 		CompletableFuture<Void> workloadFinishFuture = new CompletableFuture<>();
-		WORKLOAD_RUNNABLE.addWorkload(new BlockSetWorkload(nmsWorld, blockPosition, blockData, location, physics));
-		WORKLOAD_RUNNABLE.whenComplete(() -> workloadFinishFuture.complete(null));
+		WorkloadJob workloadJob = new WorkloadJob(Priority.NORMAL);
+		workloadJob.addWorkload(new BlockSetWorkload(nmsWorld, blockPosition, blockData, location, physics));
+		workloadJob.whenComplete(() -> workloadFinishFuture.complete(null));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
 		return workloadFinishFuture;
 	}
 
@@ -866,7 +1833,8 @@ public class BlockChanger {
 	 * </ul>
 	 * 
 	 * @param world     world where the blocks are located at
-	 * @param locations locations to put the block at
+	 * @param locations locations to put the block at, read while the blocks are set so it must not
+	 *                  be modified until the returned future completes
 	 * @param itemStack ItemStack to apply on the created blocks
 	 * @param physics   whether physics such as gravity should be applied or not
 	 * @throws IllegalArgumentException if material is not perceived as a block
@@ -880,14 +1848,15 @@ public class BlockChanger {
 		Object blockData = getBlockData(itemStack);
 		Object blockPosition = newMutableBlockPosition(world, 0, 0, 0);
 		CompletableFuture<Void> workloadFinishFuture = new CompletableFuture<>();
-		WorkloadRunnable workloadRunnable = new WorkloadRunnable();
-		BukkitTask workloadTask = Bukkit.getScheduler().runTaskTimer(PLUGIN, workloadRunnable, 1, 1);
-		locations.forEach(location -> workloadRunnable
-				.addWorkload(new BlockSetWorkload(nmsWorld, blockPosition, blockData, location, physics)));
-		workloadRunnable.whenComplete(() -> {
-			workloadFinishFuture.complete(null);
-			workloadTask.cancel();
-		});
+		WorkloadJob workloadJob = new WorkloadJob(Priority.NORMAL);
+		int physicsFlag = physics ? 3 : 2;
+		workloadJob.addWorkload(new IteratorWorkload<>(locations.iterator(), location -> {
+			setBlockPosition(blockPosition, location.getBlockX(), location.getBlockY(), location.getBlockZ());
+			removeIfTileEntity(nmsWorld, blockPosition);
+			setTypeAndData(nmsWorld, blockPosition, blockData, physicsFlag);
+		}));
+		workloadJob.whenComplete(() -> workloadFinishFuture.complete(null));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
 		return workloadFinishFuture;
 	}
 
@@ -921,44 +1890,38 @@ public class BlockChanger {
 		World world = loc1.getWorld();
 		Object nmsWorld = getWorld(world);
 		Object blockData = getBlockData(itemStack);
-		int x1 = Math.min(loc1.getBlockX(), loc2.getBlockX());
-		int y1 = Math.min(loc1.getBlockY(), loc2.getBlockY());
-		int z1 = Math.min(loc1.getBlockZ(), loc2.getBlockZ());
-		int x2 = Math.max(loc1.getBlockX(), loc2.getBlockX());
-		int y2 = Math.max(loc1.getBlockY(), loc2.getBlockY());
-		int z2 = Math.max(loc1.getBlockZ(), loc2.getBlockZ());
-		int baseX = x1;
-		int baseY = y1;
-		int baseZ = z1;
-		int sizeX = Math.abs(x2 - x1) + 1;
-		int sizeY = Math.abs(y2 - y1) + 1;
-		int sizeZ = Math.abs(z2 - z1) + 1;
-		int x3 = 0, y3 = 0, z3 = 0;
-		Location location = new Location(world, baseX + x3, baseY + y3, baseZ + z3);
-		int cuboidSize = sizeX * sizeY * sizeZ;
-		Object blockPosition = newMutableBlockPosition(location);
+		Object blockPosition = newMutableBlockPosition(world, 0, 0, 0);
+		SectionCursor cursor = new SectionCursor(nmsWorld, loc1, loc2);
 		CompletableFuture<Void> workloadFinishFuture = new CompletableFuture<>();
-		WorkloadRunnable workloadRunnable = new WorkloadRunnable();
-		BukkitTask workloadTask = Bukkit.getScheduler().runTaskTimer(PLUGIN, workloadRunnable, 1, 1);
-		for (int i = 0; i < cuboidSize; i++) {
-			BlockSetWorkload workload = new BlockSetWorkload(nmsWorld, blockPosition, blockData, location.clone(),
-					physics);
-			if (++x3 >= sizeX) {
-				x3 = 0;
-				if (++y3 >= sizeY) {
-					y3 = 0;
-					++z3;
-				}
-			}
-			location.setX(baseX + x3);
-			location.setY(baseY + y3);
-			location.setZ(baseZ + z3);
-			workloadRunnable.addWorkload(workload);
-		}
-		workloadRunnable.whenComplete(() -> {
-			workloadFinishFuture.complete(null);
-			workloadTask.cancel();
-		});
+		WorkloadJob workloadJob = new WorkloadJob(Priority.NORMAL);
+		workloadJob.addWorkload(new CuboidSetWorkload(cursor, blockPosition, blockData, physics));
+		workloadJob.whenComplete(() -> workloadFinishFuture.complete(null));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
+		return workloadFinishFuture;
+	}
+
+	/**
+	 * Same as {@link #setCuboidAsynchronously(Location, Location, ItemStack, boolean)}
+	 * with every block drawn from a weighted pattern.
+	 * 
+	 * @param loc1    first corner
+	 * @param loc2    second corner
+	 * @param pattern blocks to draw from
+	 * @param physics whether physics such as gravity should be applied or not
+	 * @throws IllegalStateException if the pattern has no blocks
+	 */
+	public static CompletableFuture<Void> setCuboidAsynchronously(Location loc1, Location loc2, BlockPattern pattern,
+			boolean physics) {
+		World world = loc1.getWorld();
+		Object nmsWorld = getWorld(world);
+		PatternTable table = pattern.getTable();
+		Object blockPosition = newMutableBlockPosition(world, 0, 0, 0);
+		SectionCursor cursor = new SectionCursor(nmsWorld, loc1, loc2);
+		CompletableFuture<Void> workloadFinishFuture = new CompletableFuture<>();
+		WorkloadJob workloadJob = new WorkloadJob(Priority.NORMAL);
+		workloadJob.addWorkload(new CuboidSetWorkload(cursor, blockPosition, table, pattern.newRandom(), physics));
+		workloadJob.whenComplete(() -> workloadFinishFuture.complete(null));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
 		return workloadFinishFuture;
 	}
 
@@ -1065,13 +2028,13 @@ public class BlockChanger {
 	 */
 	public static CompletableFuture<Void> setChunkBlockAsynchronously(Location location, ItemStack itemStack,
 			boolean physics) {
-		Object nmsWorld = getWorld(location.getWorld());
-		Object blockPosition = newMutableBlockPosition(location.getWorld(), location.getBlockX(), location.getBlockY(),
-				location.getBlockZ());
+		Edit edit = new Edit(location.getWorld(), new EditOptions().physics(physics));
 		Object blockData = getBlockData(itemStack);
 		CompletableFuture<Void> workloadFinishFuture = new CompletableFuture<>();
-		WORKLOAD_RUNNABLE.addWorkload(new ChunkSetWorkload(nmsWorld, blockPosition, blockData, location, physics));
-		WORKLOAD_RUNNABLE.whenComplete(() -> workloadFinishFuture.complete(null));
+		WorkloadJob workloadJob = new WorkloadJob(Priority.NORMAL);
+		workloadJob.addWorkload(new ChunkSetWorkload(edit, blockData, location));
+		workloadJob.whenComplete(() -> workloadFinishFuture.complete(null));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
 		return workloadFinishFuture;
 	}
 
@@ -1091,18 +2054,26 @@ public class BlockChanger {
 	 */
 	public static void setChunkBlocks(World world, Collection<Location> locations, ItemStack itemStack,
 			boolean physics) {
-		Object nmsWorld = getWorld(world);
+		setChunkBlocks(world, locations, itemStack, new EditOptions().physics(physics).clientSync(ClientSync.NONE));
+	}
+
+	/**
+	 * Same as {@link #setChunkBlocks(World, Collection, ItemStack, boolean)} but
+	 * lets you choose how players are told about the changed blocks.
+	 * 
+	 * @param world     world where the blocks are located at
+	 * @param locations locations to put the block at
+	 * @param itemStack ItemStack to apply on the created blocks
+	 * @param options   physics, client sync and lighting of this change
+	 * @return completes once the changed blocks are relit, right away if they
+	 *         aren't
+	 */
+	public static CompletableFuture<Void> setChunkBlocks(World world, Collection<Location> locations,
+			ItemStack itemStack, EditOptions options) {
+		Edit edit = new Edit(world, options);
 		Object blockData = getBlockData(itemStack);
-		Object blockPosition = newMutableBlockPosition(world, 0, 0, 0);
-		locations.forEach(location -> {
-			int x = location.getBlockX();
-			int y = location.getBlockY();
-			int z = location.getBlockZ();
-			Object chunk = getChunkAt(nmsWorld, x, z);
-			setBlockPosition(blockPosition, x, y, z);
-			removeIfTileEntity(nmsWorld, blockPosition);
-			setType(chunk, blockPosition, blockData, physics);
-		});
+		locations.forEach(location -> placeChunkBlock(edit, location, blockData));
+		return edit.finish();
 	}
 
 	/**
@@ -1118,7 +2089,8 @@ public class BlockChanger {
 	 * amount of blocks being changed in contrast to the regular one.
 	 * 
 	 * @param world     world where the blocks are located at
-	 * @param locations locations to put the block at
+	 * @param locations locations to put the block at, read while the blocks are set so it must not
+	 *                  be modified until the returned future completes
 	 * @param itemStack ItemStack to apply on the created blocks
 	 * @param physics   whether physics such as gravity should be applied or not
 	 * @throws IllegalArgumentException if material is not perceived as a block
@@ -1128,18 +2100,32 @@ public class BlockChanger {
 	 */
 	public static CompletableFuture<Void> setChunkBlocksAsynchronously(World world, Collection<Location> locations,
 			ItemStack itemStack, boolean physics) {
-		Object nmsWorld = getWorld(world);
+		return setChunkBlocksAsynchronously(world, locations, itemStack, new EditOptions().physics(physics));
+	}
+
+	/**
+	 * Same as
+	 * {@link #setChunkBlocksAsynchronously(World, Collection, ItemStack, boolean)}
+	 * but lets you choose how players are told about the changed blocks.
+	 * 
+	 * @param world     world where the blocks are located at
+	 * @param locations locations to put the block at, read while the blocks are set so it must not
+	 *                  be modified until the returned future completes
+	 * @param itemStack ItemStack to apply on the created blocks
+	 * @param options   physics, client sync and lighting of this change
+	 * @return completes once every block is set and relit if needed
+	 */
+	public static CompletableFuture<Void> setChunkBlocksAsynchronously(World world, Collection<Location> locations,
+			ItemStack itemStack, EditOptions options) {
+		Edit edit = new Edit(world, options);
 		Object blockData = getBlockData(itemStack);
-		Object blockPosition = newMutableBlockPosition(world, 0, 0, 0);
 		CompletableFuture<Void> workloadFinishFuture = new CompletableFuture<>();
-		WorkloadRunnable workloadRunnable = new WorkloadRunnable();
-		BukkitTask workloadTask = Bukkit.getScheduler().runTaskTimer(PLUGIN, workloadRunnable, 1, 1);
-		locations.forEach(location -> workloadRunnable
-				.addWorkload(new ChunkSetWorkload(nmsWorld, blockPosition, blockData, location, physics)));
-		workloadRunnable.whenComplete(() -> {
-			workloadFinishFuture.complete(null);
-			workloadTask.cancel();
-		});
+		WorkloadJob workloadJob = new WorkloadJob(options.getPriority());
+		workloadJob.addWorkload(
+				new IteratorWorkload<>(locations.iterator(), location -> placeChunkBlock(edit, location, blockData)));
+		workloadJob.whenComplete(
+				() -> edit.finish().whenComplete((result, e) -> workloadFinishFuture.complete(null)));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
 		return workloadFinishFuture;
 	}
 
@@ -1239,15 +2225,15 @@ public class BlockChanger {
 	 */
 	public static CompletableFuture<Void> setSectionBlockAsynchronously(Location location, ItemStack itemStack,
 			boolean physics) {
-		World world = location.getWorld();
-		Object nmsWorld = getWorld(world);
+		Edit edit = new Edit(location.getWorld(), new EditOptions().physics(physics));
 		Object blockData = getBlockData(itemStack);
-		Object blockPosition = newMutableBlockPosition(world, 0, 0, 0);
 		if (blockData == null)
 			throw new NullPointerException("Unable to retrieve block data for the corresponding material.");
 		CompletableFuture<Void> workloadFinishFuture = new CompletableFuture<Void>();
-		WORKLOAD_RUNNABLE.addWorkload(new SectionSetWorkload(nmsWorld, blockPosition, blockData, location, physics));
-		WORKLOAD_RUNNABLE.whenComplete(() -> workloadFinishFuture.complete(null));
+		WorkloadJob workloadJob = new WorkloadJob(Priority.NORMAL);
+		workloadJob.addWorkload(new SectionSetWorkload(edit, blockData, location));
+		workloadJob.whenComplete(() -> workloadFinishFuture.complete(null));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
 		return workloadFinishFuture;
 	}
 
@@ -1294,24 +2280,26 @@ public class BlockChanger {
 	 * @param world     world where locations are taken from
 	 */
 	public static void setSectionBlocks(World world, Collection<Location> locations, ItemStack itemStack) {
-		Object nmsWorld = getWorld(world);
+		setSectionBlocks(world, locations, itemStack, new EditOptions());
+	}
+
+	/**
+	 * Same as {@link #setSectionBlocks(World, Collection, ItemStack)} but lets you
+	 * choose how players are told about the changed blocks.
+	 * 
+	 * @param locations locations to put the blocks at
+	 * @param itemStack ItemStack to apply on the blocks
+	 * @param world     world where locations are taken from
+	 * @param options   physics, client sync and lighting of this change
+	 * @return completes once the changed blocks are relit, right away if they
+	 *         aren't
+	 */
+	public static CompletableFuture<Void> setSectionBlocks(World world, Collection<Location> locations,
+			ItemStack itemStack, EditOptions options) {
+		Edit edit = new Edit(world, options);
 		Object blockData = getBlockData(itemStack);
-		Object blockPosition = newMutableBlockPosition(world, 0, 0, 0);
-		locations.forEach(location -> {
-			int x = location.getBlockX();
-			int y = location.getBlockY();
-			int z = location.getBlockZ();
-			Object nmsChunk = getChunkAt(nmsWorld, location);
-			int j = x & 15;
-			int k = y & 15;
-			int l = z & 15;
-			Object[] sections = getSections(nmsChunk);
-			Object section = getSection(nmsChunk, sections, y);
-			removeIfTileEntity(nmsWorld, blockPosition);
-			setTypeChunkSection(section, j, k, l, blockData);
-			setBlockPosition(blockPosition, x, y, z);
-			updateBlock(nmsWorld, blockPosition, blockData, false);
-		});
+		locations.forEach(location -> placeSectionBlock(edit, location, blockData));
+		return edit.finish();
 	}
 
 	/**
@@ -1319,24 +2307,39 @@ public class BlockChanger {
 	 * the need to restart the server
 	 * {@code chunkSection.setType(...)} asynchronously
 	 * 
-	 * @param locations locations to put the blocks at
+	 * @param locations locations to put the blocks at, read while the blocks are set so it must not
+	 *                  be modified until the returned future completes
 	 * @param itemStack ItemStack to apply on the blocks
 	 * @param world     world where locations are taken from
 	 */
 	public static CompletableFuture<Void> setSectionBlocksAsynchronously(World world, Collection<Location> locations,
 			ItemStack itemStack) {
-		Object nmsWorld = getWorld(world);
+		return setSectionBlocksAsynchronously(world, locations, itemStack, new EditOptions());
+	}
+
+	/**
+	 * Same as
+	 * {@link #setSectionBlocksAsynchronously(World, Collection, ItemStack)} but
+	 * lets you choose how players are told about the changed blocks.
+	 * 
+	 * @param locations locations to put the blocks at, read while the blocks are set so it must not
+	 *                  be modified until the returned future completes
+	 * @param itemStack ItemStack to apply on the blocks
+	 * @param world     world where locations are taken from
+	 * @param options   physics, client sync and lighting of this change
+	 * @return completes once every block is set and relit if needed
+	 */
+	public static CompletableFuture<Void> setSectionBlocksAsynchronously(World world, Collection<Location> locations,
+			ItemStack itemStack, EditOptions options) {
+		Edit edit = new Edit(world, options);
 		Object blockData = getBlockData(itemStack);
-		Object blockPosition = newMutableBlockPosition(world, 0, 0, 0);
 		CompletableFuture<Void> workloadFinishFuture = new CompletableFuture<>();
-		WorkloadRunnable workloadRunnable = new WorkloadRunnable();
-		BukkitTask workloadTask = Bukkit.getScheduler().runTaskTimer(PLUGIN, workloadRunnable, 1, 1);
-		locations.forEach(location -> workloadRunnable
-				.addWorkload(new SectionSetWorkload(nmsWorld, blockPosition, blockData, location, false)));
-		workloadRunnable.whenComplete(() -> {
-			workloadFinishFuture.complete(null);
-			workloadTask.cancel();
-		});
+		WorkloadJob workloadJob = new WorkloadJob(options.getPriority());
+		workloadJob.addWorkload(
+				new IteratorWorkload<>(locations.iterator(), location -> placeSectionBlock(edit, location, blockData)));
+		workloadJob.whenComplete(
+				() -> edit.finish().whenComplete((result, e) -> workloadFinishFuture.complete(null)));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
 		return workloadFinishFuture;
 	}
 
@@ -1365,52 +2368,10 @@ public class BlockChanger {
 	 */
 	public static void setSectionCuboid(Location loc1, Location loc2, Material material, boolean physics) {
 		if (!material.isBlock()) throw new IllegalArgumentException("The specified material is not a placeable block!");
-		World world = loc1.getWorld();
-		Object nmsWorld = getWorld(world);
 		Object blockData = getBlockData(material);
 		if (blockData == null)
 			throw new NullPointerException("Unable to retrieve block data for the corresponding material.");
-		int x1 = Math.min(loc1.getBlockX(), loc2.getBlockX());
-		int y1 = Math.min(loc1.getBlockY(), loc2.getBlockY());
-		int z1 = Math.min(loc1.getBlockZ(), loc2.getBlockZ());
-		int x2 = Math.max(loc1.getBlockX(), loc2.getBlockX());
-		int y2 = Math.max(loc1.getBlockY(), loc2.getBlockY());
-		int z2 = Math.max(loc1.getBlockZ(), loc2.getBlockZ());
-		int baseX = x1;
-		int baseY = y1;
-		int baseZ = z1;
-		int sizeX = Math.abs(x2 - x1) + 1;
-		int sizeY = Math.abs(y2 - y1) + 1;
-		int sizeZ = Math.abs(z2 - z1) + 1;
-		int x3 = 0, y3 = 0, z3 = 0;
-		Location location = new Location(loc1.getWorld(), baseX + x3, baseY + y3, baseZ + z3);
-		int cuboidSize = sizeX * sizeY * sizeZ;
-		Object blockPosition = newMutableBlockPosition(location);
-		for (int i = 0; i < cuboidSize; i++) {
-			int x = location.getBlockX();
-			int y = location.getBlockY();
-			int z = location.getBlockZ();
-			Object nmsChunk = getChunkAt(nmsWorld, location);
-			int j = x & 15;
-			int k = y & 15;
-			int l = z & 15;
-			Object[] sections = getSections(nmsChunk);
-			Object section = getSection(nmsChunk, sections, y);
-			removeIfTileEntity(nmsWorld, blockPosition);
-			setTypeChunkSection(section, j, k, l, blockData);
-			setBlockPosition(blockPosition, x, y, z);
-			updateBlock(nmsWorld, blockPosition, blockData, physics);
-			if (++x3 >= sizeX) {
-				x3 = 0;
-				if (++y3 >= sizeY) {
-					y3 = 0;
-					++z3;
-				}
-			}
-			location.setX(baseX + x3);
-			location.setY(baseY + y3);
-			location.setZ(baseZ + z3);
-		}
+		fillCuboid(loc1, loc2, blockData, new EditOptions().physics(physics));
 	}
 
 	/**
@@ -1436,403 +2397,1143 @@ public class BlockChanger {
 	 * @param itemStack ItemStack to apply on the blocks
 	 */
 	public static void setSectionCuboid(Location loc1, Location loc2, ItemStack itemStack, boolean physics) {
-		World world = loc1.getWorld();
-		Object nmsWorld = getWorld(world);
-		Object blockData = getBlockData(itemStack);
-		int x1 = Math.min(loc1.getBlockX(), loc2.getBlockX());
-		int y1 = Math.min(loc1.getBlockY(), loc2.getBlockY());
-		int z1 = Math.min(loc1.getBlockZ(), loc2.getBlockZ());
-		int x2 = Math.max(loc1.getBlockX(), loc2.getBlockX());
-		int y2 = Math.max(loc1.getBlockY(), loc2.getBlockY());
-		int z2 = Math.max(loc1.getBlockZ(), loc2.getBlockZ());
-		int baseX = x1;
-		int baseY = y1;
-		int baseZ = z1;
-		int sizeX = Math.abs(x2 - x1) + 1;
-		int sizeY = Math.abs(y2 - y1) + 1;
-		int sizeZ = Math.abs(z2 - z1) + 1;
-		int x3 = 0, y3 = 0, z3 = 0;
-		Location location = new Location(loc1.getWorld(), baseX + x3, baseY + y3, baseZ + z3);
-		int cuboidSize = sizeX * sizeY * sizeZ;
-		Object blockPosition = newMutableBlockPosition(location);
-		for (int i = 0; i < cuboidSize; i++) {
-			int x = location.getBlockX();
-			int y = location.getBlockY();
-			int z = location.getBlockZ();
-			Object nmsChunk = getChunkAt(nmsWorld, location);
-			int j = x & 15;
-			int k = y & 15;
-			int l = z & 15;
-			Object[] sections = getSections(nmsChunk);
-			Object section = getSection(nmsChunk, sections, y);
-			removeIfTileEntity(nmsWorld, blockPosition);
-			setTypeChunkSection(section, j, k, l, blockData);
-			setBlockPosition(blockPosition, x, y, z);
-			updateBlock(nmsWorld, blockPosition, blockData, physics);
-			if (++x3 >= sizeX) {
-				x3 = 0;
-				if (++y3 >= sizeY) {
-					y3 = 0;
-					++z3;
-				}
-			}
-			location.setX(baseX + x3);
-			location.setY(baseY + y3);
-			location.setZ(baseZ + z3);
-		}
+		setSectionCuboid(loc1, loc2, itemStack, new EditOptions().physics(physics));
 	}
 
 	/**
 	 * Has the same behavior as {@link #setSectionBlocks(World, Location, Material)}
 	 * but creates a cuboid from a location
-	 * to another as if using the vanilla command <b>/fill</b> asynchronously
+	 * to another as if using the vanilla command <b>/fill</b>
+	 * <p>
+	 * With {@link ClientSync#SECTION_PACKETS} every chunk is sent as soon as
+	 * it's filled, as one packet per section or as a whole.
+	 * </p>
 	 * 
 	 * @param loc1      point 1
 	 * @param loc2      point 2
 	 * @param itemStack ItemStack to apply on the blocks
+	 * @param options   physics, client sync and lighting of this change
+	 * @return completes once the cuboid is relit, right away if it isn't
 	 */
-	public static CompletableFuture<Void> setSectionCuboidAsynchronously(Location loc1, Location loc2,
-			ItemStack itemStack) {
-		return setSectionCuboidAsynchronously(loc1, loc2, itemStack, false);
+	public static CompletableFuture<Void> setSectionCuboid(Location loc1, Location loc2, ItemStack itemStack,
+			EditOptions options) {
+		return fillCuboid(loc1, loc2, getBlockData(itemStack), options);
 	}
 
 	/**
-	 * Has the same behavior as {@link #setSectionBlocks(World, Location, Material)}
-	 * but creates a cuboid from a location
-	 * to another as if using the vanilla command <b>/fill</b> asynchronously
+	 * Same as {@link #setSectionCuboid(Location, Location, ItemStack, EditOptions)}
+	 * with every block drawn from a weighted pattern.
 	 * 
-	 * @param loc1      point 1
-	 * @param loc2      point 2
-	 * @param itemStack ItemStack to apply on the blocks
+	 * @param loc1    point 1
+	 * @param loc2    point 2
+	 * @param pattern blocks to draw from
+	 * @param options physics, client sync and lighting of this change
+	 * @return completes once the cuboid is relit, right away if it isn't
+	 * @throws IllegalStateException if the pattern has no blocks
 	 */
-	public static CompletableFuture<Void> setSectionCuboidAsynchronously(Location loc1, Location loc2,
-			ItemStack itemStack, boolean physics) {
-		World world = loc1.getWorld();
-		Object nmsWorld = getWorld(world);
-		Object blockData = getBlockData(itemStack);
-		int x1 = Math.min(loc1.getBlockX(), loc2.getBlockX());
-		int y1 = Math.min(loc1.getBlockY(), loc2.getBlockY());
-		int z1 = Math.min(loc1.getBlockZ(), loc2.getBlockZ());
-		int x2 = Math.max(loc1.getBlockX(), loc2.getBlockX());
-		int y2 = Math.max(loc1.getBlockY(), loc2.getBlockY());
-		int z2 = Math.max(loc1.getBlockZ(), loc2.getBlockZ());
-		int baseX = x1;
-		int baseY = y1;
-		int baseZ = z1;
-		int sizeX = Math.abs(x2 - x1) + 1;
-		int sizeY = Math.abs(y2 - y1) + 1;
-		int sizeZ = Math.abs(z2 - z1) + 1;
-		int x3 = 0, y3 = 0, z3 = 0;
-		Location location = new Location(loc1.getWorld(), baseX + x3, baseY + y3, baseZ + z3);
-		int cuboidSize = sizeX * sizeY * sizeZ;
-		Object blockPosition = newMutableBlockPosition(location);
-		CompletableFuture<Void> workloadFinishFuture = new CompletableFuture<>();
-		WorkloadRunnable workloadRunnable = new WorkloadRunnable();
-		BukkitTask workloadTask = Bukkit.getScheduler().runTaskTimer(PLUGIN, workloadRunnable, 1, 1);
-		for (int i = 0; i < cuboidSize; i++) {
-			SectionSetWorkload workload = new SectionSetWorkload(nmsWorld, blockPosition, blockData, location.clone(),
-					physics);
-			if (++x3 >= sizeX) {
-				x3 = 0;
-				if (++y3 >= sizeY) {
-					y3 = 0;
-					++z3;
-				}
-			}
-			location.setX(baseX + x3);
-			location.setY(baseY + y3);
-			location.setZ(baseZ + z3);
-			workloadRunnable.addWorkload(workload);
-		}
-		workloadRunnable.whenComplete(() -> {
-			workloadFinishFuture.complete(null);
-			workloadTask.cancel();
-		});
-		return workloadFinishFuture;
+	public static CompletableFuture<Void> setSectionCuboid(Location loc1, Location loc2, BlockPattern pattern,
+			EditOptions options) {
+		PatternTable table = pattern.getTable();
+		SplittableRandom random = pattern.newRandom();
+		Edit edit = new Edit(loc1.getWorld(), options);
+		SectionCursor cursor = new SectionCursor(edit.getWorld(), loc1, loc2);
+		while (cursor.next()) fillSection(cursor, table, random, edit);
+		return edit.finish();
 	}
 
-	private static Object getSection(Object nmsChunk, Object[] sections, int y) {
-		return BLOCK_UPDATER.getSection(nmsChunk, sections, y);
+	private static CompletableFuture<Void> fillCuboid(Location loc1, Location loc2, Object blockData,
+			EditOptions options) {
+		Edit edit = new Edit(loc1.getWorld(), options);
+		SectionCursor cursor = new SectionCursor(edit.getWorld(), loc1, loc2);
+		while (cursor.next()) fillSection(cursor, blockData, edit);
+		return edit.finish();
 	}
 
-	private static Object[] getSections(Object nmsChunk) {
-		try {
-			return (Object[]) CHUNK_GET_SECTIONS.invoke(nmsChunk);
-		} catch (Throwable e) {
-			e.printStackTrace();
-		}
-		return null;
+	/**
+	 * Same as {@link #replace(Location, Location, ItemStack, ItemStack, EditOptions)}
+	 * with the default options.
+	 * 
+	 * @param loc1 point 1
+	 * @param loc2 point 2
+	 * @param from material to replace
+	 * @param to   material to replace it with
+	 * @return completes once the cuboid is relit, right away if it isn't
+	 * @throws IllegalArgumentException if a material is not perceived as a block
+	 *                                  material
+	 */
+	public static CompletableFuture<Void> replace(Location loc1, Location loc2, Material from, Material to) {
+		if (!from.isBlock() || !to.isBlock())
+			throw new IllegalArgumentException("The specified material is not a placeable block!");
+		Object fromBlockData = getBlockData(from);
+		Object toBlockData = getBlockData(to);
+		if (fromBlockData == null || toBlockData == null)
+			throw new NullPointerException("Unable to retrieve block data for the corresponding material.");
+		return replaceCuboid(loc1, loc2, fromBlockData, toBlockData, new EditOptions());
 	}
 
-	private static void setTypeChunkSection(Object chunkSection, int x, int y, int z, Object blockData) {
-		try {
-			CHUNK_SECTION_SET_TYPE.invoke(chunkSection, x, y, z, blockData);
-		} catch (Throwable e) {
-			e.printStackTrace();
-		}
+	/**
+	 * Replaces every block of a state with another within a cuboid, as if using
+	 * the vanilla command <b>/fill ... replace</b>, with the section setter.
+	 * <p>
+	 * On 1.18+ sections whose palette doesn't hold the state are skipped
+	 * without reading their blocks. Sections covered as a whole are filled anew
+	 * when they only hold the state, or remapped by rewriting their palette
+	 * entry when it's a short list,
+	 * unless the blocks are notified one by one with {@link ClientSync#NOTIFY}
+	 * or diffed with {@link EditOptions#diff(boolean)}. Otherwise every block of
+	 * the section is compared and only the matching ones are set.
+	 * </p>
+	 * 
+	 * @param loc1    point 1
+	 * @param loc2    point 2
+	 * @param from    block to replace
+	 * @param to      block to replace it with
+	 * @param options physics, client sync and lighting of this change
+	 * @return completes once the cuboid is relit, right away if it isn't
+	 * @throws UnsupportedOperationException before 1.8
+	 */
+	public static CompletableFuture<Void> replace(Location loc1, Location loc2, ItemStack from, ItemStack to,
+			EditOptions options) {
+		return replaceCuboid(loc1, loc2, getBlockData(from), getBlockData(to), options);
 	}
 
-	private static void setTypeAndData(Object nmsWorld, Object blockPosition, Object blockData, int physics) {
-		try {
-			SET_TYPE_AND_DATA.invoke(nmsWorld, blockPosition, blockData, physics);
-		} catch (Throwable e) {
-			e.printStackTrace();
-		}
-	}
-
-	private static void setType(Object chunk, Object blockPosition, Object blockData, boolean physics) {
-		BLOCK_UPDATER.setType(chunk, blockPosition, blockData, physics);
+	/**
+	 * Same as {@link #replace(Location, Location, ItemStack, ItemStack, EditOptions)}
+	 * spread over ticks.
+	 * 
+	 * @param loc1    point 1
+	 * @param loc2    point 2
+	 * @param from    block to replace
+	 * @param to      block to replace it with
+	 * @param options physics, client sync and lighting of this change
+	 * @return completes once every block is replaced and relit if needed
+	 * @throws UnsupportedOperationException before 1.8
+	 */
+	public static CompletableFuture<Void> replaceAsynchronously(Location loc1, Location loc2, ItemStack from,
+			ItemStack to, EditOptions options) {
+		if (CHUNK_SECTION_GET_TYPE == null)
+			throw new UnsupportedOperationException("Blocks can only be replaced on 1.8+");
+		Object fromBlockData = getBlockData(from);
+		Object toBlockData = getBlockData(to);
+		Edit edit = new Edit(loc1.getWorld(), options);
+		SectionCursor cursor = new SectionCursor(edit.getWorld(), loc1, loc2);
+		CompletableFuture<Void> workloadFinishFuture = new CompletableFuture<>();
+		WorkloadJob workloadJob = new WorkloadJob(options.getPriority());
+		if (fromBlockData != toBlockData)
+			workloadJob.addWorkload(new SectionReplaceWorkload(cursor, fromBlockData, toBlockData, edit));
+		workloadJob.whenComplete(
+				() -> edit.finish().whenComplete((result, e) -> workloadFinishFuture.complete(null)));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
+		return workloadFinishFuture;
 	}
 
-	private static Object getChunkAt(Object world, Location loc) {
-		try {
-			return WORLD_GET_CHUNK.invoke(world, loc.getBlockX() >> 4, loc.getBlockZ() >> 4);
-		} catch (Throwable e) {
-			e.printStackTrace();
+	private static CompletableFuture<Void> replaceCuboid(Location loc1, Location loc2, Object from, Object to,
+			EditOptions options) {
+		if (CHUNK_SECTION_GET_TYPE == null)
+			throw new UnsupportedOperationException("Blocks can only be replaced on 1.8+");
+		Edit edit = new Edit(loc1.getWorld(), options);
+		if (from != to) {
+			SectionCursor cursor = new SectionCursor(edit.getWorld(), loc1, loc2);
+			while (cursor.next()) replaceSection(cursor, from, to, edit);
 		}
-		return null;
+		return edit.finish();
 	}
 
-	private static Object getChunkAt(Object world, int x, int z) {
-		try {
-			return WORLD_GET_CHUNK.invoke(world, x >> 4, z >> 4);
-		} catch (Throwable e) {
-			e.printStackTrace();
-		}
-		return null;
+	/**
+	 * Starts remembering the blocks players break and place within a cuboid, so it
+	 * can be reset by setting only those blocks again.
+	 * 
+	 * @param loc1 point 1
+	 * @param loc2 point 2
+	 * @return the tracked region, tracked until {@link TrackedRegion#untrack()}
+	 * @throws UnsupportedOperationException before 1.8
+	 */
+	public static TrackedRegion trackRegion(Location loc1, Location loc2) {
+		if (CHUNK_SECTION_GET_TYPE == null)
+			throw new UnsupportedOperationException("Regions can only be tracked on 1.8+");
+		TrackedRegion region = new TrackedRegion(loc1, loc2);
+		REGION_TRACKER.add(region);
+		return region;
 	}
 
-	private static Object getNMSWorld(@Nonnull World world) {
-		try {
-			return WORLD_GET_HANDLE.invoke(world);
-		} catch (Throwable e) {
-			e.printStackTrace();
-		}
-		return null;
+	/**
+	 * Copies every block of a cuboid so it can be queried from any thread with the
+	 * methods of {@link RegionSnapshot}, or split by section over a fork join pool
+	 * with {@link RegionSnapshot#scan(ForkJoinPool, Object, Function, BinaryOperator)}.
+	 * <p>
+	 * On 1.18+ sections of a single block and missing sections are copied
+	 * without reading their blocks, and sections whose palette is a short list
+	 * are copied by cloning the palette and its packed indices. Other sections
+	 * are read block by block.
+	 * </p>
+	 * 
+	 * @param loc1 point 1
+	 * @param loc2 point 2
+	 * @return the copied blocks
+	 * @throws UnsupportedOperationException before 1.8
+	 */
+	public static RegionSnapshot takeSnapshot(Location loc1, Location loc2) {
+		World world = loc1.getWorld();
+		SectionCursor cursor = newQueryCursor(loc1, loc2);
+		List<SectionSnapshot> sections = new ArrayList<>();
+		while (cursor.next()) sections.add(snapshotSection(world, cursor, null));
+		return new RegionSnapshot(sections);
 	}
 
-	private static @Nullable Object getNMSBlockData(@Nullable ItemStack itemStack) {
-		try {
-			if (itemStack == null) return null;
-			Object nmsItemStack = NMS_ITEM_STACK_COPY.invoke(itemStack);
-			if (nmsItemStack == null) return null;
-			Object nmsItem = NMS_ITEM_STACK_TO_ITEM.invoke(nmsItemStack);
-			Object block = NMS_BLOCK_FROM_ITEM.invoke(nmsItem);
-			if (ReflectionUtils.MINOR_NUMBER < 8) return block;
-			return ITEM_TO_BLOCK_DATA.invoke(block);
-		} catch (Throwable e) {
-			e.printStackTrace();
-		}
-		return null;
+	/**
+	 * Same as {@link #takeSnapshot(Location, Location)} a section per call spread
+	 * over ticks, for cuboids too big to be copied within one tick.
+	 * 
+	 * @param loc1     point 1
+	 * @param loc2     point 2
+	 * @param priority share of each tick the copy gets
+	 * @return completes with the copied blocks on the main thread
+	 * @throws UnsupportedOperationException before 1.8
+	 */
+	public static CompletableFuture<RegionSnapshot> takeSnapshotAsynchronously(Location loc1, Location loc2,
+			Priority priority) {
+		World world = loc1.getWorld();
+		SectionCursor cursor = newQueryCursor(loc1, loc2);
+		List<SectionSnapshot> sections = new ArrayList<>();
+		CompletableFuture<RegionSnapshot> snapshotFuture = new CompletableFuture<>();
+		WorkloadJob workloadJob = new WorkloadJob(priority);
+		workloadJob.addWorkload(() -> {
+			if (!cursor.next()) return true;
+			cursor.forgetChunk();
+			sections.add(snapshotSection(world, cursor, null));
+			return false;
+		});
+		workloadJob.whenComplete(() -> snapshotFuture.complete(new RegionSnapshot(sections)));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
+		return snapshotFuture;
 	}
 
-	private static boolean isTileEntity(Object nmsWorld, Object blockPosition) {
-		return TILE_ENTITY_MANAGER.isTileEntity(nmsWorld, blockPosition);
+	/**
+	 * Counts the blocks of a cuboid that are the block of the given ItemStack by
+	 * reading the sections. On 1.18+ sections whose palette can't hold the block
+	 * are skipped and sections of a single block aren't read.
+	 * 
+	 * @param loc1      point 1
+	 * @param loc2      point 2
+	 * @param itemStack block to count
+	 * @return how many blocks of the cuboid are that block
+	 * @throws UnsupportedOperationException before 1.8
+	 */
+	public static long countBlocks(Location loc1, Location loc2, ItemStack itemStack) {
+		Object blockData = getBlockData(itemStack);
+		World world = loc1.getWorld();
+		SectionCursor cursor = newQueryCursor(loc1, loc2);
+		long count = 0;
+		while (cursor.next()) {
+			SectionSnapshot section = snapshotSection(world, cursor, blockData);
+			if (section != null) count += section.count(blockData);
+		}
+		return count;
 	}
 
-	private static boolean removeIfTileEntity(Object nmsWorld, Object blockPosition) {
-		if (!isTileEntity(nmsWorld, blockPosition)) return false;
-		TILE_ENTITY_MANAGER.destroyTileEntity(nmsWorld, blockPosition);
-		return true;
+	/**
+	 * Counts the blocks of a cuboid per block data by reading the sections.
+	 * 
+	 * @param loc1 point 1
+	 * @param loc2 point 2
+	 * @return how many blocks of the cuboid there are of each nms block data
+	 * @throws UnsupportedOperationException before 1.8
+	 * @see #countBlocks(Location, Location, ItemStack)
+	 */
+	public static Map<Object, Long> getBlockCounts(Location loc1, Location loc2) {
+		World world = loc1.getWorld();
+		SectionCursor cursor = newQueryCursor(loc1, loc2);
+		Map<Object, Long> blockCounts = new IdentityHashMap<>();
+		while (cursor.next()) snapshotSection(world, cursor, null).addBlockCounts(blockCounts);
+		return blockCounts;
 	}
 
-	public static Object getTileEntity(Block block) {
-		try {
-			return GET_NMS_TILE_ENTITY.invoke(block.getState());
-		} catch (Throwable e) {
-			e.printStackTrace();
+	/**
+	 * Looks for the block of the given ItemStack section by section, in the order
+	 * the section setters walk a cuboid in.
+	 * 
+	 * @param loc1      point 1
+	 * @param loc2      point 2
+	 * @param itemStack block to look for
+	 * @return first position of the block or null if the cuboid has none
+	 * @throws UnsupportedOperationException before 1.8
+	 * @see #countBlocks(Location, Location, ItemStack)
+	 */
+	public static @Nullable Location findBlock(Location loc1, Location loc2, ItemStack itemStack) {
+		Object blockData = getBlockData(itemStack);
+		World world = loc1.getWorld();
+		SectionCursor cursor = newQueryCursor(loc1, loc2);
+		while (cursor.next()) {
+			SectionSnapshot section = snapshotSection(world, cursor, blockData);
+			Location location = section == null ? null : section.find(blockData);
+			if (location != null) return location;
 		}
 		return null;
 	}
 
-	// 1.12+ only
-	public static Object getSnapshotNBT(Block block) {
-		try {
-			return GET_SNAPSHOT_NBT.invoke(block.getState());
-		} catch (Throwable e) {
-			e.printStackTrace();
+	/**
+	 * @param loc1       point 1
+	 * @param loc2       point 2
+	 * @param itemStacks blocks to look for
+	 * @return whether the cuboid has any of the blocks
+	 * @throws UnsupportedOperationException before 1.8
+	 * @see #findBlock(Location, Location, ItemStack)
+	 */
+	public static boolean containsAnyBlock(Location loc1, Location loc2, ItemStack... itemStacks) {
+		Object[] blockData = new Object[itemStacks.length];
+		for (int i = 0; i < itemStacks.length; i++) blockData[i] = getBlockData(itemStacks[i]);
+		World world = loc1.getWorld();
+		SectionCursor cursor = newQueryCursor(loc1, loc2);
+		while (cursor.next()) {
+			SectionSnapshot section = null;
+			for (Object target : blockData) {
+				if (section == null && !mayContain(cursor, target)) continue;
+				if (section == null) section = snapshotSection(world, cursor, null);
+				if (section.contains(target)) return true;
+			}
 		}
-		return null;
+		return false;
 	}
 
-	// 1.12+ only
-	public static String debugSnapshotNBT(Block block) {
-		try {
-			return GET_SNAPSHOT_NBT.invoke(block.getState()).toString();
-		} catch (Throwable e) {
-			return "{" + block.getType() + "} is not a tile entity!";
-		}
+	private static SectionCursor newQueryCursor(Location loc1, Location loc2) {
+		if (CHUNK_SECTION_GET_TYPE == null)
+			throw new UnsupportedOperationException("Blocks can only be queried on 1.8+");
+		return new SectionCursor(getWorld(loc1.getWorld()), loc1, loc2);
 	}
 
-	public static String debugTileEntity(Block block) {
-		try {
-			return GET_NMS_TILE_ENTITY.invoke(block.getState()).toString() + " (Tile Entity)";
-		} catch (Throwable e) {
-			return "{" + block.getType() + "} is not a tile entity!";
-		}
+	/**
+	 * @return the only block data of the current section of the cursor, air if
+	 *         it's missing, or null if it may hold more than one or it's unknown
+	 */
+	private static @Nullable Object getSingleValue(SectionCursor cursor) {
+		Object section = cursor.getExistingSection();
+		if (section == null) return AIR_BLOCK_DATA;
+		return PALETTE_REMAPPER == null ? null : PALETTE_REMAPPER.getSingleValue(section);
 	}
 
-	// 1.12+ only
-	public static Object getSnapshot(Block block) {
-		try {
-			return GET_SNAPSHOT.invoke(block.getState());
-		} catch (Throwable e) {
-			e.printStackTrace();
-		}
-		return null;
+	/**
+	 * @return false if the current section of the cursor certainly doesn't hold
+	 *         the block data
+	 */
+	private static boolean mayContain(SectionCursor cursor, Object blockData) {
+		Object section = cursor.getExistingSection();
+		if (section == null) return blockData == AIR_BLOCK_DATA;
+		return PALETTE_REMAPPER == null || PALETTE_REMAPPER.maybeHas(section, blockData);
 	}
 
-	// 1.12+ only
-	public static String debugStoredSnapshot(Block block) {
-		try {
-			return GET_SNAPSHOT.invoke(block.getState()).toString() + " (Tile Entity)";
-		} catch (Throwable e) {
-			return "{" + block.getType() + "} is not a tile entity!";
+	/**
+	 * Copies the part of the cuboid within the current section of the cursor.
+	 * 
+	 * @param target block data the snapshot is taken for, to skip the section if
+	 *               it certainly doesn't hold it, or null
+	 * @return null if the section was skipped
+	 */
+	private static @Nullable SectionSnapshot snapshotSection(World world, SectionCursor cursor,
+			@Nullable Object target) {
+		if (target != null && !mayContain(cursor, target)) return null;
+		Object section = cursor.getExistingSection();
+		Object single = getSingleValue(cursor);
+		if (single != null) return new SectionSnapshot(world, cursor, new Object[] { single }, 0, null, true);
+		PaletteRemapper.PaletteCopy copy = PALETTE_REMAPPER != null ? PALETTE_REMAPPER.copy(section) : null;
+		if (copy != null) return new SectionSnapshot(world, cursor, copy.palette, copy.bits, copy.data, false);
+		Clipboard states = new Clipboard(16, 16, 16);
+		for (int y = cursor.getFromY(); y <= cursor.getToY(); y++) {
+			for (int z = cursor.getFromZ(); z <= cursor.getToZ(); z++) {
+				for (int x = cursor.getFromX(); x <= cursor.getToX(); x++) {
+					states.set((y & 15) << 8 | (z & 15) << 4 | x & 15,
+							getTypeChunkSection(section, x & 15, y & 15, z & 15));
+				}
+			}
 		}
+		return new SectionSnapshot(world, cursor, states.palette.toArray(), states.bits[0], states.data[0], true);
 	}
 
 	/**
-	 * Refreshes a block so it appears to the players
+	 * Recalculates the sky and block light of every block of a cuboid, which the
+	 * chunk and section setters don't do. The work is spread over ticks.
+	 * <p>
+	 * On 1.14+ every block is checked by the light engine of the world, which
+	 * sends the new light to the players by itself. Up to 1.13 the light of the
+	 * touched chunks is initialized again and they are sent to the players once
+	 * more.
+	 * </p>
 	 * 
-	 * @param world         nms world {@link #getWorld(World)}
-	 * @param blockPosition nms block position
-	 *                      {@link #newBlockPosition(Object, Object, Object, Object)}
-	 * @param blockData     nms block data {@link #getBlockData(Material)}
-	 * @param physics       whether physics should be applied or not
+	 * @param loc1 point 1
+	 * @param loc2 point 2
+	 * @return completes once the light engine is done with the cuboid
 	 */
-	public static void updateBlock(Object world, Object blockPosition, Object blockData, boolean physics) {
-		BLOCK_UPDATER.update(world, blockPosition, blockData, physics ? 3 : 2);
+	public static CompletableFuture<Void> relight(Location loc1, Location loc2) {
+		World world = loc1.getWorld();
+		Object nmsWorld = getWorld(world);
+		SectionCursor cursor = new SectionCursor(nmsWorld, loc1, loc2);
+		SectionChangeSet sections = new SectionChangeSet();
+		while (cursor.next()) sections.add(cursor);
+		return Relight.start(world, nmsWorld, sections.values(), Priority.NORMAL);
 	}
 
 	/**
+	 * Has the same behavior as {@link #setSectionBlocks(World, Location, Material)}
+	 * but creates a cuboid from a location
+	 * to another as if using the vanilla command <b>/fill</b> asynchronously
 	 * 
-	 * @param world (Bukkit world) can be null for versions 1.8+
-	 * @param x     point
-	 * @param y     point
-	 * @param z     point
-	 * @return constructs an unmodifiable block position
+	 * @param loc1      point 1
+	 * @param loc2      point 2
+	 * @param itemStack ItemStack to apply on the blocks
 	 */
-	public static Object newBlockPosition(@Nullable Object world, Object x, Object y, Object z) {
-		try {
-			return BLOCK_POSITION_CONSTRUCTOR.newBlockPosition(world, x, y, z);
-		} catch (Throwable e) {
-			e.printStackTrace();
-		}
-		return null;
+	public static CompletableFuture<Void> setSectionCuboidAsynchronously(Location loc1, Location loc2,
+			ItemStack itemStack) {
+		return setSectionCuboidAsynchronously(loc1, loc2, itemStack, false);
 	}
 
 	/**
+	 * Has the same behavior as {@link #setSectionBlocks(World, Location, Material)}
+	 * but creates a cuboid from a location
+	 * to another as if using the vanilla command <b>/fill</b> asynchronously
 	 * 
-	 * @param world (Bukkit world) can be null for 1.8+
-	 * @param x     x pos
-	 * @param y     y pos
-	 * @param z     z pos
-	 * @return constructs a mutable block position that can be modified using
-	 *         {@link #setBlockPosition(Object, Object, Object, Object)}
+	 * @param loc1      point 1
+	 * @param loc2      point 2
+	 * @param itemStack ItemStack to apply on the blocks
 	 */
-	public static Object newMutableBlockPosition(@Nullable Object world, Object x, Object y, Object z) {
-		try {
-			return BLOCK_POSITION_CONSTRUCTOR.newMutableBlockPosition(world, x, y, z);
-		} catch (Throwable e) {
-			e.printStackTrace();
-		}
-		return null;
+	public static CompletableFuture<Void> setSectionCuboidAsynchronously(Location loc1, Location loc2,
+			ItemStack itemStack, boolean physics) {
+		return setSectionCuboidAsynchronously(loc1, loc2, itemStack, new EditOptions().physics(physics));
 	}
 
 	/**
+	 * Has the same behavior as {@link #setSectionBlocks(World, Location, Material)}
+	 * but creates a cuboid from a location
+	 * to another as if using the vanilla command <b>/fill</b> asynchronously
 	 * 
-	 * @param location Location to get coordinates from
-	 * @return constructs a mutable block position that can be modified using
-	 *         {@link #setBlockPosition(Object, Object, Object, Object)}
+	 * @param loc1      point 1
+	 * @param loc2      point 2
+	 * @param itemStack ItemStack to apply on the blocks
+	 * @param options   physics, client sync and lighting of this change
+	 * @return completes once every block is set and relit if needed
 	 */
-	public static Object newMutableBlockPosition(Location location) {
-		try {
-			return BLOCK_POSITION_CONSTRUCTOR.newMutableBlockPosition(location.getWorld(), location.getBlockX(),
-					location.getBlockY(), location.getBlockZ());
-		} catch (Throwable e) {
-			e.printStackTrace();
-		}
-		return null;
+	public static CompletableFuture<Void> setSectionCuboidAsynchronously(Location loc1, Location loc2,
+			ItemStack itemStack, EditOptions options) {
+		Edit edit = new Edit(loc1.getWorld(), options);
+		Object blockData = getBlockData(itemStack);
+		SectionCursor cursor = new SectionCursor(edit.getWorld(), loc1, loc2);
+		CompletableFuture<Void> workloadFinishFuture = new CompletableFuture<>();
+		WorkloadJob workloadJob = new WorkloadJob(options.getPriority());
+		workloadJob.addWorkload(new SectionFillWorkload(cursor, blockData, edit));
+		workloadJob.whenComplete(
+				() -> edit.finish().whenComplete((result, e) -> workloadFinishFuture.complete(null)));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
+		return workloadFinishFuture;
 	}
 
 	/**
+	 * Same as
+	 * {@link #setSectionCuboidAsynchronously(Location, Location, ItemStack, EditOptions)}
+	 * with every block drawn from a weighted pattern.
 	 * 
-	 * @param mutableBlockPosition MutableBlockPosition to modify
-	 * @param x                    new x pos
-	 * @param y                    new y pos
-	 * @param z                    new z pos
-	 * @return modified MutableBlockPosition (no need to set the variable to the
-	 *         returned MutableBlockPosition)
+	 * @param loc1    point 1
+	 * @param loc2    point 2
+	 * @param pattern blocks to draw from
+	 * @param options physics, client sync and lighting of this change
+	 * @return completes once every block is set and relit if needed
+	 * @throws IllegalStateException if the pattern has no blocks
 	 */
-	public static Object setBlockPosition(Object mutableBlockPosition, Object x, Object y, Object z) {
-		try {
-			return BLOCK_POSITION_CONSTRUCTOR.set(mutableBlockPosition, x, y, z);
-		} catch (Throwable e) {
-			e.printStackTrace();
-		}
-		return null;
+	public static CompletableFuture<Void> setSectionCuboidAsynchronously(Location loc1, Location loc2,
+			BlockPattern pattern, EditOptions options) {
+		PatternTable table = pattern.getTable();
+		Edit edit = new Edit(loc1.getWorld(), options);
+		SectionCursor cursor = new SectionCursor(edit.getWorld(), loc1, loc2);
+		CompletableFuture<Void> workloadFinishFuture = new CompletableFuture<>();
+		WorkloadJob workloadJob = new WorkloadJob(options.getPriority());
+		workloadJob.addWorkload(new SectionFillWorkload(cursor, table, pattern.newRandom(), edit));
+		workloadJob.whenComplete(
+				() -> edit.finish().whenComplete((result, e) -> workloadFinishFuture.complete(null)));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
+		return workloadFinishFuture;
 	}
 
 	/**
+	 * Same as {@link #pasteSchematic(File, Location, EditOptions)} with the
+	 * default options.
 	 * 
-	 * @param itemStack bukkit ItemStack
-	 * @return nms block data from bukkit item stack
-	 * @throws IllegalArgumentException if material is not a block
+	 * @param file   gzipped Sponge schematic, version 2 or 3
+	 * @param origin where the lowest corner of the schematic goes
+	 * @return completes once every block is set, exceptionally if the file
+	 *         couldn't be read
 	 */
-	public static @Nonnull Object getBlockData(@Nonnull ItemStack itemStack) {
-		Object blockData = BLOCK_DATA_GETTER.fromItemStack(itemStack);
-		if (blockData == null) throw new IllegalArgumentException("Couldn't convert specified itemstack to block data");
-		return blockData;
+	public static CompletableFuture<Void> pasteSchematic(File file, Location origin) {
+		return pasteSchematic(file, origin, new EditOptions());
 	}
 
 	/**
+	 * Pastes a Sponge schematic (<i>.schem</i>, version 2 or 3) with the section
+	 * setter {@code chunkSection.setType(...)}, asynchronously as in
+	 * {@link #setSectionCuboidAsynchronously(Location, Location, ItemStack, EditOptions)}.
+	 * <p>
+	 * The file is read on its own thread while the blocks are set. Its palette
+	 * is converted to block data once and its block data is decoded layer by
+	 * layer, so only a few layers are held in memory no matter how big the
+	 * schematic is. Blocks unknown to this version become air. Block entities,
+	 * entities, biomes and the offset of the schematic are left out.
+	 * </p>
 	 * 
-	 * @param material to get block data for
-	 * @return stored nms block data for the specified material
+	 * @param file    gzipped Sponge schematic, version 2 or 3
+	 * @param origin  where the lowest corner of the schematic goes
+	 * @param options physics, client sync and lighting of this change
+	 * @return completes once every block is set and relit if needed,
+	 *         exceptionally if the file couldn't be read
+	 * @throws UnsupportedOperationException before 1.13
 	 */
-	public static @Nullable Object getBlockData(@Nullable Material material) {
-		return NMS_BLOCK_MATERIALS.get(material);
+	public static CompletableFuture<Void> pasteSchematic(File file, Location origin, EditOptions options) {
+		if (CRAFT_BLOCK_DATA_GET_STATE == null)
+			throw new UnsupportedOperationException("Schematics can only be pasted on 1.13+");
+		Edit edit = new Edit(origin.getWorld(), options);
+		SchematicReader reader = new SchematicReader(file, origin.getBlockY());
+		Thread readerThread = new Thread(reader, "BlockChanger schematic reader");
+		readerThread.setDaemon(true);
+		readerThread.start();
+		CompletableFuture<Void> pasteFuture = new CompletableFuture<>();
+		WorkloadJob workloadJob = new WorkloadJob(options.getPriority());
+		SchematicPasteWorkload pasteWorkload = new SchematicPasteWorkload(reader, edit, origin);
+		workloadJob.addWorkload(pasteWorkload);
+		workloadJob.whenComplete(() -> edit.finish().whenComplete((result, e) -> {
+			if (pasteWorkload.getFailure() != null)
+				pasteFuture.completeExceptionally(pasteWorkload.getFailure());
+			else if (reader.getFailure() != null)
+				pasteFuture.completeExceptionally(reader.getFailure());
+			else
+				pasteFuture.complete(null);
+		}));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
+		return pasteFuture;
 	}
 
 	/**
-	 * This method should get block data even if block is not actually placed i.e
-	 * doesn't have location
-	 * <p>
-	 * Doesn't retrieve the tile entity as of now
-	 * </p>
+	 * Copies the blocks of a cuboid by reading the chunk sections directly
+	 * {@code chunkSection.getType(...)}, which is the reverse of
+	 * {@link #setSectionBlocks(World, Location, Material)} and doesn't go through
+	 * a bukkit block per position.
 	 * 
-	 * @param block bukkit block to cast to nms block data
-	 * @return nms block data from bukkit block
+	 * @param loc1 first corner
+	 * @param loc2 second corner
+	 * @return the copied blocks, which can be pasted with
+	 *         {@link #pasteClipboard(Clipboard, Location, EditOptions)}
+	 * @throws UnsupportedOperationException before 1.8
 	 */
-	public static @Nonnull Object getBlockData(Block block) {
-		Object blockData = BLOCK_DATA_GETTER.fromBlock(block);
-		return blockData != null ? blockData : AIR_BLOCK_DATA;
+	public static Clipboard copyRegion(Location loc1, Location loc2) {
+		RegionCopy regionCopy = new RegionCopy(loc1, loc2);
+		while (!regionCopy.compute());
+		return regionCopy.getClipboard();
 	}
 
 	/**
+	 * Same as {@link #copyRegion(Location, Location)} but copies a section at a
+	 * time within the budget of the asynchronous changes. Blocks changed while
+	 * it runs may or may not be part of the copy.
 	 * 
-	 * @return nms air block data
+	 * @param loc1     first corner
+	 * @param loc2     second corner
+	 * @param priority share of the tick the copy gets
+	 * @return completes with the copied blocks
+	 * @throws UnsupportedOperationException before 1.8
 	 */
-	public static Object getAirBlockData() {
-		return AIR_BLOCK_DATA;
+	public static CompletableFuture<Clipboard> copyRegionAsynchronously(Location loc1, Location loc2,
+			Priority priority) {
+		RegionCopy regionCopy = new RegionCopy(loc1, loc2);
+		CompletableFuture<Clipboard> copyFuture = new CompletableFuture<>();
+		WorkloadJob workloadJob = new WorkloadJob(priority);
+		workloadJob.addWorkload(regionCopy);
+		workloadJob.whenComplete(() -> copyFuture.complete(regionCopy.getClipboard()));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
+		return copyFuture;
 	}
 
 	/**
+	 * Same as {@link #copyRegionAsynchronously(Location, Location, Priority)}
+	 * with {@link Priority#NORMAL}.
 	 * 
-	 * @param world to get nms world for
-	 * @return stored nms world for the specified world
+	 * @param loc1 first corner
+	 * @param loc2 second corner
+	 * @return completes with the copied blocks
 	 */
-	public static Object getWorld(World world) {
-		return NMS_WORLDS.get(world);
+	public static CompletableFuture<Clipboard> copyRegionAsynchronously(Location loc1, Location loc2) {
+		return copyRegionAsynchronously(loc1, loc2, Priority.NORMAL);
 	}
 
 	/**
+	 * Pastes copied blocks with the section setter {@code chunkSection.setType(...)}
 	 * 
-	 * @param worldName to get nms world for
-	 * @return stored nms world for the specified world name
+	 * @param clipboard blocks to paste
+	 * @param origin    where the lowest corner of the clipboard goes
+	 * @param options   physics, client sync and lighting of this change
+	 * @return completes once the pasted blocks are relit if needed
 	 */
-	public static Object getWorld(String worldName) {
-		return NMS_WORLD_NAMES.get(worldName);
+	public static CompletableFuture<Void> pasteClipboard(Clipboard clipboard, Location origin, EditOptions options) {
+		Edit edit = new Edit(origin.getWorld(), options);
+		ClipboardPasteWorkload workload = new ClipboardPasteWorkload(clipboard, edit, origin);
+		while (!workload.compute());
+		return edit.finish();
+	}
+
+	/**
+	 * Same as {@link #pasteClipboard(Clipboard, Location, EditOptions)} but
+	 * pastes a section at a time within the budget of the asynchronous changes.
+	 * 
+	 * @param clipboard blocks to paste
+	 * @param origin    where the lowest corner of the clipboard goes
+	 * @param options   physics, client sync and lighting of this change
+	 * @return completes once every block is set and relit if needed
+	 */
+	public static CompletableFuture<Void> pasteClipboardAsynchronously(Clipboard clipboard, Location origin,
+			EditOptions options) {
+		Edit edit = new Edit(origin.getWorld(), options);
+		CompletableFuture<Void> workloadFinishFuture = new CompletableFuture<>();
+		WorkloadJob workloadJob = new WorkloadJob(options.getPriority());
+		workloadJob.addWorkload(new ClipboardPasteWorkload(clipboard, edit, origin));
+		workloadJob.whenComplete(
+				() -> edit.finish().whenComplete((result, e) -> workloadFinishFuture.complete(null)));
+		WORKLOAD_RUNNABLE.submit(workloadJob);
+		return workloadFinishFuture;
+	}
+
+	/**
+	 * Same as {@link #pasteClipboardAsynchronously(Clipboard, Location, EditOptions)}
+	 * with the default options.
+	 * 
+	 * @param clipboard blocks to paste
+	 * @param origin    where the lowest corner of the clipboard goes
+	 * @return completes once every block is set
+	 */
+	public static CompletableFuture<Void> pasteClipboardAsynchronously(Clipboard clipboard, Location origin) {
+		return pasteClipboardAsynchronously(clipboard, origin, new EditOptions());
+	}
+
+	/**
+	 * Reads a block without creating its section if it's missing.
+	 */
+	private static Object getBlockType(Object nmsWorld, int x, int y, int z) {
+		Object nmsChunk = getChunkAt(nmsWorld, x, z);
+		Object[] sections = getSections(nmsChunk);
+		int index = BLOCK_UPDATER.getSectionIndex(nmsChunk, y);
+		Object section = index >= 0 && index < sections.length ? sections[index] : null;
+		return section == null ? AIR_BLOCK_DATA : getTypeChunkSection(section, x & 15, y & 15, z & 15);
+	}
+
+	private static Object getTypeChunkSection(Object chunkSection, int x, int y, int z) {
+		try {
+			return (Object) CHUNK_SECTION_GET_TYPE.invokeExact(chunkSection, x, y, z);
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return AIR_BLOCK_DATA;
+	}
+
+	/**
+	 * Fills the part of the cuboid that lies within the current section of the
+	 * given cursor. The chunk and section are resolved once, then blocks are set
+	 * in the same y, z, x order they are stored in.
+	 */
+	private static void fillSection(SectionCursor cursor, Object blockData, Edit edit) {
+		// Nothing to do for a section that only holds the block already
+		if (edit.isDiff() && getSingleValue(cursor) == blockData) return;
+		Object nmsWorld = cursor.getWorld();
+		Object blockPosition = edit.getBlockPosition();
+		boolean notify = edit.sectionChanging(cursor);
+		boolean tileEntities = TILE_ENTITY_MANAGER.hasCapturedTileEntities(nmsWorld);
+		boolean replaced = !edit.isDiff() && !tileEntities && cursor.isFull() && fillWholeSection(cursor, blockData);
+		if (!replaced || notify) {
+			Object section = replaced ? null : cursor.getSection();
+			for (int y = cursor.getFromY(); y <= cursor.getToY(); y++) {
+				for (int z = cursor.getFromZ(); z <= cursor.getToZ(); z++) {
+					for (int x = cursor.getFromX(); x <= cursor.getToX(); x++) {
+						if (!replaced && !edit.sectionBlockChanging(section, x, y, z, blockData)) continue;
+						setBlockPosition(blockPosition, x, y, z);
+						if (!replaced) {
+							if (tileEntities) removeIfTileEntity(nmsWorld, blockPosition);
+							setTypeChunkSection(section, x & 15, y & 15, z & 15, blockData);
+						}
+						if (notify) updateBlock(nmsWorld, blockPosition, blockData, edit.isPhysics());
+					}
+				}
+			}
+		}
+		edit.sectionChanged(cursor);
+	}
+
+	/**
+	 * Same as {@link #fillSection(SectionCursor, Object, Edit)} drawing each block
+	 * from the pattern, which rules out replacing the whole section.
+	 */
+	private static void fillSection(SectionCursor cursor, PatternTable table, SplittableRandom random, Edit edit) {
+		if (table.isSingle()) {
+			fillSection(cursor, table.getSingle(), edit);
+			return;
+		}
+		Object nmsWorld = cursor.getWorld();
+		Object blockPosition = edit.getBlockPosition();
+		boolean notify = edit.sectionChanging(cursor);
+		boolean tileEntities = TILE_ENTITY_MANAGER.hasCapturedTileEntities(nmsWorld);
+		Object section = cursor.getSection();
+		for (int y = cursor.getFromY(); y <= cursor.getToY(); y++) {
+			for (int z = cursor.getFromZ(); z <= cursor.getToZ(); z++) {
+				for (int x = cursor.getFromX(); x <= cursor.getToX(); x++) {
+					Object blockData = table.next(random);
+					if (!edit.sectionBlockChanging(section, x, y, z, blockData)) continue;
+					setBlockPosition(blockPosition, x, y, z);
+					if (tileEntities) removeIfTileEntity(nmsWorld, blockPosition);
+					setTypeChunkSection(section, x & 15, y & 15, z & 15, blockData);
+					if (notify) updateBlock(nmsWorld, blockPosition, blockData, edit.isPhysics());
+				}
+			}
+		}
+		edit.sectionChanged(cursor);
+	}
+
+	/**
+	 * Replaces <i>from</i> with <i>to</i> within the current section of the
+	 * cursor. Sections that certainly don't hold <i>from</i> are skipped and
+	 * whole sections are remapped through their palette when their blocks don't
+	 * have to be notified or diffed one by one, otherwise only the matching blocks
+	 * are set.
+	 */
+	private static void replaceSection(SectionCursor cursor, Object from, Object to, Edit edit) {
+		Object section = cursor.getExistingSection();
+		// Missing sections are air
+		if (section == null && from != AIR_BLOCK_DATA) return;
+		if (section != null && PALETTE_REMAPPER != null && !PALETTE_REMAPPER.maybeHas(section, from)) return;
+		Object nmsWorld = cursor.getWorld();
+		Object blockPosition = edit.getBlockPosition();
+		boolean notify = edit.sectionChanging(cursor);
+		boolean tileEntities = TILE_ENTITY_MANAGER.hasCapturedTileEntities(nmsWorld);
+		// A section of nothing but from is filled anew, its single value palette is shared with its copies
+		if (section != null && PALETTE_REMAPPER != null && !notify && !tileEntities && !edit.isDiff()
+				&& cursor.isFull() && (PALETTE_REMAPPER.getSingleValue(section) == from
+						? fillWholeSection(cursor, to)
+						: PALETTE_REMAPPER.remap(cursor.getSections(), cursor.getSectionIndex(),
+								cursor.getFromY() >> 4, section, from, to))) {
+			edit.sectionChanged(cursor);
+			return;
+		}
+		section = cursor.getSection();
+		for (int y = cursor.getFromY(); y <= cursor.getToY(); y++) {
+			for (int z = cursor.getFromZ(); z <= cursor.getToZ(); z++) {
+				for (int x = cursor.getFromX(); x <= cursor.getToX(); x++) {
+					if (getTypeChunkSection(section, x & 15, y & 15, z & 15) != from) continue;
+					if (!edit.sectionBlockChanging(section, x, y, z, to)) continue;
+					setBlockPosition(blockPosition, x, y, z);
+					if (tileEntities) removeIfTileEntity(nmsWorld, blockPosition);
+					setTypeChunkSection(section, x & 15, y & 15, z & 15, to);
+					if (notify) updateBlock(nmsWorld, blockPosition, to, edit.isPhysics());
+				}
+			}
+		}
+		edit.sectionChanged(cursor);
+	}
+
+	private static void placeSectionBlock(Edit edit, Location location, Object blockData) {
+		Object nmsWorld = edit.getWorld();
+		Object blockPosition = edit.getBlockPosition();
+		int x = location.getBlockX();
+		int y = location.getBlockY();
+		int z = location.getBlockZ();
+		Object nmsChunk = getChunkAt(nmsWorld, x, z);
+		Object section = getSection(nmsChunk, getSections(nmsChunk), y);
+		if (edit.blockUnchanged(x, y, z, blockData)) return;
+		edit.blockChanging(x, y, z);
+		setBlockPosition(blockPosition, x, y, z);
+		removeIfTileEntity(nmsWorld, blockPosition);
+		setTypeChunkSection(section, x & 15, y & 15, z & 15, blockData);
+		edit.blockChanged(x, y, z, blockData);
+	}
+
+	private static void placeChunkBlock(Edit edit, Location location, Object blockData) {
+		Object nmsWorld = edit.getWorld();
+		Object blockPosition = edit.getBlockPosition();
+		int x = location.getBlockX();
+		int y = location.getBlockY();
+		int z = location.getBlockZ();
+		Object chunk = getChunkAt(nmsWorld, x, z);
+		if (edit.blockUnchanged(x, y, z, blockData)) return;
+		edit.blockChanging(x, y, z);
+		setBlockPosition(blockPosition, x, y, z);
+		removeIfTileEntity(nmsWorld, blockPosition);
+		setType(chunk, blockPosition, blockData, edit.isPhysics());
+		edit.blockChanged(x, y, z, blockData);
+	}
+
+	/**
+	 * Replaces the current section of the cursor with one that only contains the
+	 * given block data, which costs about as much as a single block change
+	 * instead of 4096 of them.
+	 * 
+	 * @return false if it isn't supported, in which case nothing was changed
+	 */
+	private static boolean fillWholeSection(SectionCursor cursor, Object blockData) {
+		if (SECTION_FILLER == null) return false;
+		Object section = cursor.getSection();
+		return SECTION_FILLER.fill(cursor.getSections(), cursor.getSectionIndex(), cursor.getFromY() >> 4, section,
+				blockData);
+	}
+
+	private static Object getSection(Object nmsChunk, Object[] sections, int y) {
+		return BLOCK_UPDATER.getSection(nmsChunk, sections, y);
+	}
+
+	private static Object[] getSections(Object nmsChunk) {
+		return SECTIONS_GETTER.getSections(nmsChunk);
+	}
+
+	private static void setTypeChunkSection(Object chunkSection, int x, int y, int z, Object blockData) {
+		SECTION_SETTER.setType(chunkSection, x, y, z, blockData);
+	}
+
+	private static void setTypeAndData(Object nmsWorld, Object blockPosition, Object blockData, int physics) {
+		WORLD_BLOCK_SETTER.setTypeAndData(nmsWorld, blockPosition, blockData, physics);
+	}
+
+	private static void setType(Object chunk, Object blockPosition, Object blockData, boolean physics) {
+		BLOCK_UPDATER.setType(chunk, blockPosition, blockData, physics);
+	}
+
+	private static Object getChunkAt(Object world, Location loc) {
+		return CHUNK_GETTER.getChunkAt(world, loc.getBlockX() >> 4, loc.getBlockZ() >> 4);
+	}
+
+	private static Object getChunkAt(Object world, int x, int z) {
+		return CHUNK_GETTER.getChunkAt(world, x >> 4, z >> 4);
+	}
+
+	private static Object getNMSWorld(@Nonnull World world) {
+		try {
+			return WORLD_GET_HANDLE.invoke(world);
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	private static @Nullable Object getNMSBlockData(@Nullable ItemStack itemStack) {
+		try {
+			if (itemStack == null) return null;
+			Object nmsItemStack = NMS_ITEM_STACK_COPY.invoke(itemStack);
+			if (nmsItemStack == null) return null;
+			Object nmsItem = NMS_ITEM_STACK_TO_ITEM.invoke(nmsItemStack);
+			Object block = NMS_BLOCK_FROM_ITEM.invoke(nmsItem);
+			if (ReflectionUtils.MINOR_NUMBER < 8) return block;
+			return ITEM_TO_BLOCK_DATA.invoke(block);
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	private static boolean isTileEntity(Object nmsWorld, Object blockPosition) {
+		return TILE_ENTITY_MANAGER.isTileEntity(nmsWorld, blockPosition);
+	}
+
+	private static boolean removeIfTileEntity(Object nmsWorld, Object blockPosition) {
+		if (!isTileEntity(nmsWorld, blockPosition)) return false;
+		TILE_ENTITY_MANAGER.destroyTileEntity(nmsWorld, blockPosition);
+		return true;
+	}
+
+	public static Object getTileEntity(Block block) {
+		try {
+			return GET_NMS_TILE_ENTITY.invoke(block.getState());
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	// 1.12+ only
+	public static Object getSnapshotNBT(Block block) {
+		try {
+			return GET_SNAPSHOT_NBT.invoke(block.getState());
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	// 1.12+ only
+	public static String debugSnapshotNBT(Block block) {
+		try {
+			return GET_SNAPSHOT_NBT.invoke(block.getState()).toString();
+		} catch (Throwable e) {
+			return "{" + block.getType() + "} is not a tile entity!";
+		}
+	}
+
+	public static String debugTileEntity(Block block) {
+		try {
+			return GET_NMS_TILE_ENTITY.invoke(block.getState()).toString() + " (Tile Entity)";
+		} catch (Throwable e) {
+			return "{" + block.getType() + "} is not a tile entity!";
+		}
+	}
+
+	// 1.12+ only
+	public static Object getSnapshot(Block block) {
+		try {
+			return GET_SNAPSHOT.invoke(block.getState());
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	// 1.12+ only
+	public static String debugStoredSnapshot(Block block) {
+		try {
+			return GET_SNAPSHOT.invoke(block.getState()).toString() + " (Tile Entity)";
+		} catch (Throwable e) {
+			return "{" + block.getType() + "} is not a tile entity!";
+		}
+	}
+
+	/**
+	 * Refreshes a block so it appears to the players
+	 * 
+	 * @param world         nms world {@link #getWorld(World)}
+	 * @param blockPosition nms block position
+	 *                      {@link #newBlockPosition(Object, Object, Object, Object)}
+	 * @param blockData     nms block data {@link #getBlockData(Material)}
+	 * @param physics       whether physics should be applied or not
+	 */
+	public static void updateBlock(Object world, Object blockPosition, Object blockData, boolean physics) {
+		BLOCK_UPDATER.update(world, blockPosition, blockData, physics ? 3 : 2);
+	}
+
+	/**
+	 * 
+	 * @param world (Bukkit world) can be null for versions 1.8+
+	 * @param x     point
+	 * @param y     point
+	 * @param z     point
+	 * @return constructs an unmodifiable block position
+	 */
+	public static Object newBlockPosition(@Nullable Object world, Object x, Object y, Object z) {
+		try {
+			return BLOCK_POSITION_CONSTRUCTOR.newBlockPosition(world, x, y, z);
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Same as {@link #newBlockPosition(Object, Object, Object, Object)} but takes
+	 * primitive coordinates, so nothing gets boxed.
+	 * 
+	 * @param world (Bukkit world) can be null for versions 1.8+
+	 * @param x     point
+	 * @param y     point
+	 * @param z     point
+	 * @return constructs an unmodifiable block position
+	 */
+	public static Object newBlockPosition(@Nullable Object world, int x, int y, int z) {
+		return BLOCK_POSITION_CONSTRUCTOR.newBlockPosition(world, x, y, z);
+	}
+
+	/**
+	 * 
+	 * @param world (Bukkit world) can be null for 1.8+
+	 * @param x     x pos
+	 * @param y     y pos
+	 * @param z     z pos
+	 * @return constructs a mutable block position that can be modified using
+	 *         {@link #setBlockPosition(Object, Object, Object, Object)}
+	 */
+	public static Object newMutableBlockPosition(@Nullable Object world, Object x, Object y, Object z) {
+		try {
+			return BLOCK_POSITION_CONSTRUCTOR.newMutableBlockPosition(world, x, y, z);
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Same as {@link #newMutableBlockPosition(Object, Object, Object, Object)} but
+	 * takes primitive coordinates, so nothing gets boxed.
+	 * 
+	 * @param world (Bukkit world) can be null for 1.8+
+	 * @param x     x pos
+	 * @param y     y pos
+	 * @param z     z pos
+	 * @return constructs a mutable block position that can be modified using
+	 *         {@link #setBlockPosition(Object, int, int, int)}
+	 */
+	public static Object newMutableBlockPosition(@Nullable Object world, int x, int y, int z) {
+		return BLOCK_POSITION_CONSTRUCTOR.newMutableBlockPosition(world, x, y, z);
+	}
+
+	/**
+	 * 
+	 * @param location Location to get coordinates from
+	 * @return constructs a mutable block position that can be modified using
+	 *         {@link #setBlockPosition(Object, Object, Object, Object)}
+	 */
+	public static Object newMutableBlockPosition(Location location) {
+		return BLOCK_POSITION_CONSTRUCTOR.newMutableBlockPosition(location.getWorld(), location.getBlockX(),
+				location.getBlockY(), location.getBlockZ());
+	}
+
+	/**
+	 * 
+	 * @param mutableBlockPosition MutableBlockPosition to modify
+	 * @param x                    new x pos
+	 * @param y                    new y pos
+	 * @param z                    new z pos
+	 * @return modified MutableBlockPosition (no need to set the variable to the
+	 *         returned MutableBlockPosition)
+	 */
+	public static Object setBlockPosition(Object mutableBlockPosition, Object x, Object y, Object z) {
+		try {
+			return BLOCK_POSITION_CONSTRUCTOR.set(mutableBlockPosition, x, y, z);
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Same as {@link #setBlockPosition(Object, Object, Object, Object)} but takes
+	 * primitive coordinates, so moving a position around allocates nothing.
+	 * 
+	 * @param mutableBlockPosition MutableBlockPosition to modify
+	 * @param x                    new x pos
+	 * @param y                    new y pos
+	 * @param z                    new z pos
+	 * @return modified MutableBlockPosition (no need to set the variable to the
+	 *         returned MutableBlockPosition)
+	 */
+	public static Object setBlockPosition(Object mutableBlockPosition, int x, int y, int z) {
+		return POSITION_SETTER.set(mutableBlockPosition, x, y, z);
+	}
+
+	/**
+	 * 
+	 * @param itemStack bukkit ItemStack
+	 * @return nms block data from bukkit item stack
+	 * @throws IllegalArgumentException if material is not a block
+	 */
+	public static @Nonnull Object getBlockData(@Nonnull ItemStack itemStack) {
+		Object blockData = ITEM_BLOCK_DATA_CACHE.get(itemStack);
+		if (blockData == null) throw new IllegalArgumentException("Couldn't convert specified itemstack to block data");
+		return blockData;
+	}
+
+	/**
+	 * 
+	 * @return how many times {@link #getBlockData(ItemStack)} found the block data
+	 *         of an item in its cache
+	 */
+	public static long getItemCacheHits() {
+		return ITEM_BLOCK_DATA_CACHE.hits.sum();
+	}
+
+	/**
+	 * 
+	 * @return how many times {@link #getBlockData(ItemStack)} had to convert an
+	 *         item to block data
+	 */
+	public static long getItemCacheMisses() {
+		return ITEM_BLOCK_DATA_CACHE.misses.sum();
+	}
+
+	/**
+	 * 
+	 * @param material to get block data for
+	 * @return stored nms block data for the specified material
+	 */
+	public static @Nullable Object getBlockData(@Nullable Material material) {
+		return material == null ? null : BLOCK_STATES.get(material);
+	}
+
+	/**
+	 * Reverse of {@link #getStateId(Object)}
+	 * 
+	 * @param stateId combined id of a block state
+	 * @return nms block data with the given id, air if there's none
+	 * @throws IllegalArgumentException if the id is negative
+	 */
+	public static @Nonnull Object getBlockData(int stateId) {
+		if (stateId < 0) throw new IllegalArgumentException("State ids can't be negative!");
+		Object blockData = BLOCK_STATES.get(stateId);
+		return blockData != null ? blockData : AIR_BLOCK_DATA;
+	}
+
+	/**
+	 * The combined id is the number the server stores a block state under, it
+	 * lets block states be kept in primitive arrays instead of object ones. Ids
+	 * only stay the same while the server runs the same version.
+	 * 
+	 * @param blockData nms block data
+	 * @return combined id of the block data or -1 if it can't be found
+	 */
+	public static int getStateId(@Nonnull Object blockData) {
+		return BLOCK_STATES.getId(blockData);
+	}
+
+	/**
+	 * 
+	 * @param material to get the state id for
+	 * @return combined id of the stored block data for the material or -1 if
+	 *         it's not a placeable block
+	 */
+	public static int getStateId(@Nonnull Material material) {
+		return BLOCK_STATES.getId(material);
+	}
+
+	/**
+	 * 
+	 * @param itemStack bukkit ItemStack
+	 * @return combined id of the block data from the item stack
+	 * @throws IllegalArgumentException if material is not a block
+	 */
+	public static int getStateId(@Nonnull ItemStack itemStack) {
+		return BLOCK_STATES.getId(getBlockData(itemStack));
+	}
+
+	/**
+	 * This method should get block data even if block is not actually placed i.e
+	 * doesn't have location
+	 * <p>
+	 * Doesn't retrieve the tile entity as of now
+	 * </p>
+	 * 
+	 * @param block bukkit block to cast to nms block data
+	 * @return nms block data from bukkit block
+	 */
+	public static @Nonnull Object getBlockData(Block block) {
+		Object blockData = BLOCK_DATA_GETTER.fromBlock(block);
+		return blockData != null ? blockData : AIR_BLOCK_DATA;
+	}
+
+	/**
+	 * 
+	 * @return nms air block data
+	 */
+	public static Object getAirBlockData() {
+		return AIR_BLOCK_DATA;
+	}
+
+	/**
+	 * 
+	 * @param world to get nms world for
+	 * @return stored nms world for the specified world
+	 */
+	public static Object getWorld(World world) {
+		return world == null ? null : NMS_WORLDS.get(world);
+	}
+
+	/**
+	 * 
+	 * @param worldName to get nms world for
+	 * @return stored nms world for the specified world name
+	 */
+	public static Object getWorld(String worldName) {
+		return worldName == null ? null : NMS_WORLDS.get(worldName);
 	}
 
 	/**
@@ -1841,468 +3542,4569 @@ public class BlockChanger {
 	 *         <p>
 	 *         <i>dirt, stone, glass, etc...</i>
 	 */
-	public static String getAvailableBlockMaterials() {
-		return AVAILABLE_BLOCKS;
+	public static String getAvailableBlockMaterials() {
+		String availableBlocks = BlockChanger.availableBlocks;
+		if (availableBlocks == null) {
+			availableBlocks = String.join(", ",
+					BLOCK_STATES.getMaterials()
+							.stream()
+							.map(Material::name)
+							.map(String::toLowerCase)
+							.collect(Collectors.toList()));
+			BlockChanger.availableBlocks = availableBlocks;
+		}
+		return availableBlocks;
+	}
+
+	/**
+	 * 
+	 * @return a list of nms block materials including block materials that cannot
+	 *         be given as
+	 *         items in an inventory,
+	 *         such as lava and water.
+	 */
+	public static Set<String> getAllNMSBlockMaterials() {
+		return getNMSBlockNames().keySet();
+	}
+
+	/**
+	 * physics: 3 = yes, 2 = no
+	 * 
+	 * @return methods that accept nms objects
+	 */
+	public static UncheckedSetters getUncheckedSetters() {
+		return UNCHECKED_SETTERS;
+	}
+
+	/**
+	 * 
+	 * @apiNote physics: 3 = yes, 2 = no
+	 *
+	 */
+	public static class UncheckedSetters {
+
+		/**
+		 * 
+		 * @param nmsWorld      using {@link BlockChanger#getWorld(World)
+		 *                      getWorld(World)} or {@link BlockChanger#getWorld(String)
+		 *                      getWorld(String)}
+		 * @param blockPosition using
+		 *                      {@link BlockChanger#newMutableBlockPosition(Location)
+		 *                      newMutableBlockPosition(Location)}
+		 * @param nmsBlockData  {@link BlockChanger#getBlockData(ItemStack)
+		 *                      getBlockData(ItemStack)} or
+		 *                      {@link BlockChanger#getBlockData(Material)
+		 *                      getBlockData(Material)}
+		 * @param physics       3 = applies physics, 2 = doesn't
+		 *                      <p>
+		 *                      <i>blockPosition</i> can be further modified with new
+		 *                      coordinates using
+		 *                      {@link BlockChanger#setBlockPosition(Object, Object, Object, Object)}
+		 */
+		public void setBlock(Object nmsWorld, Object blockPosition, Object nmsBlockData, int physics) {
+			setTypeAndData(nmsWorld, blockPosition, nmsBlockData, physics);
+		}
+
+		/**
+		 * 
+		 * @param nmsWorld      using {@link BlockChanger#getWorld(World)
+		 *                      getWorld(World)} or {@link BlockChanger#getWorld(String)
+		 *                      getWorld(String)}
+		 * @param blockPosition using
+		 *                      {@link BlockChanger#newMutableBlockPosition(Location)
+		 *                      newMutableBlockPosition(Location)}
+		 * @param nmsBlockData  {@link BlockChanger#getBlockData(ItemStack)
+		 *                      getBlockData(ItemStack)} or
+		 *                      {@link BlockChanger#getBlockData(Material)
+		 *                      getBlockData(Material)}
+		 * @param x             x coordinate of the block
+		 * @param z             z coordinate of the block
+		 * @param physics       3 = applies physics, 2 = doesn't
+		 *                      <p>
+		 *                      <i>blockPosition</i> can be further modified with new
+		 *                      coordinates using
+		 *                      {@link BlockChanger#setBlockPosition(Object, Object, Object, Object)}
+		 */
+		public void setChunkBlock(Object nmsWorld, Object blockPosition, Object nmsBlockData, int x, int z,
+				boolean physics) {
+			Object chunk = getChunkAt(nmsWorld, x, z);
+			setType(chunk, blockPosition, nmsBlockData, physics);
+			updateBlock(nmsWorld, blockPosition, nmsBlockData, physics);
+		}
+
+		/**
+		 * 
+		 * @param nmsWorld      using {@link BlockChanger#getWorld(World)
+		 *                      getWorld(World)} or {@link BlockChanger#getWorld(String)
+		 *                      getWorld(String)}
+		 * @param blockPosition using
+		 *                      {@link BlockChanger#newMutableBlockPosition(Location)
+		 *                      newMutableBlockPosition(Location)}
+		 * @param nmsBlockData  {@link BlockChanger#getBlockData(ItemStack)
+		 *                      getBlockData(ItemStack)} or
+		 *                      {@link BlockChanger#getBlockData(Material)
+		 *                      getBlockData(Material)}
+		 * @param x             x coordinate of the block
+		 * @param y             y coordinate of the block
+		 * @param z             z coordinate of the block
+		 * @param physics       3 = applies physics, 2 = doesn't
+		 *                      <p>
+		 *                      <i>blockPosition</i> can be further modified with new
+		 *                      coordinates using
+		 *                      {@link BlockChanger#setBlockPosition(Object, Object, Object, Object)}
+		 */
+		public void setSectionBlock(Object nmsWorld, Object blockPosition, Object nmsBlockData, int x, int y, int z,
+				boolean physics) {
+			Object nmsChunk = getChunkAt(nmsWorld, x, z);
+			int j = x & 15;
+			int k = y & 15;
+			int l = z & 15;
+			Object[] sections = getSections(nmsChunk);
+			Object section = getSection(nmsChunk, sections, y);
+			setTypeChunkSection(section, j, k, l, nmsBlockData);
+			updateBlock(nmsWorld, blockPosition, nmsWorld, physics);
+		}
+
+	}
+
+	/**
+	 * Walks the sections covered by a cuboid. Chunks are visited along x, then z,
+	 * and their sections from bottom to top, so every chunk and every section is
+	 * looked up once no matter how many blocks of the cuboid it holds.
+	 * <p>
+	 * The chunk and section are resolved lazily, which lets the cursor be used to
+	 * only split a cuboid into section sized pieces.
+	 * </p>
+	 */
+	private static class SectionCursor {
+
+		private final Object nmsWorld;
+		private final int minX, minY, minZ, maxX, maxY, maxZ;
+		private final int minChunkZ, minSectionY, maxChunkX, maxChunkZ, maxSectionY;
+		private int chunkX, chunkZ, sectionY;
+		private int fromX, fromY, fromZ, toX, toY, toZ;
+		private Object nmsChunk;
+		private Object[] sections;
+		private Object section;
+
+		public SectionCursor(Object nmsWorld, Location loc1, Location loc2) {
+			this(nmsWorld, loc1.getBlockX(), loc1.getBlockY(), loc1.getBlockZ(), loc2.getBlockX(), loc2.getBlockY(),
+					loc2.getBlockZ());
+		}
+
+		public SectionCursor(Object nmsWorld, int x1, int y1, int z1, int x2, int y2, int z2) {
+			this.nmsWorld = nmsWorld;
+			this.minX = Math.min(x1, x2);
+			this.minY = Math.min(y1, y2);
+			this.minZ = Math.min(z1, z2);
+			this.maxX = Math.max(x1, x2);
+			this.maxY = Math.max(y1, y2);
+			this.maxZ = Math.max(z1, z2);
+			this.minChunkZ = minZ >> 4;
+			this.minSectionY = minY >> 4;
+			this.maxChunkX = maxX >> 4;
+			this.maxChunkZ = maxZ >> 4;
+			this.maxSectionY = maxY >> 4;
+			this.chunkX = minX >> 4;
+			this.chunkZ = minChunkZ;
+			this.sectionY = minSectionY - 1;
+		}
+
+		/**
+		 * Moves to the next section covered by the cuboid.
+		 * 
+		 * @return false if every section has been visited already
+		 */
+		public boolean next() {
+			if (++sectionY > maxSectionY) {
+				sectionY = minSectionY;
+				if (++chunkZ > maxChunkZ) {
+					chunkZ = minChunkZ;
+					if (++chunkX > maxChunkX) return false;
+				}
+				nmsChunk = null;
+			}
+			section = null;
+			fromX = Math.max(minX, chunkX << 4);
+			fromY = Math.max(minY, sectionY << 4);
+			fromZ = Math.max(minZ, chunkZ << 4);
+			toX = Math.min(maxX, (chunkX << 4) | 15);
+			toY = Math.min(maxY, (sectionY << 4) | 15);
+			toZ = Math.min(maxZ, (chunkZ << 4) | 15);
+			return true;
+		}
+
+		public Object getWorld() {
+			return nmsWorld;
+		}
+
+		/**
+		 * Makes the chunk and section be looked up again, for cursors that are
+		 * kept across ticks where the chunk may have been unloaded meanwhile.
+		 */
+		public void forgetChunk() {
+			nmsChunk = null;
+			section = null;
+		}
+
+		public Object getChunk() {
+			if (nmsChunk == null) {
+				nmsChunk = BlockChanger.getChunkAt(nmsWorld, fromX, fromZ);
+				sections = BlockChanger.getSections(nmsChunk);
+			}
+			return nmsChunk;
+		}
+
+		public Object getSection() {
+			if (section == null) section = BlockChanger.getSection(getChunk(), sections, fromY);
+			return section;
+		}
+
+		public Object[] getSections() {
+			getChunk();
+			return sections;
+		}
+
+		/**
+		 * Unlike {@link #getSection()} doesn't create the section if it's missing,
+		 * for reading.
+		 * 
+		 * @return the current section or null if it's empty or outside the world
+		 */
+		public @Nullable Object getExistingSection() {
+			Object[] sections = getSections();
+			int index = getSectionIndex();
+			return index >= 0 && index < sections.length ? sections[index] : null;
+		}
+
+		public int getSectionIndex() {
+			return BLOCK_UPDATER.getSectionIndex(getChunk(), fromY);
+		}
+
+		/**
+		 * @return how many blocks of the cuboid lie within the current chunk
+		 */
+		public int getColumnBlocks() {
+			return (toX - fromX + 1) * (toZ - fromZ + 1) * (maxY - minY + 1);
+		}
+
+		/**
+		 * @return whether the cuboid covers the whole current section
+		 */
+		public boolean isFull() {
+			return toX - fromX == 15 && toY - fromY == 15 && toZ - fromZ == 15;
+		}
+
+		public int getFromX() {
+			return fromX;
+		}
+
+		public int getFromY() {
+			return fromY;
+		}
+
+		public int getFromZ() {
+			return fromZ;
+		}
+
+		public int getToX() {
+			return toX;
+		}
+
+		public int getToY() {
+			return toY;
+		}
+
+		public int getToZ() {
+			return toZ;
+		}
+
+	}
+
+	/**
+	 * How players are told about the blocks changed by the chunk and section
+	 * setters, which don't do it on their own.
+	 */
+	public enum ClientSync {
+
+		/**
+		 * Nothing is sent, players see the old blocks until the chunk is loaded
+		 * again
+		 */
+		NONE,
+		/**
+		 * <i>world.notify(...)</i> is called for every block, which lets the server
+		 * collect and send the changes on its next tick
+		 */
+		NOTIFY,
+		/**
+		 * The changes are collected per section and sent right away as one multi
+		 * block change packet per section, only to the players that are close
+		 * enough to see them. Falls back to {@link #NOTIFY} if the running version
+		 * isn't supported.
+		 */
+		SECTION_PACKETS;
+
+	}
+
+	/**
+	 * How much of the tick an asynchronous change gets while others are running,
+	 * they all share a single budget per tick.
+	 */
+	public enum Priority {
+
+		/**
+		 * Background work such as mine resets
+		 */
+		LOW(1),
+		NORMAL(4),
+		/**
+		 * Changes players are waiting for such as pastes
+		 */
+		HIGH(16);
+
+		private final int weight;
+
+		private Priority(int weight) {
+			this.weight = weight;
+		}
+
+		/**
+		 * @return share of the tick compared to the other priorities
+		 */
+		public int getWeight() {
+			return weight;
+		}
+
+	}
+
+	/**
+	 * Settings of a single change, defaults to no physics and
+	 * {@link ClientSync#NOTIFY}.
+	 * <p>
+	 * {@code new EditOptions().physics(true).clientSync(ClientSync.SECTION_PACKETS)}
+	 * </p>
+	 */
+	public static class EditOptions {
+
+		private boolean physics;
+		private ClientSync clientSync = ClientSync.NOTIFY;
+		private int fullChunkThreshold = -1;
+		private boolean relight;
+		private Priority priority = Priority.NORMAL;
+		private History history;
+		private boolean diff;
+		private LongConsumer changedBlocks;
+
+		/**
+		 * @param physics whether physics such as gravity should be applied or not
+		 * @return this
+		 */
+		public EditOptions physics(boolean physics) {
+			this.physics = physics;
+			return this;
+		}
+
+		/**
+		 * @param clientSync how players are told about the changed blocks
+		 * @return this
+		 */
+		public EditOptions clientSync(ClientSync clientSync) {
+			this.clientSync = clientSync;
+			return this;
+		}
+
+		/**
+		 * Chunks with at least this many changed blocks are sent to the players as
+		 * a whole instead of block by block.
+		 * 
+		 * @param fullChunkThreshold changed blocks of a single chunk, -1 to use
+		 *                           {@link BlockChanger#estimateFullChunkThreshold(World)}
+		 *                           and {@link Integer#MAX_VALUE} to never send
+		 *                           whole chunks
+		 * @return this
+		 */
+		public EditOptions fullChunkThreshold(int fullChunkThreshold) {
+			this.fullChunkThreshold = fullChunkThreshold;
+			return this;
+		}
+
+		/**
+		 * The chunk and section setters don't update lighting, so changed areas
+		 * stay dark or wrongly lit unless they are relit afterwards.
+		 * 
+		 * @param relight whether the light of every changed section should be
+		 *                recalculated once the change is done, see
+		 *                {@link BlockChanger#relight(Location, Location)}
+		 * @return this
+		 */
+		public EditOptions relight(boolean relight) {
+			this.relight = relight;
+			return this;
+		}
+
+		/**
+		 * @param priority share of the tick this change gets while other
+		 *                 asynchronous changes are running
+		 * @return this
+		 */
+		public EditOptions priority(Priority priority) {
+			this.priority = priority;
+			return this;
+		}
+
+		/**
+		 * Records the blocks that were there before, so the change can be undone.
+		 * Only the chunk and section setters, schematics and clipboards record.
+		 * 
+		 * @param history where the change is recorded, null to not record it
+		 * @return this
+		 */
+		public EditOptions history(@Nullable History history) {
+			this.history = history;
+			return this;
+		}
+
+		/**
+		 * Reads every block before setting it and skips the ones that already are
+		 * what they'd be set to, along with their tile entity check, notification
+		 * and light. Only the changed blocks are sent to the players, chunks are
+		 * no longer sent as a whole for the number of blocks the cuboid covers.
+		 * <p>
+		 * Applies to the chunk and section setters, patterns, replace, schematics
+		 * and clipboards. Replace sets the matching blocks one by one then, instead
+		 * of remapping whole section palettes. Up to 1.7 every block is set.
+		 * </p>
+		 * 
+		 * @param diff whether to skip the blocks that wouldn't change
+		 * @return this
+		 */
+		public EditOptions diff(boolean diff) {
+			this.diff = diff;
+			return this;
+		}
+
+		/**
+		 * Same as {@link #diff(boolean)} turned on.
+		 * 
+		 * @param changedBlocks told how many blocks were actually changed once the
+		 *                      change is done, on the main thread
+		 * @return this
+		 */
+		public EditOptions diff(@Nullable LongConsumer changedBlocks) {
+			this.diff = true;
+			this.changedBlocks = changedBlocks;
+			return this;
+		}
+
+		public boolean isPhysics() {
+			return physics;
+		}
+
+		public ClientSync getClientSync() {
+			return clientSync;
+		}
+
+		public int getFullChunkThreshold() {
+			return fullChunkThreshold;
+		}
+
+		public boolean isRelight() {
+			return relight;
+		}
+
+		public Priority getPriority() {
+			return priority;
+		}
+
+		public @Nullable History getHistory() {
+			return history;
+		}
+
+		public boolean isDiff() {
+			return diff;
+		}
+
+		public @Nullable LongConsumer getChangedBlocks() {
+			return changedBlocks;
+		}
+
+	}
+
+	/**
+	 * Blocks copied from a cuboid by {@link BlockChanger#copyRegion(Location, Location)}.
+	 * Each distinct block data gets an entry in a palette and every block is
+	 * stored as an index into it, so a region of a single block takes a bit per
+	 * block. The indices are packed in pages of 4096 blocks, each into as few bits
+	 * as its own indices need, and a page is only repacked once an index that
+	 * doesn't fit is set into it, so a growing palette never repacks the whole
+	 * clipboard at once.
+	 * <p>
+	 * Blocks are stored in y, z, x order relative to the lowest corner of the
+	 * copied cuboid.
+	 * </p>
+	 */
+	public static final class Clipboard {
+
+		private static final int PAGE_SIZE = 4096;
+		private final int width, height, length;
+		private final List<Object> palette = new ArrayList<>();
+		private final Map<Object, Integer> paletteIndices = new IdentityHashMap<>();
+		private final int[] bits;
+		private final long[][] data;
+		private Object lastBlockData;
+		private int lastIndex;
+
+		private Clipboard(int width, int height, int length) {
+			if ((long) width * height * length > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("The region is too big to be copied!");
+			this.width = width;
+			this.height = height;
+			this.length = length;
+			int pages = (int) (((long) width * height * length + PAGE_SIZE - 1) / PAGE_SIZE);
+			this.bits = new int[pages];
+			this.data = new long[pages][];
+			for (int page = 0; page < pages; page++) {
+				bits[page] = 1;
+				data[page] = new long[dataLength(getPageVolume(page), 1)];
+			}
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		public int getLength() {
+			return length;
+		}
+
+		/**
+		 * @return how many distinct block data were copied
+		 */
+		public int getPaletteSize() {
+			return palette.size();
+		}
+
+		/**
+		 * @param x from 0 to the width, exclusive
+		 * @param y from 0 to the height, exclusive
+		 * @param z from 0 to the length, exclusive
+		 * @return nms block data copied at the given position
+		 */
+		public Object getBlockData(int x, int y, int z) {
+			if (x < 0 || y < 0 || z < 0 || x >= width || y >= height || z >= length)
+				throw new IndexOutOfBoundsException("Position outside of the clipboard: " + x + ", " + y + ", " + z);
+			return palette.get(get((y * length + z) * width + x));
+		}
+
+		/**
+		 * @return combined id of the block data copied at the given position
+		 * @see #getBlockData(int, int, int)
+		 */
+		public int getStateId(int x, int y, int z) {
+			return BlockChanger.getStateId(getBlockData(x, y, z));
+		}
+
+		private Object getPaletteEntry(int paletteIndex) {
+			return palette.get(paletteIndex);
+		}
+
+		private int get(int index) {
+			int page = index / PAGE_SIZE;
+			int bits = this.bits[page];
+			int perLong = 64 / bits;
+			index %= PAGE_SIZE;
+			return (int) (data[page][index / perLong] >>> (index % perLong * bits) & (1L << bits) - 1);
+		}
+
+		private void set(int index, int paletteIndex) {
+			int page = index / PAGE_SIZE;
+			if (paletteIndex >> bits[page] != 0) resize(page, 32 - Integer.numberOfLeadingZeros(paletteIndex));
+			int bits = this.bits[page];
+			int perLong = 64 / bits;
+			index %= PAGE_SIZE;
+			int shift = index % perLong * bits;
+			long mask = (1L << bits) - 1 << shift;
+			long[] data = this.data[page];
+			int word = index / perLong;
+			data[word] = data[word] & ~mask | (long) paletteIndex << shift;
+		}
+
+		private void set(int index, Object blockData) {
+			if (blockData != lastBlockData) {
+				Integer paletteIndex = paletteIndices.get(blockData);
+				if (paletteIndex == null) paletteIndex = addPaletteEntry(blockData);
+				lastBlockData = blockData;
+				lastIndex = paletteIndex;
+			}
+			set(index, lastIndex);
+		}
+
+		private int addPaletteEntry(Object blockData) {
+			int paletteIndex = palette.size();
+			palette.add(blockData);
+			paletteIndices.put(blockData, paletteIndex);
+			return paletteIndex;
+		}
+
+		private int getPageVolume(int page) {
+			return Math.min(PAGE_SIZE, width * height * length - page * PAGE_SIZE);
+		}
+
+		/**
+		 * Repacks the indices of a single page
+		 */
+		private void resize(int page, int newBits) {
+			int volume = getPageVolume(page);
+			int offset = page * PAGE_SIZE;
+			long[] newData = new long[dataLength(volume, newBits)];
+			int perLong = 64 / newBits;
+			for (int i = 0; i < volume; i++)
+				newData[i / perLong] |= (long) get(offset + i) << (i % perLong * newBits);
+			data[page] = newData;
+			bits[page] = newBits;
+		}
+
+		private static int dataLength(int volume, int bits) {
+			int perLong = 64 / bits;
+			return (volume + perLong - 1) / perLong;
+		}
+
+	}
+
+	/**
+	 * Weighted mix of blocks to fill with, such as 60% stone, 30% coal ore and
+	 * 10% iron ore. Block data is looked up as entries are added and the weights
+	 * are turned into an alias table on the first fill, so drawing a block costs
+	 * two random numbers and no allocation.
+	 * <p>
+	 * Every fill draws from its own random, seeded with {@link #seed(long)} if
+	 * given. Fills of the same cuboid with the same seed are the same whether
+	 * they're done at once or spread over ticks.
+	 * </p>
+	 */
+	public static final class BlockPattern {
+
+		private final List<Object> states = new ArrayList<>();
+		private final List<Double> weights = new ArrayList<>();
+		private Long seed;
+		private volatile PatternTable table;
+
+		/**
+		 * @param material block to add
+		 * @param weight   relative chance of the block, any positive number
+		 * @return this
+		 * @throws IllegalArgumentException if material is not perceived as a block
+		 *                                  material or the weight isn't positive
+		 */
+		public BlockPattern add(Material material, double weight) {
+			if (!material.isBlock()) throw new IllegalArgumentException("The specified material is not a placeable block!");
+			Object blockData = getBlockData(material);
+			if (blockData == null)
+				throw new NullPointerException("Unable to retrieve block data for the corresponding material.");
+			return add(blockData, weight);
+		}
+
+		/**
+		 * @param itemStack block to add
+		 * @param weight    relative chance of the block, any positive number
+		 * @return this
+		 * @throws IllegalArgumentException if the weight isn't positive
+		 */
+		public BlockPattern add(ItemStack itemStack, double weight) {
+			return add(getBlockData(itemStack), weight);
+		}
+
+		private synchronized BlockPattern add(Object blockData, double weight) {
+			if (!(weight > 0) || Double.isInfinite(weight))
+				throw new IllegalArgumentException("Weights must be positive: " + weight);
+			states.add(blockData);
+			weights.add(weight);
+			table = null;
+			return this;
+		}
+
+		/**
+		 * @param seed seed of the random every fill starts from
+		 * @return this
+		 */
+		public BlockPattern seed(long seed) {
+			this.seed = seed;
+			return this;
+		}
+
+		private SplittableRandom newRandom() {
+			Long seed = this.seed;
+			return seed == null ? new SplittableRandom() : new SplittableRandom(seed);
+		}
+
+		private PatternTable getTable() {
+			PatternTable table = this.table;
+			if (table == null) {
+				synchronized (this) {
+					if (states.isEmpty()) throw new IllegalStateException("The pattern has no blocks!");
+					table = this.table = new PatternTable(states, weights);
+				}
+			}
+			return table;
+		}
+
+	}
+
+	/**
+	 * Blocks of the part of a cuboid within one section, copied on the main
+	 * thread by {@link BlockChanger#takeSnapshot(Location, Location)}. Like a
+	 * {@link Clipboard} it keeps a palette of the block data it saw and an index
+	 * per block, nothing at all for a section of a single block. It never changes
+	 * so it can be read from any thread.
+	 */
+	public static final class SectionSnapshot {
+
+		private final World world;
+		private final int chunkX, sectionY, chunkZ;
+		private final int minX, minY, minZ, maxX, maxY, maxZ;
+		private final Object[] palette;
+		private final int bits;
+		private final long[] data;
+		/**
+		 * Whether every palette entry is used within the copied part, a palette
+		 * copied as a whole may hold old or repeated entries
+		 */
+		private final boolean exactPalette;
+
+		private SectionSnapshot(World world, SectionCursor cursor, Object[] palette, int bits, long[] data,
+				boolean exactPalette) {
+			this.world = world;
+			this.chunkX = cursor.getFromX() >> 4;
+			this.sectionY = cursor.getFromY() >> 4;
+			this.chunkZ = cursor.getFromZ() >> 4;
+			this.minX = cursor.getFromX();
+			this.minY = cursor.getFromY();
+			this.minZ = cursor.getFromZ();
+			this.maxX = cursor.getToX();
+			this.maxY = cursor.getToY();
+			this.maxZ = cursor.getToZ();
+			this.palette = palette;
+			this.bits = bits;
+			this.data = data;
+			this.exactPalette = exactPalette;
+		}
+
+		public World getWorld() {
+			return world;
+		}
+
+		public int getChunkX() {
+			return chunkX;
+		}
+
+		/**
+		 * @return y of the section (block y >> 4)
+		 */
+		public int getSectionY() {
+			return sectionY;
+		}
+
+		public int getChunkZ() {
+			return chunkZ;
+		}
+
+		/**
+		 * @return how many blocks of the cuboid lie within the section
+		 */
+		public int getVolume() {
+			return (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+		}
+
+		/**
+		 * @return whether the position lies within the part of the cuboid that was
+		 *         copied
+		 */
+		public boolean contains(int x, int y, int z) {
+			return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+		}
+
+		/**
+		 * @param x world x
+		 * @param y world y
+		 * @param z world z
+		 * @return nms block data copied at the given position
+		 * @throws IndexOutOfBoundsException if the position wasn't copied
+		 */
+		public Object getBlockData(int x, int y, int z) {
+			if (!contains(x, y, z))
+				throw new IndexOutOfBoundsException("Position outside of the snapshot: " + x + ", " + y + ", " + z);
+			return palette[get((y & 15) << 8 | (z & 15) << 4 | x & 15)];
+		}
+
+		/**
+		 * Mostly only looks at the palette.
+		 * 
+		 * @return whether any copied block is the given nms block data
+		 */
+		public boolean contains(Object blockData) {
+			if (indexOf(blockData) < 0) return false;
+			return exactPalette || find(blockData) != null;
+		}
+
+		/**
+		 * @return how many copied blocks are the given nms block data
+		 */
+		public long count(Object blockData) {
+			if (indexOf(blockData) < 0) return 0;
+			long[] counts = countPaletteIndices();
+			long count = 0;
+			for (int i = 0; i < palette.length; i++) if (palette[i] == blockData) count += counts[i];
+			return count;
+		}
+
+		/**
+		 * @return how many copied blocks there are of each nms block data
+		 */
+		public Map<Object, Long> getBlockCounts() {
+			Map<Object, Long> blockCounts = new IdentityHashMap<>();
+			addBlockCounts(blockCounts);
+			return blockCounts;
+		}
+
+		private void addBlockCounts(Map<Object, Long> blockCounts) {
+			long[] counts = countPaletteIndices();
+			for (int i = 0; i < palette.length; i++) {
+				if (counts[i] != 0) blockCounts.merge(palette[i], counts[i], Long::sum);
+			}
+		}
+
+		/**
+		 * @return first position of the given nms block data in y, z, x order or
+		 *         null if there's none
+		 */
+		public @Nullable Location find(Object blockData) {
+			if (indexOf(blockData) < 0) return null;
+			for (int y = minY; y <= maxY; y++) {
+				for (int z = minZ; z <= maxZ; z++) {
+					for (int x = minX; x <= maxX; x++) {
+						if (palette[get((y & 15) << 8 | (z & 15) << 4 | x & 15)] == blockData)
+							return new Location(world, x, y, z);
+					}
+				}
+			}
+			return null;
+		}
+
+		private int indexOf(Object blockData) {
+			for (int i = 0; i < palette.length; i++) if (palette[i] == blockData) return i;
+			return -1;
+		}
+
+		/**
+		 * Whole sections are counted a long at a time, only the copied part of the
+		 * others is read.
+		 */
+		private long[] countPaletteIndices() {
+			long[] counts = new long[palette.length];
+			if (data == null) {
+				counts[0] = getVolume();
+			} else if (getVolume() == 4096) {
+				int perLong = 64 / bits;
+				long mask = (1L << bits) - 1;
+				int remaining = 4096;
+				for (long word : data) {
+					for (int i = 0; i < perLong && remaining > 0; i++, remaining--) {
+						counts[(int) (word & mask)]++;
+						word >>>= bits;
+					}
+				}
+			} else {
+				for (int y = minY; y <= maxY; y++) {
+					for (int z = minZ; z <= maxZ; z++) {
+						for (int x = minX; x <= maxX; x++) counts[get((y & 15) << 8 | (z & 15) << 4 | x & 15)]++;
+					}
+				}
+			}
+			return counts;
+		}
+
+		private int get(int index) {
+			if (data == null) return 0;
+			int perLong = 64 / bits;
+			return (int) (data[index / perLong] >>> (index % perLong * bits) & (1L << bits) - 1);
+		}
+
+	}
+
+	/**
+	 * Every section a cuboid crosses, copied on the main thread by
+	 * {@link BlockChanger#takeSnapshot(Location, Location)} so the cuboid can be
+	 * queried from any thread.
+	 */
+	public static final class RegionSnapshot {
+
+		private final List<SectionSnapshot> sections;
+
+		private RegionSnapshot(List<SectionSnapshot> sections) {
+			this.sections = Collections.unmodifiableList(sections);
+		}
+
+		/**
+		 * @return sections in the order the section setters walk them in
+		 */
+		public List<SectionSnapshot> getSections() {
+			return sections;
+		}
+
+		/**
+		 * @return whether any block of the cuboid is one of the given nms block
+		 *         data, only looking at the palettes
+		 */
+		public boolean containsAny(Object... blockData) {
+			for (SectionSnapshot section : sections) {
+				for (Object target : blockData) if (section.contains(target)) return true;
+			}
+			return false;
+		}
+
+		/**
+		 * @return how many blocks of the cuboid are the given nms block data
+		 */
+		public long count(Object blockData) {
+			long count = 0;
+			for (SectionSnapshot section : sections) count += section.count(blockData);
+			return count;
+		}
+
+		/**
+		 * @return how many blocks of the cuboid there are of each nms block data
+		 */
+		public Map<Object, Long> getBlockCounts() {
+			Map<Object, Long> blockCounts = new IdentityHashMap<>();
+			for (SectionSnapshot section : sections) section.addBlockCounts(blockCounts);
+			return blockCounts;
+		}
+
+		/**
+		 * @return first position of the given nms block data, section by section,
+		 *         or null if there's none
+		 */
+		public @Nullable Location find(Object blockData) {
+			for (SectionSnapshot section : sections) {
+				Location location = section.find(blockData);
+				if (location != null) return location;
+			}
+			return null;
+		}
+
+		/**
+		 * Same as {@link #scan(ForkJoinPool, Object, Function, BinaryOperator)} on
+		 * the common pool.
+		 */
+		public <R> R scan(R identity, Function<SectionSnapshot, R> mapper, BinaryOperator<R> combiner) {
+			return scan(ForkJoinPool.commonPool(), identity, mapper, combiner);
+		}
+
+		/**
+		 * Maps every section on the threads of a fork join pool and combines the
+		 * results, for analysis too heavy for the main thread such as diffing or
+		 * hashing a region. The sections are split in halves until a task holds a
+		 * single section.
+		 * <p>
+		 * Results are combined in section order, so the combiner only has to be
+		 * associative.
+		 * </p>
+		 * 
+		 * @param pool     pool to run on, the calling thread waits for it
+		 * @param identity result of a region without sections
+		 * @param mapper   turns a section into a result, called from any thread
+		 * @param combiner combines the results of two halves
+		 * @return the combined result
+		 */
+		public <R> R scan(ForkJoinPool pool, R identity, Function<SectionSnapshot, R> mapper,
+				BinaryOperator<R> combiner) {
+			if (sections.isEmpty()) return identity;
+			return pool.invoke(new SectionScanTask<>(sections, 0, sections.size(), mapper, combiner));
+		}
+
+		/**
+		 * Same as {@link #scan(ForkJoinPool, Object, Function, BinaryOperator)}
+		 * without waiting for the pool.
+		 * 
+		 * @return completes with the combined result on a thread of the pool
+		 */
+		public <R> CompletableFuture<R> scanAsynchronously(ForkJoinPool pool, R identity,
+				Function<SectionSnapshot, R> mapper, BinaryOperator<R> combiner) {
+			return CompletableFuture.supplyAsync(() -> scan(pool, identity, mapper, combiner), pool);
+		}
+
+	}
+
+	/**
+	 * A cuboid whose blocks broken and placed by players are remembered, so
+	 * resetting it, like a mine, only sets those blocks again. Created by
+	 * {@link BlockChanger#trackRegion(Location, Location)}.
+	 * <p>
+	 * Positions are kept as a bit per block of each section that was touched, 512
+	 * bytes per section, in a map of its own keyed by primitive section keys. A
+	 * block event on a section that was touched already allocates nothing.
+	 * </p>
+	 * <p>
+	 * It's meant to be used from the main thread, where the events come from.
+	 * </p>
+	 */
+	public static final class TrackedRegion {
+
+		private final UUID worldId;
+		private final int minX, minY, minZ, maxX, maxY, maxZ;
+		private long[] keys = new long[16];
+		private long[][] sections = new long[16][];
+		private int sectionCount;
+		private long trackedBlocks;
+
+		private TrackedRegion(Location loc1, Location loc2) {
+			this.worldId = loc1.getWorld().getUID();
+			this.minX = Math.min(loc1.getBlockX(), loc2.getBlockX());
+			this.minY = Math.min(loc1.getBlockY(), loc2.getBlockY());
+			this.minZ = Math.min(loc1.getBlockZ(), loc2.getBlockZ());
+			this.maxX = Math.max(loc1.getBlockX(), loc2.getBlockX());
+			this.maxY = Math.max(loc1.getBlockY(), loc2.getBlockY());
+			this.maxZ = Math.max(loc1.getBlockZ(), loc2.getBlockZ());
+		}
+
+		public UUID getWorldId() {
+			return worldId;
+		}
+
+		/**
+		 * @return how many positions were marked since the last reset
+		 */
+		public long getTrackedBlocks() {
+			return trackedBlocks;
+		}
+
+		/**
+		 * @return how many sections hold marked positions
+		 */
+		public int getTrackedSections() {
+			return sectionCount;
+		}
+
+		public boolean contains(int x, int y, int z) {
+			return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+		}
+
+		public boolean isMarked(int x, int y, int z) {
+			if (!contains(x, y, z)) return false;
+			long[] bits = getBits(x >> 4, y >> 4, z >> 4, false);
+			int index = (y & 15) << 8 | (z & 15) << 4 | x & 15;
+			return bits != null && (bits[index >>> 6] & 1L << index) != 0;
+		}
+
+		/**
+		 * Marks a position changed by something else than players breaking or
+		 * placing blocks, positions outside of the cuboid are ignored.
+		 */
+		public void mark(int x, int y, int z) {
+			if (!contains(x, y, z)) return;
+			long[] bits = getBits(x >> 4, y >> 4, z >> 4, true);
+			int index = (y & 15) << 8 | (z & 15) << 4 | x & 15;
+			long bit = 1L << index;
+			if ((bits[index >>> 6] & bit) != 0) return;
+			bits[index >>> 6] |= bit;
+			trackedBlocks++;
+		}
+
+		/**
+		 * Forgets every marked position.
+		 */
+		public void clear() {
+			keys = new long[16];
+			sections = new long[16][];
+			sectionCount = 0;
+			trackedBlocks = 0;
+		}
+
+		/**
+		 * Stops marking the blocks players break and place, what was marked so far
+		 * can still be reset.
+		 */
+		public void untrack() {
+			REGION_TRACKER.remove(this);
+		}
+
+		/**
+		 * Sets every marked position to a block drawn from the pattern with the
+		 * section setter and forgets them.
+		 * 
+		 * @param pattern blocks to draw from
+		 * @param options physics, client sync and lighting of this change
+		 * @return completes once the positions are relit, right away if they aren't
+		 * @throws IllegalStateException if the world isn't loaded or the pattern has
+		 *                               no blocks
+		 */
+		public CompletableFuture<Void> reset(BlockPattern pattern, EditOptions options) {
+			PatternTable table = pattern.getTable();
+			SplittableRandom random = pattern.newRandom();
+			return reset((x, y, z) -> table.next(random), options, false);
+		}
+
+		/**
+		 * Sets every marked position back to the block a clipboard copied there
+		 * with the section setter and forgets them. The clipboard is placed at the
+		 * lowest corner of the cuboid, positions it doesn't cover are left as they
+		 * are.
+		 * 
+		 * @param clipboard blocks of the cuboid, as copied by
+		 *                  {@link BlockChanger#copyRegion(Location, Location)}
+		 * @param options   physics, client sync and lighting of this change
+		 * @return completes once the positions are relit, right away if they aren't
+		 * @throws IllegalStateException if the world isn't loaded
+		 */
+		public CompletableFuture<Void> reset(Clipboard clipboard, EditOptions options) {
+			return reset(clipboardBlocks(clipboard), options, false);
+		}
+
+		/**
+		 * Same as {@link #reset(BlockPattern, EditOptions)} a section per call
+		 * spread over ticks.
+		 * 
+		 * @return completes once every position is set and relit if needed
+		 */
+		public CompletableFuture<Void> resetAsynchronously(BlockPattern pattern, EditOptions options) {
+			PatternTable table = pattern.getTable();
+			SplittableRandom random = pattern.newRandom();
+			return reset((x, y, z) -> table.next(random), options, true);
+		}
+
+		/**
+		 * Same as {@link #reset(Clipboard, EditOptions)} a section per call spread
+		 * over ticks.
+		 * 
+		 * @return completes once every position is set and relit if needed
+		 */
+		public CompletableFuture<Void> resetAsynchronously(Clipboard clipboard, EditOptions options) {
+			return reset(clipboardBlocks(clipboard), options, true);
+		}
+
+		private TrackedBlocks clipboardBlocks(Clipboard clipboard) {
+			return (x, y, z) -> {
+				int relativeX = x - minX, relativeY = y - minY, relativeZ = z - minZ;
+				if (relativeX >= clipboard.getWidth() || relativeY >= clipboard.getHeight()
+						|| relativeZ >= clipboard.getLength())
+					return null;
+				return clipboard.getPaletteEntry(clipboard
+						.get((relativeY * clipboard.getLength() + relativeZ) * clipboard.getWidth() + relativeX));
+			};
+		}
+
+		/**
+		 * The marked positions are taken out first, so positions marked while a
+		 * spread reset runs are kept for the next one.
+		 */
+		private CompletableFuture<Void> reset(TrackedBlocks blocks, EditOptions options, boolean spread) {
+			World world = Bukkit.getWorld(worldId);
+			if (world == null) throw new IllegalStateException("The world of this region isn't loaded!");
+			long[] resetKeys = keys;
+			long[][] resetSections = sections;
+			clear();
+			Edit edit = new Edit(world, options);
+			if (!spread) {
+				for (int i = 0; i < resetSections.length; i++) {
+					if (resetSections[i] != null) resetSection(edit, resetKeys[i], resetSections[i], blocks);
+				}
+				return edit.finish();
+			}
+			CompletableFuture<Void> workloadFinishFuture = new CompletableFuture<>();
+			WorkloadJob workloadJob = new WorkloadJob(options.getPriority());
+			int[] next = new int[1];
+			workloadJob.addWorkload(() -> {
+				while (next[0] < resetSections.length && resetSections[next[0]] == null) next[0]++;
+				if (next[0] == resetSections.length) return true;
+				resetSection(edit, resetKeys[next[0]], resetSections[next[0]], blocks);
+				next[0]++;
+				return false;
+			});
+			workloadJob.whenComplete(
+					() -> edit.finish().whenComplete((result, e) -> workloadFinishFuture.complete(null)));
+			WORKLOAD_RUNNABLE.submit(workloadJob);
+			return workloadFinishFuture;
+		}
+
+		private static void resetSection(Edit edit, long key, long[] bits, TrackedBlocks blocks) {
+			long chunkKey = key >>> 20;
+			int chunkX = BlockChanger.chunkKeyX(chunkKey);
+			int chunkZ = BlockChanger.chunkKeyZ(chunkKey);
+			int sectionY = (int) key << 12 >> 12;
+			Object nmsWorld = edit.getWorld();
+			Object blockPosition = edit.getBlockPosition();
+			Object nmsChunk = BlockChanger.getChunkAt(nmsWorld, chunkX << 4, chunkZ << 4);
+			Object section = BlockChanger.getSection(nmsChunk, BlockChanger.getSections(nmsChunk), sectionY << 4);
+			for (int word = 0; word < bits.length; word++) {
+				long remaining = bits[word];
+				while (remaining != 0) {
+					int index = word << 6 | Long.numberOfTrailingZeros(remaining);
+					remaining &= remaining - 1;
+					int x = chunkX << 4 | index & 15;
+					int y = sectionY << 4 | index >>> 8;
+					int z = chunkZ << 4 | index >>> 4 & 15;
+					Object blockData = blocks.get(x, y, z);
+					if (blockData == null) continue;
+					Object previous = BlockChanger.getTypeChunkSection(section, x & 15, y & 15, z & 15);
+					if (edit.blockUnchanged(previous, blockData)) continue;
+					edit.blockChanging(x, y, z, previous);
+					BlockChanger.setBlockPosition(blockPosition, x, y, z);
+					BlockChanger.removeIfTileEntity(nmsWorld, blockPosition);
+					BlockChanger.setTypeChunkSection(section, x & 15, y & 15, z & 15, blockData);
+					edit.blockChanged(x, y, z, blockData);
+				}
+			}
+		}
+
+		/**
+		 * Open addressing on the section keys, the bits of a slot being null marks
+		 * it empty.
+		 */
+		private @Nullable long[] getBits(int chunkX, int sectionY, int chunkZ, boolean create) {
+			long key = BlockChanger.sectionKey(chunkX, sectionY, chunkZ);
+			int mask = keys.length - 1;
+			int slot = slot(key, mask);
+			while (sections[slot] != null) {
+				if (keys[slot] == key) return sections[slot];
+				slot = slot + 1 & mask;
+			}
+			if (!create) return null;
+			long[] bits = new long[64];
+			keys[slot] = key;
+			sections[slot] = bits;
+			if (++sectionCount * 2 > keys.length) grow();
+			return bits;
+		}
+
+		private void grow() {
+			long[] oldKeys = keys;
+			long[][] oldSections = sections;
+			keys = new long[oldKeys.length << 1];
+			sections = new long[oldKeys.length << 1][];
+			int mask = keys.length - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldSections[i] == null) continue;
+				int slot = slot(oldKeys[i], mask);
+				while (sections[slot] != null) slot = slot + 1 & mask;
+				keys[slot] = oldKeys[i];
+				sections[slot] = oldSections[i];
+			}
+		}
+
+		private static int slot(long key, int mask) {
+			long hash = key * 0x9E3779B97F4A7C15L;
+			return (int) (hash ^ hash >>> 32) & mask;
+		}
+
+	}
+
+	/**
+	 * Undo and redo history of the changes made with
+	 * {@link EditOptions#history(History)}.
+	 * <p>
+	 * A change records the block each position held before it was first set, per
+	 * section as a palette and packed indices like a {@link Clipboard}. Sections
+	 * are deflated once the change leaves them. When the recorded changes take
+	 * more than the memory budget, the oldest ones are written to the spill
+	 * folder and read back when they're undone.
+	 * </p>
+	 * <p>
+	 * Undoing a change sets the recorded blocks back with the section setter and
+	 * records what it replaced, which is what redoing it sets again. A new
+	 * change clears what could be redone.
+	 * </p>
+	 * <p>
+	 * Undos and redos run one after another, each starts once the one before it
+	 * and the changes still recording into the history are done, so changes are
+	 * always replayed newest first. Spilling is done off the main thread.
+	 * </p>
+	 */
+	public static final class History {
+
+		private final int maxChanges;
+		private final long memoryBudget;
+		private final File spillFolder;
+		private final Deque<HistoryEntry> undoEntries = new ArrayDeque<>();
+		private final Deque<HistoryEntry> redoEntries = new ArrayDeque<>();
+		/**
+		 * Changes recording into this history whose entry isn't added yet
+		 */
+		private final Set<CompletableFuture<Void>> recordingChanges = new HashSet<>();
+		/**
+		 * Completes once the last undo or redo is done
+		 */
+		private CompletableFuture<?> lastReplay = CompletableFuture.completedFuture(null);
+		private long memoryBytes;
+		private boolean spilling;
+
+		/**
+		 * Spills to the <i>history</i> folder within the plugin data folder.
+		 * 
+		 * @param maxChanges   how many changes can be undone
+		 * @param memoryBudget bytes the recorded changes may take in memory
+		 */
+		public History(int maxChanges, long memoryBudget) {
+			this(maxChanges, memoryBudget, new File(PLUGIN.getDataFolder(), "history"));
+		}
+
+		/**
+		 * @param maxChanges   how many changes can be undone
+		 * @param memoryBudget bytes the recorded changes may take in memory
+		 * @param spillFolder  where changes over the budget are written to
+		 */
+		public History(int maxChanges, long memoryBudget, File spillFolder) {
+			if (CHUNK_SECTION_GET_TYPE == null || GET_COMBINED_ID == null)
+				throw new UnsupportedOperationException("History can only be recorded on 1.8+");
+			this.maxChanges = maxChanges;
+			this.memoryBudget = memoryBudget;
+			this.spillFolder = spillFolder;
+		}
+
+		public synchronized int getUndoSize() {
+			return undoEntries.size();
+		}
+
+		public synchronized int getRedoSize() {
+			return redoEntries.size();
+		}
+
+		/**
+		 * @return bytes the recorded changes that weren't spilled take
+		 */
+		public synchronized long getMemoryBytes() {
+			return memoryBytes;
+		}
+
+		/**
+		 * @return completes with false if there's nothing to undo, exceptionally if
+		 *         the world of the change isn't loaded or it couldn't be read back,
+		 *         the change is kept to be undone later then unless only some of
+		 *         its sections couldn't be read
+		 */
+		public CompletableFuture<Boolean> undo() {
+			return undo(new EditOptions());
+		}
+
+		/**
+		 * @param options physics, client sync and lighting while undoing, its
+		 *                history is ignored
+		 * @return completes with false if there's nothing to undo
+		 * @see #undo()
+		 */
+		public CompletableFuture<Boolean> undo(EditOptions options) {
+			return replay(false, options);
+		}
+
+		/**
+		 * @return completes with false if there's nothing to redo
+		 * @see #undo()
+		 */
+		public CompletableFuture<Boolean> redo() {
+			return redo(new EditOptions());
+		}
+
+		/**
+		 * @param options physics, client sync and lighting while redoing, its
+		 *                history is ignored
+		 * @return completes with false if there's nothing to redo
+		 * @see #undo(EditOptions)
+		 */
+		public CompletableFuture<Boolean> redo(EditOptions options) {
+			return replay(true, options);
+		}
+
+		/**
+		 * Forgets every recorded change and deletes its spilled files.
+		 */
+		public synchronized void clear() {
+			undoEntries.forEach(HistoryEntry::delete);
+			redoEntries.forEach(HistoryEntry::delete);
+			undoEntries.clear();
+			redoEntries.clear();
+			memoryBytes = 0;
+		}
+
+		/**
+		 * Waits for the replay before it and the changes still recording, otherwise
+		 * their sections could be set in the wrong order or an older change popped.
+		 */
+		private CompletableFuture<Boolean> replay(boolean redo, EditOptions options) {
+			CompletableFuture<Boolean> replayFuture = new CompletableFuture<>();
+			List<CompletableFuture<?>> before;
+			synchronized (this) {
+				before = new ArrayList<>(recordingChanges);
+				before.add(lastReplay);
+				lastReplay = replayFuture;
+			}
+			CompletableFuture.allOf(before.toArray(new CompletableFuture<?>[0])).whenComplete((result, e) -> {
+				try {
+					startReplay(redo, options, replayFuture);
+				} catch (Throwable failure) {
+					replayFuture.completeExceptionally(failure);
+				}
+			});
+			return replayFuture;
+		}
+
+		private void startReplay(boolean redo, EditOptions options, CompletableFuture<Boolean> replayFuture) {
+			HistoryEntry entry;
+			synchronized (this) {
+				entry = (redo ? redoEntries : undoEntries).pollLast();
+				if (entry != null) memoryBytes -= entry.getMemoryBytes();
+			}
+			if (entry == null) {
+				replayFuture.complete(false);
+				return;
+			}
+			World world = Bukkit.getWorld(entry.worldId);
+			List<byte[]> sections;
+			try {
+				if (world == null) throw new IllegalStateException("The world of this change isn't loaded!");
+				sections = entry.load();
+			} catch (IOException | IllegalStateException e) {
+				// Kept so it can be replayed once the world is loaded again
+				synchronized (this) {
+					(redo ? redoEntries : undoEntries).addLast(entry);
+					memoryBytes += entry.getMemoryBytes();
+				}
+				replayFuture.completeExceptionally(e);
+				return;
+			}
+			// Undoing records into the redo entries and the other way around
+			Edit edit = new Edit(world, options, new HistoryRecorder(this, world, true, !redo));
+			// Newest first, a section recorded twice holds its older blocks in its first delta
+			List<byte[]> newestFirst = new ArrayList<>(sections);
+			Collections.reverse(newestFirst);
+			WorkloadJob workloadJob = new WorkloadJob(options.getPriority());
+			// The sections that can be read are still replayed, the first failure completes the future
+			List<IOException> failures = new ArrayList<>(1);
+			workloadJob.addWorkload(new IteratorWorkload<>(newestFirst.iterator(), section -> {
+				try {
+					replaySection(edit, section);
+				} catch (IOException e) {
+					failures.add(e);
+				}
+			}));
+			workloadJob.whenComplete(() -> edit.finish().whenComplete((result, e) -> {
+				if (failures.isEmpty()) replayFuture.complete(true);
+				else replayFuture.completeExceptionally(failures.get(0));
+			}));
+			WORKLOAD_RUNNABLE.submit(workloadJob);
+		}
+
+		private static void replaySection(Edit edit, byte[] compressed) throws IOException {
+			SectionDelta delta = SectionDelta.decompress(compressed);
+			Object nmsWorld = edit.getWorld();
+			Object blockPosition = edit.getBlockPosition();
+			Object nmsChunk = BlockChanger.getChunkAt(nmsWorld, delta.chunkX << 4, delta.chunkZ << 4);
+			Object section = BlockChanger.getSection(nmsChunk, BlockChanger.getSections(nmsChunk), delta.sectionY << 4);
+			for (int word = 0; word < delta.recorded.length; word++) {
+				long bits = delta.recorded[word];
+				while (bits != 0) {
+					int index = word << 6 | Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+					int x = delta.chunkX << 4 | index & 15;
+					int y = delta.sectionY << 4 | index >>> 8;
+					int z = delta.chunkZ << 4 | index >>> 4 & 15;
+					Object blockData = delta.states.getPaletteEntry(delta.states.get(index));
+					edit.blockChanging(x, y, z, BlockChanger.getTypeChunkSection(section, x & 15, y & 15, z & 15));
+					BlockChanger.setBlockPosition(blockPosition, x, y, z);
+					BlockChanger.removeIfTileEntity(nmsWorld, blockPosition);
+					BlockChanger.setTypeChunkSection(section, x & 15, y & 15, z & 15, blockData);
+					edit.blockChanged(x, y, z, blockData);
+				}
+			}
+		}
+
+		/**
+		 * @param replay whether the entry was recorded by undoing or redoing a change
+		 * @param redo   whether the entry was recorded by undoing a change
+		 */
+		private synchronized void add(HistoryEntry entry, boolean replay, boolean redo) {
+			if (!replay) {
+				redoEntries.forEach(redoEntry -> {
+					memoryBytes -= redoEntry.getMemoryBytes();
+					redoEntry.delete();
+				});
+				redoEntries.clear();
+			}
+			Deque<HistoryEntry> entries = redo ? redoEntries : undoEntries;
+			entries.addLast(entry);
+			memoryBytes += entry.getMemoryBytes();
+			while (entries.size() > maxChanges) {
+				HistoryEntry oldest = entries.pollFirst();
+				memoryBytes -= oldest.getMemoryBytes();
+				oldest.delete();
+			}
+			if (memoryBytes > memoryBudget && !spilling && PLUGIN.isEnabled()) {
+				spilling = true;
+				Bukkit.getScheduler().runTaskAsynchronously(PLUGIN, this::spill);
+			}
+		}
+
+		/**
+		 * @return a future completing once the recorded change is added
+		 */
+		private synchronized CompletableFuture<Void> startRecording() {
+			CompletableFuture<Void> recorded = new CompletableFuture<>();
+			recordingChanges.add(recorded);
+			return recorded;
+		}
+
+		private void finishRecording(CompletableFuture<Void> recorded) {
+			synchronized (this) {
+				recordingChanges.remove(recorded);
+			}
+			recorded.complete(null);
+		}
+
+		/**
+		 * Writes the oldest entries kept in memory to the spill folder until the
+		 * budget is met, off the main thread. Entries are written outside the lock
+		 * and only swapped for their file if they're still in the history by then.
+		 */
+		private void spill() {
+			while (true) {
+				HistoryEntry entry;
+				List<byte[]> sections;
+				synchronized (this) {
+					entry = memoryBytes <= memoryBudget ? null : nextInMemory();
+					if (entry == null) {
+						spilling = false;
+						return;
+					}
+					sections = entry.getSections();
+				}
+				Path file = HistoryEntry.write(spillFolder, sections);
+				synchronized (this) {
+					if (file == null) {
+						// Kept in memory, the next change tries again
+						spilling = false;
+						return;
+					}
+					if (undoEntries.contains(entry) || redoEntries.contains(entry))
+						memoryBytes -= entry.spilled(file);
+					else
+						file.toFile().delete();
+				}
+			}
+		}
+
+		private @Nullable HistoryEntry nextInMemory() {
+			for (HistoryEntry entry : undoEntries) if (entry.getSections() != null) return entry;
+			for (HistoryEntry entry : redoEntries) if (entry.getSections() != null) return entry;
+			return null;
+		}
+
+	}
+
+	/**
+	 * State shared by every block of a single change, the options are copied so
+	 * changing them afterwards doesn't affect a running change.
+	 * <p>
+	 * Cuboids are filled chunk by chunk, so whether a chunk is sent as a whole is
+	 * known from its first section and its per block updates can be skipped.
+	 * </p>
+	 */
+	private static class Edit {
+
+		private final World world;
+		private final Object nmsWorld;
+		private final Object blockPosition;
+		private final boolean physics;
+		private final ClientSync clientSync;
+		private final int fullChunkThreshold;
+		private final SectionChangeSet relit;
+		private final Priority priority;
+		private final HistoryRecorder recorder;
+		private final boolean diff;
+		private final LongConsumer changedBlocksConsumer;
+		private SectionPacketDispatcher dispatcher;
+		private boolean inChunk, resendChunk;
+		private int chunkX, chunkZ;
+		private long changedBlocks;
+
+		public Edit(World world, EditOptions options) {
+			this(world, options, options.getHistory() == null ? null
+					: new HistoryRecorder(options.getHistory(), world, false, false));
+		}
+
+		/**
+		 * @param recorder where the previous blocks are recorded instead of the
+		 *                 history of the options
+		 */
+		public Edit(World world, EditOptions options, @Nullable HistoryRecorder recorder) {
+			this.world = world;
+			this.nmsWorld = BlockChanger.getWorld(world);
+			this.blockPosition = BlockChanger.newMutableBlockPosition(world, 0, 0, 0);
+			this.physics = options.isPhysics();
+			ClientSync clientSync = options.getClientSync();
+			if (clientSync == ClientSync.SECTION_PACKETS && SECTION_PACKET_FACTORY == null)
+				clientSync = ClientSync.NOTIFY;
+			this.clientSync = clientSync;
+			int fullChunkThreshold = options.getFullChunkThreshold();
+			if (fullChunkThreshold == -1) fullChunkThreshold = BlockChanger.estimateFullChunkThreshold(world);
+			this.fullChunkThreshold = CHUNK_PACKET_FACTORY == null || clientSync == ClientSync.NONE
+					? Integer.MAX_VALUE : fullChunkThreshold;
+			if (clientSync == ClientSync.SECTION_PACKETS) getDispatcher();
+			this.relit = options.isRelight() ? new SectionChangeSet() : null;
+			this.priority = options.getPriority();
+			this.recorder = recorder;
+			this.diff = options.isDiff() && CHUNK_SECTION_GET_TYPE != null;
+			this.changedBlocksConsumer = options.getChangedBlocks();
+		}
+
+		public Object getWorld() {
+			return nmsWorld;
+		}
+
+		/**
+		 * @return mutable block position that can be reused by the blocks of this
+		 *         change
+		 */
+		public Object getBlockPosition() {
+			return blockPosition;
+		}
+
+		public boolean isPhysics() {
+			return physics;
+		}
+
+		public ClientSync getClientSync() {
+			return clientSync;
+		}
+
+		public boolean isDiff() {
+			return diff;
+		}
+
+		/**
+		 * With diff on, tells whether a single block already is what it's about to
+		 * be set to and counts it otherwise.
+		 */
+		public boolean blockUnchanged(int x, int y, int z, Object blockData) {
+			return diff && blockUnchanged(BlockChanger.getBlockType(nmsWorld, x, y, z), blockData);
+		}
+
+		/**
+		 * @param current block data the block holds
+		 * @see #blockUnchanged(int, int, int, Object)
+		 */
+		public boolean blockUnchanged(Object current, Object blockData) {
+			if (!diff) return false;
+			if (current == blockData) return true;
+			changedBlocks++;
+			return false;
+		}
+
+		/**
+		 * With diff on, compares a block of the current section of a cursor with
+		 * what it's about to be set to. Changed blocks are counted and queued for
+		 * light and section packets one by one, since
+		 * {@link #sectionChanged(SectionCursor)} leaves the whole section out then.
+		 * 
+		 * @return whether the block has to be set
+		 */
+		public boolean sectionBlockChanging(Object section, int x, int y, int z, Object blockData) {
+			if (!diff) return true;
+			if (BlockChanger.getTypeChunkSection(section, x & 15, y & 15, z & 15) == blockData) return false;
+			changedBlocks++;
+			if (relit != null) relit.add(x, y, z);
+			if (clientSync == ClientSync.SECTION_PACKETS) dispatcher.add(x, y, z);
+			return true;
+		}
+
+		private SectionPacketDispatcher getDispatcher() {
+			if (dispatcher == null) dispatcher = new SectionPacketDispatcher(world, nmsWorld, fullChunkThreshold);
+			return dispatcher;
+		}
+
+		/**
+		 * Called before a single block is set.
+		 */
+		public void blockChanging(int x, int y, int z) {
+			if (recorder != null) recorder.record(x, y, z, BlockChanger.getBlockType(nmsWorld, x, y, z));
+		}
+
+		/**
+		 * Called before a single block is set whose previous block is known.
+		 */
+		public void blockChanging(int x, int y, int z, Object previous) {
+			if (recorder != null) recorder.record(x, y, z, previous);
+		}
+
+		/**
+		 * Called after a single block was set, the block position must still point
+		 * at it.
+		 */
+		public void blockChanged(int x, int y, int z, Object blockData) {
+			if (relit != null) relit.add(x, y, z);
+			if (clientSync == ClientSync.SECTION_PACKETS)
+				dispatcher.add(x, y, z);
+			else if (clientSync == ClientSync.NOTIFY)
+				BlockChanger.updateBlock(nmsWorld, blockPosition, blockData, physics);
+		}
+
+		/**
+		 * Called before the current section of the cursor is filled. Sends the
+		 * previous chunk once the cursor leaves it.
+		 * <p>
+		 * Section packets leave sending whole chunks to the dispatcher, which counts
+		 * the blocks that actually changed. Notifications have to be skipped before
+		 * the blocks are set, so with {@link ClientSync#NOTIFY} the chunk is sent
+		 * as a whole by how many blocks of it the cuboid covers.
+		 * </p>
+		 * 
+		 * @return whether every block of the section has to be notified
+		 */
+		public boolean sectionChanging(SectionCursor cursor) {
+			if (recorder != null) recorder.record(cursor);
+			int x = cursor.getFromX() >> 4;
+			int z = cursor.getFromZ() >> 4;
+			if (!inChunk || x != chunkX || z != chunkZ) {
+				finishChunk();
+				inChunk = true;
+				chunkX = x;
+				chunkZ = z;
+				resendChunk = clientSync == ClientSync.NOTIFY && !diff
+						&& cursor.getColumnBlocks() >= fullChunkThreshold;
+			}
+			return clientSync == ClientSync.NOTIFY && !resendChunk;
+		}
+
+		/**
+		 * Called after the current section of the cursor was filled, the blocks
+		 * have already been notified if needed.
+		 */
+		public void sectionChanged(SectionCursor cursor) {
+			if (diff) return;
+			if (relit != null) relit.add(cursor);
+			if (clientSync == ClientSync.SECTION_PACKETS) dispatcher.add(cursor);
+		}
+
+		private void finishChunk() {
+			if (!inChunk) return;
+			inChunk = false;
+			if (resendChunk) getDispatcher().resendChunk(chunkX, chunkZ);
+			if (dispatcher != null) dispatcher.flush();
+		}
+
+		/**
+		 * Sends whatever is left and starts relighting if needed, must be called
+		 * once the change is done.
+		 * 
+		 * @return completes once the changed sections are relit
+		 */
+		public CompletableFuture<Void> finish() {
+			finishChunk();
+			if (dispatcher != null) dispatcher.flush();
+			if (recorder != null) recorder.finish();
+			if (changedBlocksConsumer != null) changedBlocksConsumer.accept(changedBlocks);
+			return relit == null ? CompletableFuture.completedFuture(null)
+					: Relight.start(world, nmsWorld, relit.values(), priority);
+		}
+
+	}
+
+	/**
+	 * Collects the positions of changed blocks per section and sends them as one
+	 * packet per section to the players tracking its chunk.
+	 * <p>
+	 * Positions are kept in a 4096 bit set, so a block that changes twice is only
+	 * sent once, and in order of <i>x &lt;&lt; 8 | z &lt;&lt; 4 | y</i> which is
+	 * how 1.16.2+ packets store them.
+	 * </p>
+	 * <p>
+	 * Chunks with at least <i>fullChunkThreshold</i> changed blocks are sent as a
+	 * whole instead. The changed blocks are counted per chunk across flushes, so
+	 * a chunk whose sections were sent early by a flush still counts them, until
+	 * the chunk is sent as a whole and its count starts over.
+	 * </p>
+	 */
+	private static class SectionPacketDispatcher {
+
+		/**
+		 * Scattered changes are sent before they hold on to too many sections
+		 */
+		private static final int MAX_PENDING_SECTIONS = 256;
+
+		private final World world;
+		private final Object nmsWorld;
+		private final int fullChunkThreshold;
+		private final SectionChangeSet pending = new SectionChangeSet();
+		private final Set<Long> resentChunks = new LinkedHashSet<>();
+		private final Map<Long, Integer> chunkChanges = new HashMap<>();
+		private List<Player> players;
+		private int[] playerChunkX, playerChunkZ;
+
+		public SectionPacketDispatcher(World world, Object nmsWorld, int fullChunkThreshold) {
+			this.world = world;
+			this.nmsWorld = nmsWorld;
+			this.fullChunkThreshold = fullChunkThreshold;
+		}
+
+		public void add(int x, int y, int z) {
+			if (pending.size() >= MAX_PENDING_SECTIONS && !pending.contains(x, y, z)) flush();
+			pending.add(x, y, z);
+		}
+
+		/**
+		 * Adds every block of the current section of the cursor.
+		 */
+		public void add(SectionCursor cursor) {
+			if (pending.size() >= MAX_PENDING_SECTIONS) flush();
+			pending.add(cursor);
+		}
+
+		/**
+		 * Sends the given chunk as a whole on the next flush.
+		 */
+		public void resendChunk(int chunkX, int chunkZ) {
+			resentChunks.add(chunkKey(chunkX, chunkZ));
+		}
+
+		public void flush() {
+			if (pending.isEmpty() && resentChunks.isEmpty()) return;
+			if (CHUNK_TRACKING_PLAYERS == null) {
+				players = world.getPlayers();
+				playerChunkX = new int[players.size()];
+				playerChunkZ = new int[players.size()];
+				for (int i = 0; i < players.size(); i++) {
+					Location location = players.get(i).getLocation();
+					playerChunkX[i] = location.getBlockX() >> 4;
+					playerChunkZ[i] = location.getBlockZ() >> 4;
+				}
+			}
+			if (fullChunkThreshold != Integer.MAX_VALUE) {
+				for (SectionChanges changes : pending.values()) {
+					long key = chunkKey(changes.chunkX, changes.chunkZ);
+					if (chunkChanges.merge(key, changes.count, Integer::sum) >= fullChunkThreshold)
+						resentChunks.add(key);
+				}
+			}
+			for (long key : resentChunks) {
+				// Counted again from here, later changes are sent as sections until the threshold is reached again
+				chunkChanges.remove(key);
+				int chunkX = chunkKeyX(key);
+				int chunkZ = chunkKeyZ(key);
+				send(createChunkPacket(chunkX, chunkZ), chunkX, chunkZ);
+			}
+			for (SectionChanges changes : pending.values()) {
+				if (resentChunks.contains(chunkKey(changes.chunkX, changes.chunkZ))) continue;
+				send(changes.createPacket(nmsWorld), changes.chunkX, changes.chunkZ);
+			}
+			pending.clear();
+			resentChunks.clear();
+			players = null;
+		}
+
+		private Object createChunkPacket(int chunkX, int chunkZ) {
+			try {
+				Object nmsChunk = BlockChanger.getChunkAt(nmsWorld, chunkX << 4, chunkZ << 4);
+				return CHUNK_PACKET_FACTORY.create(nmsChunk, nmsWorld);
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+			return null;
+		}
+
+		/**
+		 * Sends the packet to the players tracking the chunk. Up to 1.13 they are
+		 * guessed as the players within the view distance of the server, which
+		 * leaves out per world and per player view distances.
+		 */
+		@SuppressWarnings("unchecked")
+		private void send(Object packet, int chunkX, int chunkZ) {
+			if (packet == null) return;
+			if (CHUNK_TRACKING_PLAYERS != null) {
+				try {
+					Object players = (Object) CHUNK_TRACKING_PLAYERS.invokeExact(nmsWorld, chunkX, chunkZ);
+					Iterable<Object> trackers = players instanceof Stream ? ((Stream<Object>) players)::iterator
+							: (Iterable<Object>) players;
+					for (Object player : trackers) ReflectionUtils.sendPacketSync(player, packet);
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+				return;
+			}
+			int viewDistance = Bukkit.getViewDistance();
+			for (int i = 0; i < playerChunkX.length; i++) {
+				if (Math.abs(playerChunkX[i] - chunkX) > viewDistance
+						|| Math.abs(playerChunkZ[i] - chunkZ) > viewDistance)
+					continue;
+				ReflectionUtils.sendPacketSync(players.get(i), packet);
+			}
+		}
+
+	}
+
+	/**
+	 * Recalculates the light of the sections touched by a change, one section per
+	 * workload so it's spread over ticks.
+	 * <p>
+	 * 1.14+ queues a light check of every changed block on the light engine of
+	 * the world, just like placing a block does, and the engine sends the new
+	 * light to the players by itself. 1.8 - 1.13 checks the block light of every
+	 * changed block on the world, along with its sky light in worlds that have
+	 * one, and the world sends the relit blocks like any other block change. Up to
+	 * 1.7 only the sky light of every touched chunk is initialized again, block
+	 * light isn't fixed there.
+	 * </p>
+	 */
+	private static class Relight {
+
+		private final Object nmsWorld;
+		private final Object blockPosition;
+		private final Object lightEngine;
+		private final boolean skyLight;
+		private final SectionPacketDispatcher dispatcher;
+		private final Set<Long> chunks = new LinkedHashSet<>();
+
+		private Relight(World world, Object nmsWorld) throws Throwable {
+			this.nmsWorld = nmsWorld;
+			this.blockPosition = BlockChanger.newMutableBlockPosition(world, 0, 0, 0);
+			this.lightEngine = WORLD_LIGHT_ENGINE == null ? null : (Object) WORLD_LIGHT_ENGINE.invokeExact(nmsWorld);
+			this.skyLight = world.getEnvironment() == World.Environment.NORMAL;
+			this.dispatcher = lightEngine == null && WORLD_CHECK_BLOCK_LIGHT == null && CHUNK_PACKET_FACTORY != null
+					? new SectionPacketDispatcher(world, nmsWorld, 0) : null;
+		}
+
+		/**
+		 * @param sections sections to relight, ideally ordered chunk by chunk
+		 * @param priority share of the tick the relighting gets
+		 * @return completes once the light engine is done with them
+		 */
+		public static CompletableFuture<Void> start(World world, Object nmsWorld, Collection<SectionChanges> sections,
+				Priority priority) {
+			if (sections.isEmpty()
+					|| LIGHT_CHECK_BLOCK == null && WORLD_CHECK_BLOCK_LIGHT == null && CHUNK_INIT_LIGHTING == null)
+				return CompletableFuture.completedFuture(null);
+			Relight relight;
+			try {
+				relight = new Relight(world, nmsWorld);
+			} catch (Throwable e) {
+				e.printStackTrace();
+				return CompletableFuture.completedFuture(null);
+			}
+			CompletableFuture<Void> relightFuture = new CompletableFuture<>();
+			WorkloadJob workloadJob = new WorkloadJob(priority);
+			workloadJob.addWorkload(new IteratorWorkload<>(sections.iterator(), relight::relight));
+			workloadJob.whenComplete(
+					() -> relight.whenLit().whenComplete((result, e) -> relightFuture.complete(null)));
+			WORKLOAD_RUNNABLE.submit(workloadJob);
+			return relightFuture;
+		}
+
+		private boolean relight(SectionChanges changes) {
+			try {
+				if (lightEngine != null) {
+					changes.forEach((x, y, z) -> {
+						BlockChanger.setBlockPosition(blockPosition, x, y, z);
+						LIGHT_CHECK_BLOCK.invokeExact(lightEngine, blockPosition);
+					});
+					chunks.add(chunkKey(changes.chunkX, changes.chunkZ));
+				} else if (WORLD_CHECK_BLOCK_LIGHT != null) {
+					changes.forEach((x, y, z) -> {
+						BlockChanger.setBlockPosition(blockPosition, x, y, z);
+						if (skyLight) WORLD_CHECK_SKY_LIGHT.invokeExact(nmsWorld, blockPosition);
+						WORLD_CHECK_BLOCK_LIGHT.invokeExact(nmsWorld, blockPosition);
+					});
+				} else if (chunks.add(chunkKey(changes.chunkX, changes.chunkZ))) {
+					Object nmsChunk = BlockChanger.getChunkAt(nmsWorld, changes.chunkX << 4, changes.chunkZ << 4);
+					CHUNK_INIT_LIGHTING.invokeExact(nmsChunk);
+					if (dispatcher != null) {
+						dispatcher.resendChunk(changes.chunkX, changes.chunkZ);
+						dispatcher.flush();
+					}
+				}
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+			return true;
+		}
+
+		/**
+		 * The checks are queued per chunk, so waiting for the pending tasks of
+		 * every touched chunk means all of them ran. Completes on the next tick if
+		 * the light engine can't be waited for. Either way it completes on the
+		 * server thread, the light engine completes its tasks on its own executor.
+		 */
+		private CompletableFuture<?> whenLit() {
+			if (lightEngine == null || LIGHT_WAIT_FOR_TASKS == null) {
+				CompletableFuture<Void> nextTick = new CompletableFuture<>();
+				Bukkit.getScheduler().runTask(PLUGIN, () -> nextTick.complete(null));
+				return nextTick;
+			}
+			List<CompletableFuture<?>> futures = new ArrayList<>(chunks.size());
+			try {
+				for (long chunk : chunks) futures.add((CompletableFuture<?>) LIGHT_WAIT_FOR_TASKS
+						.invokeExact(lightEngine, chunkKeyX(chunk), chunkKeyZ(chunk)));
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+			CompletableFuture<Void> lit = new CompletableFuture<>();
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete(
+					(result, e) -> Bukkit.getScheduler().runTask(PLUGIN, () -> lit.complete(null)));
+			return lit;
+		}
+
+	}
+
+	/**
+	 * Changed blocks grouped by section in the order the sections were first
+	 * changed, the section that was changed last is found without hashing.
+	 */
+	private static class SectionChangeSet {
+
+		private final Map<Long, SectionChanges> sections = new LinkedHashMap<>();
+		private SectionChanges current;
+
+		public void add(int x, int y, int z) {
+			get(x >> 4, y >> 4, z >> 4).add(x & 15, y & 15, z & 15);
+		}
+
+		/**
+		 * Adds every block of the current section of the cursor.
+		 */
+		public void add(SectionCursor cursor) {
+			SectionChanges changes = get(cursor.getFromX() >> 4, cursor.getFromY() >> 4, cursor.getFromZ() >> 4);
+			for (int y = cursor.getFromY(); y <= cursor.getToY(); y++) {
+				for (int z = cursor.getFromZ(); z <= cursor.getToZ(); z++) {
+					for (int x = cursor.getFromX(); x <= cursor.getToX(); x++) changes.add(x & 15, y & 15, z & 15);
+				}
+			}
+		}
+
+		public boolean contains(int x, int y, int z) {
+			SectionChanges changes = current;
+			return changes != null && changes.isAt(x >> 4, y >> 4, z >> 4)
+					|| sections.containsKey(sectionKey(x >> 4, y >> 4, z >> 4));
+		}
+
+		private SectionChanges get(int chunkX, int sectionY, int chunkZ) {
+			SectionChanges changes = current;
+			if (changes != null && changes.isAt(chunkX, sectionY, chunkZ)) return changes;
+			return current = sections.computeIfAbsent(sectionKey(chunkX, sectionY, chunkZ),
+					key -> new SectionChanges(chunkX, sectionY, chunkZ));
+		}
+
+		public Collection<SectionChanges> values() {
+			return sections.values();
+		}
+
+		public int size() {
+			return sections.size();
+		}
+
+		public boolean isEmpty() {
+			return sections.isEmpty();
+		}
+
+		public void clear() {
+			sections.clear();
+			current = null;
+		}
+
+	}
+
+	private static long chunkKey(int chunkX, int chunkZ) {
+		return ((long) chunkX & 0x3FFFFF) << 22 | (long) chunkZ & 0x3FFFFF;
+	}
+
+	private static long sectionKey(int chunkX, int sectionY, int chunkZ) {
+		return chunkKey(chunkX, chunkZ) << 20 | sectionY & 0xFFFFF;
+	}
+
+	private static int chunkKeyX(long chunkKey) {
+		return (int) (chunkKey >> 22) << 10 >> 10;
+	}
+
+	private static int chunkKeyZ(long chunkKey) {
+		return (int) (chunkKey << 10) >> 10;
+	}
+
+	private static class SectionChanges {
+
+		private final int chunkX, sectionY, chunkZ;
+		private final long[] positions = new long[64];
+		private int count;
+
+		public SectionChanges(int chunkX, int sectionY, int chunkZ) {
+			this.chunkX = chunkX;
+			this.sectionY = sectionY;
+			this.chunkZ = chunkZ;
+		}
+
+		public boolean isAt(int chunkX, int sectionY, int chunkZ) {
+			return this.chunkX == chunkX && this.sectionY == sectionY && this.chunkZ == chunkZ;
+		}
+
+		public void add(int x, int y, int z) {
+			int index = x << 8 | z << 4 | y;
+			long bit = 1L << index;
+			if ((positions[index >> 6] & bit) != 0) return;
+			positions[index >> 6] |= bit;
+			count++;
+		}
+
+		/**
+		 * Passes the world coordinates of every changed block.
+		 */
+		public void forEach(BlockConsumer consumer) throws Throwable {
+			for (int word = 0; word < positions.length; word++) {
+				long bits = positions[word];
+				while (bits != 0) {
+					int index = word << 6 | Long.numberOfTrailingZeros(bits);
+					consumer.accept(chunkX << 4 | index >> 8, sectionY << 4 | index & 15,
+							chunkZ << 4 | index >> 4 & 15);
+					bits &= bits - 1;
+				}
+			}
+		}
+
+		/**
+		 * Looks the section up again since it may have been replaced while it was
+		 * being filled.
+		 */
+		public Object createPacket(Object nmsWorld) {
+			short[] shorts = new short[count];
+			int i = 0;
+			for (int word = 0; word < positions.length; word++) {
+				long bits = positions[word];
+				while (bits != 0) {
+					shorts[i++] = (short) (word << 6 | Long.numberOfTrailingZeros(bits));
+					bits &= bits - 1;
+				}
+			}
+			try {
+				Object nmsChunk = BlockChanger.getChunkAt(nmsWorld, chunkX << 4, chunkZ << 4);
+				Object section = BlockChanger.getSection(nmsChunk, BlockChanger.getSections(nmsChunk),
+						sectionY << 4);
+				return SECTION_PACKET_FACTORY.create(nmsChunk, section, chunkX, sectionY, chunkZ, shorts);
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+			return null;
+		}
+
+	}
+
+	/**
+	 * How the calls made once per block reach NMS, see
+	 * {@link BlockChanger#getAccessorBackend()}
+	 */
+	public enum AccessorBackend {
+
+		/**
+		 * Static final method handles adapted to erased types and invoked exactly
+		 */
+		METHOD_HANDLES,
+		/**
+		 * Small classes spun by {@link LambdaMetafactory} that call the NMS methods
+		 * directly, falls back to {@link #METHOD_HANDLES} for any method that can't
+		 * be bound
+		 */
+		LAMBDA_METAFACTORY;
+
+		private static AccessorBackend fromProperty(@Nullable String property) {
+			return "lambda".equalsIgnoreCase(property) ? LAMBDA_METAFACTORY : METHOD_HANDLES;
+		}
+
+	}
+
+	private static class Accessors {
+
+		private final SectionSetter sectionSetter;
+		private final ChunkGetter chunkGetter;
+		private final SectionsGetter sectionsGetter;
+		private final WorldBlockSetter worldBlockSetter;
+		private final PositionSetter positionSetter;
+
+		public Accessors(SectionSetter sectionSetter, ChunkGetter chunkGetter, SectionsGetter sectionsGetter,
+				WorldBlockSetter worldBlockSetter, PositionSetter positionSetter) {
+			this.sectionSetter = sectionSetter;
+			this.chunkGetter = chunkGetter;
+			this.sectionsGetter = sectionsGetter;
+			this.worldBlockSetter = worldBlockSetter;
+			this.positionSetter = positionSetter;
+		}
+
+	}
+
+	/**
+	 * Builds {@link Accessors} for either backend. Keeps the unadapted (direct)
+	 * handles around because {@link LambdaMetafactory} can only bind those.
+	 */
+	private static class AccessorFactory {
+
+		private final MethodHandles.Lookup lookup;
+		private final MethodHandle chunkSectionSetType;
+		private final MethodHandle worldGetChunk;
+		private final MethodHandle chunkGetSections;
+		private final MethodHandle setTypeAndData;
+		private final MethodHandle mutableBlockPositionSet;
+
+		public AccessorFactory(MethodHandles.Lookup lookup, MethodHandle chunkSectionSetType,
+				MethodHandle worldGetChunk, MethodHandle chunkGetSections, MethodHandle setTypeAndData,
+				MethodHandle mutableBlockPositionSet) {
+			this.lookup = lookup;
+			this.chunkSectionSetType = chunkSectionSetType;
+			this.worldGetChunk = worldGetChunk;
+			this.chunkGetSections = chunkGetSections;
+			this.setTypeAndData = setTypeAndData;
+			this.mutableBlockPositionSet = mutableBlockPositionSet;
+		}
+
+		public Accessors create(AccessorBackend backend) {
+			Accessors handles = handles();
+			if (backend == AccessorBackend.METHOD_HANDLES) return handles;
+			return new Accessors(bind(SectionSetter.class, chunkSectionSetType, handles.sectionSetter),
+					bind(ChunkGetter.class, worldGetChunk, handles.chunkGetter),
+					bind(SectionsGetter.class, chunkGetSections, handles.sectionsGetter),
+					bind(WorldBlockSetter.class, setTypeAndData, handles.worldBlockSetter),
+					bind(PositionSetter.class, mutableBlockPositionSet, handles.positionSetter));
+		}
+
+		private Accessors handles() {
+			return new Accessors((section, x, y, z, blockData) -> {
+				try {
+					CHUNK_SECTION_SET_TYPE.invokeExact(section, x, y, z, blockData);
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			}, (nmsWorld, chunkX, chunkZ) -> {
+				try {
+					return (Object) WORLD_GET_CHUNK.invokeExact(nmsWorld, chunkX, chunkZ);
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+				return null;
+			}, nmsChunk -> {
+				try {
+					return (Object[]) CHUNK_GET_SECTIONS.invokeExact(nmsChunk);
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+				return null;
+			}, (nmsWorld, blockPosition, blockData, physics) -> {
+				try {
+					SET_TYPE_AND_DATA.invokeExact(nmsWorld, blockPosition, blockData, physics);
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			}, BLOCK_POSITION_CONSTRUCTOR::set);
+		}
+
+		/**
+		 * Spins an implementation of a single method interface whose method calls
+		 * <i>implementation</i> directly.
+		 * 
+		 * @param type           interface to implement
+		 * @param implementation direct handle of the NMS method
+		 * @param fallback       returned if the method doesn't exist in this version
+		 *                       or can't be bound
+		 */
+		private <T> T bind(Class<T> type, @Nullable MethodHandle implementation, T fallback) {
+			if (implementation == null) return fallback;
+			try {
+				Method method = Arrays.stream(type.getMethods())
+						.filter(m -> !m.isDefault() && !Modifier.isStatic(m.getModifiers()))
+						.findFirst()
+						.get();
+				MethodType methodType = MethodType.methodType(method.getReturnType(), method.getParameterTypes());
+				MethodType instantiatedType = methodType.returnType() == void.class
+						? implementation.type().changeReturnType(void.class) : implementation.type();
+				CallSite callSite = LambdaMetafactory.metafactory(lookup, method.getName(),
+						MethodType.methodType(type), methodType, implementation, instantiatedType);
+				return type.cast(callSite.getTarget().invoke());
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+			return fallback;
+		}
+
+	}
+
+	private interface TileEntityManager {
+
+		default Object getCapturedTileEntities(Object nmsWorld) {
+			try {
+				return WORLD_CAPTURED_TILE_ENTITIES.invoke(nmsWorld);
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+			return null;
+		}
+
+		default boolean isTileEntity(Object nmsWorld, Object blockPosition) {
+			try {
+				return (boolean) IS_TILE_ENTITY.invoke(getCapturedTileEntities(nmsWorld), blockPosition);
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+			return false;
+		}
+
+		/**
+		 * Lets bulk setters skip the per block lookups when nothing is captured.
+		 */
+		default boolean hasCapturedTileEntities(Object nmsWorld) {
+			Map<?, ?> capturedTileEntities = (Map<?, ?>) getCapturedTileEntities(nmsWorld);
+			return capturedTileEntities != null && !capturedTileEntities.isEmpty();
+		}
+
+		default void destroyTileEntity(Object nmsWorld, Object blockPosition) {
+			try {
+				WORLD_REMOVE_TILE_ENTITY.invoke(nmsWorld, blockPosition);
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+		}
+
+		/*
+		 * Store bukkit block variable {
+		 * Block block = ...
+		 * }
+		 * Get block data (title entity data still exists in old the bukkit block
+		 * variable) {
+		 * Object blockData = BlockChanger.getBlockData(block);
+		 * }
+		 * Set block using BlockChanger within the method {
+		 * setType(...)
+		 * }
+		 * Check if block is a title entity {
+		 * isTitleEntity
+		 * }
+		 * Get tile entity that was stored in the bukkit block variable {
+		 * CraftBlockState craftBlockState = (CraftBlockState)block.getState();
+		 * // getState() creates a new block state with the location of that block
+		 * TileEntity nmsTileEntity = craftBlockState.getTileEntity();
+		 * }
+		 * Set tile entity using BlockChanger {
+		 * <Use nms method that applies tile entity on the block>
+		 * }
+		 */
+
+	}
+
+	private static class TileEntityManagerSupported implements TileEntityManager {}
+
+	private static class TileEntityManagerDummy implements TileEntityManager {
+
+		@Override
+		public Object getCapturedTileEntities(Object nmsWorld) {
+			return null;
+		}
+
+		@Override
+		public boolean isTileEntity(Object nmsWorld, Object blockPosition) {
+			return false;
+		}
+
+		@Override
+		public boolean hasCapturedTileEntities(Object nmsWorld) {
+			return false;
+		}
+
+		@Override
+		public void destroyTileEntity(Object nmsWorld, Object blockPosition) {}
+
+	}
+
+	private interface BlockDataRetriever {
+
+		default Object getNMSItem(ItemStack itemStack) throws Throwable {
+			if (itemStack == null) throw new NullPointerException("ItemStack is null!");
+			if (itemStack.getType() == Material.AIR) return null;
+			if (getNMSBlockNames().containsKey(itemStack.getType().name())) return null;
+			Object nmsItemStack = NMS_ITEM_STACK_COPY.invoke(itemStack);
+			if (nmsItemStack == null) return null;
+			return NMS_ITEM_STACK_TO_ITEM.invoke(nmsItemStack);
+		}
+
+		// 1.7-1.12 requires 2 methods to get block data
+		default Object fromBlock(Block block) {
+			try {
+				Object nmsBlock = CRAFT_BLOCK_GET_NMS_BLOCK.invoke(block);
+				return NMS_BLOCK_GET_BLOCK_DATA.invoke(nmsBlock);
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+			return null;
+		}
+
+		Object fromItemStack(ItemStack itemStack);
+
+	}
+
+	// 1.13+ or 1.8+ without data support
+	private static class BlockDataGetter implements BlockDataRetriever {
+
+		@Override
+		public Object fromItemStack(ItemStack itemStack) {
+			try {
+				Object nmsItem = getNMSItem(itemStack);
+				Object block = nmsItem != null ? NMS_BLOCK_FROM_ITEM.invoke(nmsItem)
+						: getNMSBlockNames().get(itemStack.getType().name());
+				return ITEM_TO_BLOCK_DATA.invoke(block);
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+			return null;
+		}
+
+		// 1.13+ one method to get block data (getNMS())
+		@Override
+		public Object fromBlock(Block block) {
+			try {
+				return NMS_BLOCK_GET_BLOCK_DATA.invoke(block);
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+			return null;
+		}
+
+	}
+
+	// 1.8-1.12
+	private static class BlockDataGetterLegacy implements BlockDataRetriever {
+
+		@Override
+		public Object fromItemStack(ItemStack itemStack) {
+			try {
+				Object nmsItem = getNMSItem(itemStack);
+				Object possibleBlock = NMS_BLOCK_FROM_NAME.invoke(itemStack.getType().name().toLowerCase());
+				if (nmsItem == null && possibleBlock == null) return AIR_BLOCK_DATA;
+				Object block = possibleBlock == null ? NMS_BLOCK_FROM_ITEM.invoke(nmsItem) : possibleBlock;
+				short data = itemStack.getDurability();
+				return data > 0 ? BLOCK_DATA_FROM_LEGACY_DATA.invoke(block, data) : ITEM_TO_BLOCK_DATA.invoke(block);
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+			return null;
+		}
+
+	}
+
+	// 1.7
+	private static class BlockDataGetterAncient implements BlockDataRetriever {
+
+		@Override
+		public Object fromItemStack(ItemStack itemStack) {
+			try {
+				Object nmsItem = getNMSItem(itemStack);
+				if (nmsItem == null) return AIR_BLOCK_DATA;
+				return NMS_BLOCK_FROM_ITEM.invoke(nmsItem);
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+			return null;
+		}
+
+	}
+
+	/**
+	 * NMS worlds by uid and name, kept up to date as worlds are loaded and
+	 * unloaded, so worlds created after the class loaded can be changed and
+	 * unloaded ones aren't kept in memory. Lookups may come from any thread.
+	 * <p>
+	 * A world that isn't known yet is resolved through
+	 * {@link BlockChanger#WORLD_GET_HANDLE} and remembered if it's still loaded.
+	 * </p>
+	 */
+	private static class WorldRegistry implements Listener {
+
+		private final Map<UUID, Object> worldsById = new ConcurrentHashMap<>();
+		private final Map<String, Object> worldsByName = new ConcurrentHashMap<>();
+
+		public @Nullable Object get(World world) {
+			Object nmsWorld = worldsById.get(world.getUID());
+			if (nmsWorld != null) return nmsWorld;
+			nmsWorld = getNMSWorld(world);
+			if (nmsWorld != null && Bukkit.getWorld(world.getUID()) == world) {
+				worldsById.put(world.getUID(), nmsWorld);
+				worldsByName.put(world.getName(), nmsWorld);
+			}
+			return nmsWorld;
+		}
+
+		public @Nullable Object get(String worldName) {
+			Object nmsWorld = worldsByName.get(worldName);
+			if (nmsWorld != null) return nmsWorld;
+			World world = Bukkit.getWorld(worldName);
+			return world == null ? null : get(world);
+		}
+
+		public void add(World world) {
+			Object nmsWorld = getNMSWorld(world);
+			if (nmsWorld == null) return;
+			worldsById.put(world.getUID(), nmsWorld);
+			worldsByName.put(world.getName(), nmsWorld);
+		}
+
+		@EventHandler(priority = EventPriority.MONITOR)
+		public void onWorldLoad(WorldLoadEvent event) {
+			add(event.getWorld());
+		}
+
+		@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+		public void onWorldUnload(WorldUnloadEvent event) {
+			World world = event.getWorld();
+			worldsById.remove(world.getUID());
+			worldsByName.remove(world.getName());
+		}
+
+	}
+
+	/**
+	 * Marks the blocks players break and place in the {@link TrackedRegion}s.
+	 * Regions are kept in an array that's replaced as a whole, so events walk it
+	 * without allocating anything.
+	 */
+	private static class RegionTracker implements Listener {
+
+		private volatile TrackedRegion[] regions = new TrackedRegion[0];
+
+		public synchronized void add(TrackedRegion region) {
+			TrackedRegion[] regions = Arrays.copyOf(this.regions, this.regions.length + 1);
+			regions[regions.length - 1] = region;
+			this.regions = regions;
+		}
+
+		public synchronized void remove(TrackedRegion region) {
+			this.regions = Arrays.stream(regions).filter(tracked -> tracked != region).toArray(TrackedRegion[]::new);
+		}
+
+		@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+		public void onBlockBreak(BlockBreakEvent event) {
+			mark(event.getBlock());
+		}
+
+		@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+		public void onBlockPlace(BlockPlaceEvent event) {
+			mark(event.getBlock());
+		}
+
+		private void mark(Block block) {
+			TrackedRegion[] regions = this.regions;
+			if (regions.length == 0) return;
+			UUID worldId = block.getWorld().getUID();
+			for (TrackedRegion region : regions) {
+				if (region.worldId.equals(worldId)) region.mark(block.getX(), block.getY(), block.getZ());
+			}
+		}
+
+	}
+
+	/**
+	 * Block data converted from ItemStacks. Only the material and, before 1.13,
+	 * the durability decide the block of an item, so they're the key. Items
+	 * without durability are kept in an array by material ordinal, the others in
+	 * a map that's cleared once it holds {@value #MAX_DATA_ENTRIES} of them.
+	 */
+	private static class ItemBlockDataCache {
+
+		private static final int MAX_DATA_ENTRIES = 4096;
+
+		private final Object[] byMaterial = new Object[Material.values().length];
+		private final Map<Integer, Object> byMaterialData = new ConcurrentHashMap<>();
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+
+		public @Nullable Object get(ItemStack itemStack) {
+			if (itemStack == null) throw new NullPointerException("ItemStack is null!");
+			Material material = itemStack.getType();
+			short data = ReflectionUtils.supports(13) ? 0 : itemStack.getDurability();
+			int key = material.ordinal() << 16 | data & 0xFFFF;
+			Object blockData = data == 0 ? byMaterial[material.ordinal()] : byMaterialData.get(key);
+			if (blockData != null) {
+				hits.increment();
+				return blockData;
+			}
+			misses.increment();
+			// Meta never changes the block, without it asNMSCopy has no NBT to copy
+			blockData = BLOCK_DATA_GETTER
+					.fromItemStack(itemStack.hasItemMeta() ? new ItemStack(material, 1, data) : itemStack);
+			if (blockData == null) return null;
+			if (data == 0) {
+				byMaterial[material.ordinal()] = blockData;
+			} else {
+				if (byMaterialData.size() >= MAX_DATA_ENTRIES) byMaterialData.clear();
+				byMaterialData.put(key, blockData);
+			}
+			return blockData;
+		}
+
+	}
+
+	/**
+	 * Block states by material ordinal and by combined id in flat arrays, so
+	 * internal code can carry states as ints and resolve them without hashing.
+	 * <p>
+	 * The material arrays are filled by {@link BlockChanger#loadBlocks()}, which
+	 * is waited for when reading them. States by id are looked up on first use,
+	 * racing threads store the same state at worst and a state lost to a racing
+	 * resize is just looked up again.
+	 * </p>
+	 */
+	private static class BlockStateRegistry {
+
+		/**
+		 * Ids above this aren't cached, no version has that many states
+		 */
+		private static final int MAX_CACHED_ID = 1 << 20;
+
+		private final Object[] byMaterial = new Object[Material.values().length];
+		private final int[] idsByMaterial = new int[byMaterial.length];
+		private volatile Object[] byId = new Object[4096];
+
+		public BlockStateRegistry() {
+			Arrays.fill(idsByMaterial, -1);
+		}
+
+		public void register(Material material, Object blockData) {
+			byMaterial[material.ordinal()] = blockData;
+			int id = getId(blockData);
+			idsByMaterial[material.ordinal()] = id;
+			if (id >= 0) store(id, blockData);
+		}
+
+		public @Nullable Object get(Material material) {
+			BLOCKS_LOADED.join();
+			return byMaterial[material.ordinal()];
+		}
+
+		public int getId(Material material) {
+			BLOCKS_LOADED.join();
+			return idsByMaterial[material.ordinal()];
+		}
+
+		public int getId(Object blockData) {
+			if (GET_COMBINED_ID == null) return -1;
+			try {
+				return (int) GET_COMBINED_ID.invokeExact(blockData);
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+			return -1;
+		}
+
+		public @Nullable Object get(int id) {
+			Object[] states = byId;
+			Object blockData = id < states.length ? states[id] : null;
+			if (blockData != null || GET_BY_COMBINED_ID == null) return blockData;
+			try {
+				blockData = (Object) GET_BY_COMBINED_ID.invokeExact(id);
+			} catch (Throwable e) {
+				e.printStackTrace();
+				return null;
+			}
+			if (blockData != null) store(id, blockData);
+			return blockData;
+		}
+
+		/**
+		 * Doesn't wait for the materials, for {@link BlockChanger#loadBlocks()}
+		 * itself
+		 */
+		public int[] getMaterialIds() {
+			return idsByMaterial.clone();
+		}
+
+		public List<Material> getMaterials() {
+			BLOCKS_LOADED.join();
+			Material[] materials = Material.values();
+			List<Material> registered = new ArrayList<>();
+			for (int i = 0; i < byMaterial.length; i++) if (byMaterial[i] != null) registered.add(materials[i]);
+			return registered;
+		}
+
+		private void store(int id, Object blockData) {
+			if (id >= MAX_CACHED_ID) return;
+			Object[] states = byId;
+			if (id >= states.length) {
+				states = Arrays.copyOf(states, Math.min(MAX_CACHED_ID, Math.max(states.length * 2, id + 1)));
+				byId = states;
+			}
+			states[id] = blockData;
+		}
+
+	}
+
+	/**
+	 * Layers of a schematic that lie within one section layer of the world, in
+	 * y, z, x order as palette indices read as unsigned shorts.
+	 */
+	private static class SchematicBand {
+
+		private final int y, layers, width, length;
+		private final Object[] palette;
+		private final short[] blocks;
+
+		public SchematicBand(int y, int layers, int width, int length, Object[] palette, short[] blocks) {
+			this.y = y;
+			this.layers = layers;
+			this.width = width;
+			this.length = length;
+			this.palette = palette;
+			this.blocks = blocks;
+		}
+
+	}
+
+	/**
+	 * Reads a Sponge schematic, version 2 or 3, on its own thread and queues its
+	 * blocks in {@link SchematicBand}s. The varint block data is decoded straight
+	 * from the gzip stream, so besides the palette only the queued bands and the
+	 * one being filled are held. The queue is bounded, the reader waits while the
+	 * bands are pasted and gives up once the paste is cancelled or the plugin is
+	 * disabled.
+	 * <p>
+	 * NBT doesn't fix the order of tags. If the block data comes before the size
+	 * or palette, it's skipped and the file is read a second time.
+	 * </p>
+	 */
+	private static class SchematicReader implements Runnable {
+
+		private static final int MAX_BAND_BLOCKS = 1 << 19;
+		private static final int QUEUED_BANDS = 4;
+		/**
+		 * Palette indices are kept in shorts, there are far fewer block states
+		 */
+		private static final int MAX_PALETTE_SIZE = 1 << 16;
+		private static final long OFFER_TIMEOUT_MILLIS = 500;
+		private static final byte TAG_END = 0, TAG_BYTE = 1, TAG_SHORT = 2, TAG_INT = 3, TAG_LONG = 4,
+				TAG_FLOAT = 5, TAG_DOUBLE = 6, TAG_BYTE_ARRAY = 7, TAG_STRING = 8, TAG_LIST = 9, TAG_COMPOUND = 10,
+				TAG_INT_ARRAY = 11, TAG_LONG_ARRAY = 12;
+
+		private final File file;
+		private final int originY;
+		private final BlockingQueue<SchematicBand> bands = new ArrayBlockingQueue<>(QUEUED_BANDS);
+		private int width = -1, height = -1, length = -1;
+		private Object[] palette;
+		private boolean blocksRead;
+		private volatile boolean done;
+		private volatile boolean cancelled;
+		private volatile Throwable failure;
+
+		public SchematicReader(File file, int originY) {
+			this.file = file;
+			this.originY = originY;
+		}
+
+		@Override
+		public void run() {
+			try {
+				for (int pass = 0; pass < 2 && !blocksRead; pass++) read();
+				if (!blocksRead) throw new IOException("The schematic has no block data, size or palette");
+			} catch (Throwable e) {
+				failure = e;
+			}
+			done = true;
+		}
+
+		public boolean isDone() {
+			return done;
+		}
+
+		public @Nullable Throwable getFailure() {
+			return failure;
+		}
+
+		public boolean hasBand() {
+			return !bands.isEmpty();
+		}
+
+		public @Nullable SchematicBand pollBand() {
+			return bands.poll();
+		}
+
+		/**
+		 * Stops the reader the next time it waits for a band to be taken.
+		 */
+		public void cancel() {
+			cancelled = true;
+			bands.clear();
+		}
+
+		private void read() throws IOException {
+			try (DataInputStream in = new DataInputStream(
+					new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file.toPath()))))) {
+				if (in.readByte() != TAG_COMPOUND) throw new IOException("The schematic isn't an NBT compound");
+				in.readUTF();
+				// Version 2 keeps everything in the root, version 3 in a Schematic compound within it
+				readCompound(in, "Schematic");
+			}
+		}
+
+		private void readCompound(DataInputStream in, String parent) throws IOException {
+			boolean schematic = parent.equals("Schematic");
+			boolean blocks = parent.equals("Blocks");
+			byte type;
+			while ((type = in.readByte()) != TAG_END) {
+				String name = in.readUTF();
+				if (type == TAG_COMPOUND && schematic && (name.equals("Schematic") || name.equals("Blocks"))) {
+					readCompound(in, name);
+				} else if (type == TAG_SHORT && schematic && name.equals("Width")) {
+					width = in.readUnsignedShort();
+				} else if (type == TAG_SHORT && schematic && name.equals("Height")) {
+					height = in.readUnsignedShort();
+				} else if (type == TAG_SHORT && schematic && name.equals("Length")) {
+					length = in.readUnsignedShort();
+				} else if (type == TAG_COMPOUND && (schematic || blocks) && name.equals("Palette")
+						&& palette == null) {
+					readPalette(in);
+				} else if (type == TAG_BYTE_ARRAY
+						&& (schematic && name.equals("BlockData") || blocks && name.equals("Data"))) {
+					readBlocks(in);
+				} else {
+					skip(in, type);
+				}
+			}
+		}
+
+		private void readPalette(DataInputStream in) throws IOException {
+			String[] names = new String[64];
+			int size = 0;
+			byte type;
+			while ((type = in.readByte()) != TAG_END) {
+				String name = in.readUTF();
+				if (type != TAG_INT) {
+					skip(in, type);
+					continue;
+				}
+				int index = in.readInt();
+				if (index < 0) throw new IOException("Negative palette index " + index);
+				if (index >= names.length) names = Arrays.copyOf(names, Math.max(names.length * 2, index + 1));
+				names[index] = name;
+				size = Math.max(size, index + 1);
+			}
+			if (size > MAX_PALETTE_SIZE)
+				throw new IOException("The palette has more than " + MAX_PALETTE_SIZE + " entries");
+			Object[] palette = new Object[size];
+			for (int i = 0; i < size; i++) palette[i] = names[i] == null ? AIR_BLOCK_DATA : toBlockData(names[i]);
+			this.palette = palette;
+		}
+
+		private Object toBlockData(String name) throws IOException {
+			try {
+				return (Object) CRAFT_BLOCK_DATA_GET_STATE.invokeExact((Object) Bukkit.createBlockData(name));
+			} catch (IllegalArgumentException e) {
+				// Not a block of this version
+				return AIR_BLOCK_DATA;
+			} catch (Throwable e) {
+				throw new IOException("Couldn't convert " + name + " to block data", e);
+			}
+		}
+
+		private void readBlocks(DataInputStream in) throws IOException {
+			int bytes = in.readInt();
+			if (palette == null || width < 0 || height < 0 || length < 0) {
+				skipBytes(in, bytes);
+				return;
+			}
+			if ((long) width * length * 16 > Integer.MAX_VALUE)
+				throw new IOException("The schematic is too wide to be pasted");
+			blocksRead = true;
+			int layerBlocks = width * length;
+			int maxLayers = Math.max(1, MAX_BAND_BLOCKS / Math.max(1, layerBlocks));
+			int read = 0;
+			for (int y = 0; y < height;) {
+				int layers = Math.min(height - y, Math.min(maxLayers, 16 - ((originY + y) & 15)));
+				short[] blocks = new short[layers * layerBlocks];
+				for (int i = 0; i < blocks.length; i++) {
+					int value = 0;
+					int shift = 0;
+					int b;
+					do {
+						if (++read > bytes || shift > 28) throw new IOException("Malformed block data");
+						b = in.readUnsignedByte();
+						value |= (b & 0x7F) << shift;
+						shift += 7;
+					} while ((b & 0x80) != 0);
+					if (value >= palette.length) throw new IOException("Palette index " + value + " out of range");
+					blocks[i] = (short) value;
+				}
+				SchematicBand band = new SchematicBand(y, layers, width, length, palette, blocks);
+				try {
+					do {
+						if (cancelled || !PLUGIN.isEnabled())
+							throw new InterruptedIOException("The paste was cancelled");
+					} while (!bands.offer(band, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+				y += layers;
+			}
+			skipBytes(in, bytes - read);
+		}
+
+		private static void skip(DataInputStream in, byte type) throws IOException {
+			switch (type) {
+			case TAG_BYTE:
+				skipBytes(in, 1);
+				break;
+			case TAG_SHORT:
+				skipBytes(in, 2);
+				break;
+			case TAG_INT:
+			case TAG_FLOAT:
+				skipBytes(in, 4);
+				break;
+			case TAG_LONG:
+			case TAG_DOUBLE:
+				skipBytes(in, 8);
+				break;
+			case TAG_BYTE_ARRAY:
+				skipBytes(in, in.readInt());
+				break;
+			case TAG_STRING:
+				skipBytes(in, in.readUnsignedShort());
+				break;
+			case TAG_LIST:
+				byte elementType = in.readByte();
+				int count = in.readInt();
+				for (int i = 0; i < count; i++) skip(in, elementType);
+				break;
+			case TAG_COMPOUND:
+				byte entryType;
+				while ((entryType = in.readByte()) != TAG_END) {
+					in.readUTF();
+					skip(in, entryType);
+				}
+				break;
+			case TAG_INT_ARRAY:
+				skipBytes(in, in.readInt() * 4L);
+				break;
+			case TAG_LONG_ARRAY:
+				skipBytes(in, in.readInt() * 8L);
+				break;
+			default:
+				throw new IOException("Unknown NBT tag " + type);
+			}
+		}
+
+		private static void skipBytes(DataInputStream in, long bytes) throws IOException {
+			while (bytes > 0) {
+				long skipped = in.skip(bytes);
+				if (skipped <= 0) {
+					in.readByte();
+					skipped = 1;
+				}
+				bytes -= skipped;
+			}
+		}
+
+	}
+
+	/**
+	 * The state id of every material, saved in the plugin data folder so later
+	 * boots of the same server version don't need to convert every material. The
+	 * file is named after {@link ReflectionUtils#NMS_VERSION} and
+	 * {@link ReflectionUtils#PATCH_NUMBER}, it's ignored if its fingerprint of
+	 * the version and materials or the CRC of its ids don't match.
+	 * <p>
+	 * Layout: magic, format, fingerprint, CRC32 of the ids, count of ids and then
+	 * the id of every material by ordinal, -1 for none. Big endian.
+	 * </p>
+	 */
+	private static class MappingCache {
+
+		private static final int MAGIC = 0x42434D43; // BCMC
+		private static final int FORMAT = 1;
+		private static final int HEADER_BYTES = 24;
+
+		private final Path path;
+		private final long fingerprint;
+
+		public MappingCache(File dataFolder) {
+			String version = ReflectionUtils.NMS_VERSION + '-' + ReflectionUtils.PATCH_NUMBER;
+			this.path = dataFolder.toPath().resolve("blockchanger-" + version + ".cache");
+			long fingerprint = version.hashCode();
+			for (Material material : Material.values()) fingerprint = fingerprint * 31 + material.name().hashCode();
+			this.fingerprint = fingerprint;
+		}
+
+		/**
+		 * @return the cached ids or null if there's no file for this version or it
+		 *         doesn't match
+		 */
+		public @Nullable int[] read() {
+			if (!Files.isRegularFile(path)) return null;
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT
+						|| buffer.getLong() != fingerprint)
+					return null;
+				int crc = buffer.getInt();
+				int count = buffer.getInt();
+				if (count != Material.values().length || buffer.remaining() != count * 4) return null;
+				int[] ids = new int[count];
+				buffer.asIntBuffer().get(ids);
+				return crc(ids) == crc ? ids : null;
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			return null;
+		}
+
+		public void write(int[] ids) {
+			ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + ids.length * 4);
+			buffer.putInt(MAGIC).putInt(FORMAT).putLong(fingerprint).putInt(crc(ids)).putInt(ids.length);
+			buffer.asIntBuffer().put(ids);
+			buffer.rewind();
+			Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+			try {
+				Files.createDirectories(path.getParent());
+				try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+					while (buffer.hasRemaining()) channel.write(buffer);
+				}
+				Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		private static int crc(int[] ids) {
+			ByteBuffer buffer = ByteBuffer.allocate(ids.length * 4);
+			buffer.asIntBuffer().put(ids);
+			CRC32 crc = new CRC32();
+			crc.update(buffer.array());
+			return (int) crc.getValue();
+		}
+
+	}
+
+	/**
+	 * A piece of an asynchronous change. A workload that covers many blocks
+	 * computes a bounded part of them per call and keeps its position, so a change
+	 * is held by a few workloads no matter how many blocks it sets.
+	 */
+	private static interface Workload {
+
+		/**
+		 * @return true once the workload is done, otherwise it's computed again
+		 *         while there's time left
+		 */
+		boolean compute();
+
+		/**
+		 * @return whether the workload can't go on until another thread did its
+		 *         part, its job then sits out the rest of the tick
+		 */
+		default boolean isWaiting() {
+			return false;
+		}
+
+	}
+
+	/**
+	 * The workloads of a single asynchronous change, they're run in order once
+	 * it's submitted to {@link BlockChanger#WORKLOAD_RUNNABLE}.
+	 * <p>
+	 * Workloads are computed in batches and the clock is only read between them,
+	 * as reading it costs about as much as setting a block in a section. A batch
+	 * is sized to take half of the time left, going by a moving average of what
+	 * a workload of this job took so far.
+	 * </p>
+	 */
+	private static class WorkloadJob {
+
+		private static final int MAX_BATCH = 1024;
+
+		private final Deque<Workload> workloadDeque = new ArrayDeque<>();
+		private final int weight;
+		/**
+		 * Time this job ran divided by its weight
+		 */
+		private long pass;
+		/**
+		 * Moving average of the nanoseconds a single compute took, starting high so
+		 * the first batch stays short
+		 */
+		private long costNanos = 50_000;
+		/**
+		 * Whether the current workload waits for another thread, reset every tick
+		 */
+		private boolean waiting;
+
+		public WorkloadJob(Priority priority) {
+			this.weight = priority.getWeight();
+		}
+
+		public void addWorkload(Workload workload) {
+			this.workloadDeque.add(workload);
+		}
+
+		public void whenComplete(Runnable runnable) {
+			WhenCompleteWorkload workload = new WhenCompleteWorkload(runnable);
+			this.workloadDeque.add(workload);
+		}
+
+		/**
+		 * @return whether every workload has been computed
+		 */
+		public boolean run(long stopTime) {
+			Workload nextLoad;
+			long now = System.nanoTime();
+
+			while (now <= stopTime && !this.workloadDeque.isEmpty()) {
+				if (this.workloadDeque.peek().isWaiting()) {
+					waiting = true;
+					return false;
+				}
+				long batch = Math.max(1, Math.min(MAX_BATCH, (stopTime - now) / 2 / costNanos));
+				int computed = 0;
+				while (computed < batch && (nextLoad = this.workloadDeque.peek()) != null) {
+					computed++;
+					if (nextLoad.compute()) this.workloadDeque.poll();
+				}
+				long end = System.nanoTime();
+				costNanos = Math.max(1, costNanos + ((end - now) / computed - costNanos) / 8);
+				now = end;
+			}
+			return workloadDeque.isEmpty();
+		}
+
+	}
+
+	/**
+	 * Runs the jobs of every asynchronous change within a single budget per tick,
+	 * so running changes share the {@link TickBudget} instead of taking it each.
+	 * <p>
+	 * Jobs take turns in slices. A job is charged the time it ran divided by the
+	 * weight of its {@link Priority} and the job that was charged the least runs
+	 * next, so a {@link Priority#HIGH} job runs 16 times as long as a
+	 * {@link Priority#LOW} one while both are waiting. New jobs start at the
+	 * charge of the least charged job, they can't make up for the time before
+	 * they were submitted.
+	 * </p>
+	 */
+	private static class WorkloadRunnable implements Runnable {
+
+		private static final int SLICE_NANOS = 1_000_000;
+
+		/**
+		 * Jobs can be submitted from any thread, they're only run on the main one
+		 */
+		private final Queue<WorkloadJob> submittedJobs = new ConcurrentLinkedQueue<>();
+		private final List<WorkloadJob> jobs = new ArrayList<>();
+		private final TickBudget tickBudget = new TickBudget();
+		/**
+		 * Whether there was work left when the last budget ran out
+		 */
+		private boolean saturated;
+
+		public void submit(WorkloadJob job) {
+			submittedJobs.add(job);
+		}
+
+		public TickBudget getTickBudget() {
+			return tickBudget;
+		}
+
+		@Override
+		public void run() {
+			long startTime = System.nanoTime();
+			long stopTime = startTime + tickBudget.next(startTime, saturated);
+
+			WorkloadJob job;
+
+			while ((job = submittedJobs.poll()) != null) {
+				job.pass = jobs.stream().mapToLong(running -> running.pass).min().orElse(0);
+				jobs.add(job);
+			}
+
+			jobs.forEach(running -> running.waiting = false);
+
+			long now;
+
+			while (!jobs.isEmpty() && (now = System.nanoTime()) <= stopTime) {
+				job = null;
+				for (WorkloadJob running : jobs)
+					if (!running.waiting && (job == null || running.pass < job.pass)) job = running;
+				if (job == null) break;
+				boolean finished = job.run(Math.min(stopTime, now + SLICE_NANOS));
+				job.pass += (System.nanoTime() - now) / job.weight;
+				if (finished) jobs.remove(job);
+			}
+
+			saturated = jobs.stream().anyMatch(running -> !running.waiting);
+		}
+
+	}
+
+	/**
+	 * Adapts the time asynchronous changes get per tick to how busy the server
+	 * is, additive increase and multiplicative decrease like TCP congestion
+	 * control.
+	 * <p>
+	 * Whenever the changes used their whole budget and the last tick stayed under
+	 * the target, the budget grows by a millisecond. As soon as a tick goes over
+	 * it, the budget is halved. Tick times are read from the tick time history
+	 * of the server, they include the time the changes took. If it can't be
+	 * found, a tick counts as over the target when it started later than the
+	 * server's 50 ms tick rate allows.
+	 * </p>
+	 */
+	private static class TickBudget {
+
+		private static final long TICK_NANOS = 50_000_000;
+		private static final long STEP_NANOS = 1_000_000;
+
+		private volatile long targetNanos = 45_000_000;
+		private volatile long floorNanos = 1_000_000;
+		private volatile long ceilingNanos = 40_000_000;
+		private long budgetNanos = 10_000_000;
+		private long lastStartTime;
+		private final long[] lastTickTimes = SERVER_TICK_TIMES == null ? null : SERVER_TICK_TIMES.clone();
+
+		public void configure(double targetMillis, double floorMillis, double ceilingMillis) {
+			if (floorMillis <= 0 || floorMillis > ceilingMillis)
+				throw new IllegalArgumentException("The floor must be positive and not above the ceiling!");
+			this.targetNanos = (long) (targetMillis * 1E6);
+			this.floorNanos = (long) (floorMillis * 1E6);
+			this.ceilingNanos = (long) (ceilingMillis * 1E6);
+		}
+
+		/**
+		 * @param startTime {@link System#nanoTime()} at the start of this run
+		 * @param saturated whether the last budget was used up
+		 * @return nanoseconds the changes may take during this tick
+		 */
+		public long next(long startTime, boolean saturated) {
+			long lastTickNanos = getLastTickNanos(startTime);
+			lastStartTime = startTime;
+			if (lastTickNanos > targetNanos)
+				budgetNanos /= 2;
+			else if (saturated) budgetNanos += STEP_NANOS;
+			budgetNanos = Math.max(floorNanos, Math.min(ceilingNanos, budgetNanos));
+			return budgetNanos;
+		}
+
+		/**
+		 * The server writes the time of every tick into a ring buffer, the entry
+		 * that changed since the last run belongs to the last tick.
+		 */
+		private long getLastTickNanos(long startTime) {
+			if (lastTickTimes == null)
+				return lastStartTime == 0 || startTime - lastStartTime <= TICK_NANOS + STEP_NANOS ? 0
+						: Long.MAX_VALUE;
+			long lastTickNanos = 0;
+			for (int i = 0; i < lastTickTimes.length; i++) {
+				long tickNanos = SERVER_TICK_TIMES[i];
+				if (tickNanos == lastTickTimes[i]) continue;
+				lastTickTimes[i] = tickNanos;
+				lastTickNanos = Math.max(lastTickNanos, tickNanos);
+			}
+			return lastTickNanos;
+		}
+
+		public double getBudgetMillis() {
+			return budgetNanos / 1E6;
+		}
+
+	}
+
+	private static class BlockSetWorkload implements Workload {
+
+		private Object nmsWorld;
+		private Object blockPosition;
+		private Object blockData;
+		private Location location;
+		private int physics;
+
+		public BlockSetWorkload(Object nmsWorld, Object blockPosition, Object blockData, Location location,
+				boolean physics) {
+			this.nmsWorld = nmsWorld;
+			this.blockPosition = blockPosition;
+			this.blockData = blockData;
+			this.location = location;
+			this.physics = physics ? 3 : 2;
+		}
+
+		@Override
+		public boolean compute() {
+			BlockChanger.setBlockPosition(blockPosition, location.getBlockX(), location.getBlockY(),
+					location.getBlockZ());
+			BlockChanger.removeIfTileEntity(nmsWorld, blockPosition);
+			BlockChanger.setTypeAndData(nmsWorld, blockPosition, blockData, physics);
+			return true;
+		}
+
+	}
+
+	private static class ChunkSetWorkload implements Workload {
+
+		private final Edit edit;
+		private final Object blockData;
+		private final Location location;
+
+		public ChunkSetWorkload(Edit edit, Object blockData, Location location) {
+			this.edit = edit;
+			this.blockData = blockData;
+			this.location = location;
+		}
+
+		@Override
+		public boolean compute() {
+			BlockChanger.placeChunkBlock(edit, location, blockData);
+			return true;
+		}
+
+	}
+
+	private static class SectionSetWorkload implements Workload {
+
+		private final Edit edit;
+		private final Object blockData;
+		private final Location location;
+
+		public SectionSetWorkload(Edit edit, Object blockData, Location location) {
+			this.edit = edit;
+			this.blockData = blockData;
+			this.location = location;
+		}
+
+		@Override
+		public boolean compute() {
+			BlockChanger.placeSectionBlock(edit, location, blockData);
+			return true;
+		}
+
+	}
+
+	/**
+	 * Computes one element of an iterator per call, so a change of many locations
+	 * is a single workload instead of one per location. The collection is walked
+	 * while the change runs and must not be modified until it's done.
+	 */
+	private static class IteratorWorkload<T> implements Workload {
+
+		private final Iterator<T> iterator;
+		private final Consumer<T> action;
+
+		public IteratorWorkload(Iterator<T> iterator, Consumer<T> action) {
+			this.iterator = iterator;
+			this.action = action;
+		}
+
+		@Override
+		public boolean compute() {
+			if (iterator.hasNext()) action.accept(iterator.next());
+			return !iterator.hasNext();
+		}
+
 	}
 
 	/**
-	 * 
-	 * @return a list of nms block materials including block materials that cannot
-	 *         be given as
-	 *         items in an inventory,
-	 *         such as lava and water.
+	 * Fills a cuboid a section per call, walking it with a single cursor.
 	 */
-	public static Set<String> getAllNMSBlockMaterials() {
-		return NMS_BLOCK_NAMES.keySet();
+	private static class SectionFillWorkload implements Workload {
+
+		private final SectionCursor cursor;
+		private final Object blockData;
+		private final PatternTable table;
+		private final SplittableRandom random;
+		private final Edit edit;
+
+		public SectionFillWorkload(SectionCursor cursor, Object blockData, Edit edit) {
+			this(cursor, blockData, null, null, edit);
+		}
+
+		public SectionFillWorkload(SectionCursor cursor, PatternTable table, SplittableRandom random, Edit edit) {
+			this(cursor, null, table, random, edit);
+		}
+
+		private SectionFillWorkload(SectionCursor cursor, Object blockData, PatternTable table,
+				SplittableRandom random, Edit edit) {
+			this.cursor = cursor;
+			this.blockData = blockData;
+			this.table = table;
+			this.random = random;
+			this.edit = edit;
+		}
+
+		@Override
+		public boolean compute() {
+			if (!cursor.next()) return true;
+			cursor.forgetChunk();
+			if (table == null) BlockChanger.fillSection(cursor, blockData, edit);
+			else BlockChanger.fillSection(cursor, table, random, edit);
+			return false;
+		}
+
 	}
 
 	/**
-	 * physics: 3 = yes, 2 = no
-	 * 
-	 * @return methods that accept nms objects
+	 * Replaces a block with another within a cuboid a section per call.
 	 */
-	public static UncheckedSetters getUncheckedSetters() {
-		return UNCHECKED_SETTERS;
+	private static class SectionReplaceWorkload implements Workload {
+
+		private final SectionCursor cursor;
+		private final Object from, to;
+		private final Edit edit;
+
+		public SectionReplaceWorkload(SectionCursor cursor, Object from, Object to, Edit edit) {
+			this.cursor = cursor;
+			this.from = from;
+			this.to = to;
+			this.edit = edit;
+		}
+
+		@Override
+		public boolean compute() {
+			if (!cursor.next()) return true;
+			cursor.forgetChunk();
+			BlockChanger.replaceSection(cursor, from, to, edit);
+			return false;
+		}
+
 	}
 
 	/**
-	 * 
-	 * @apiNote physics: 3 = yes, 2 = no
-	 *
+	 * Fills a cuboid through the world setter a row of a section per call, so
+	 * {@link BlockChanger#setCuboidAsynchronously(Location, Location, ItemStack, boolean)}
+	 * walks the cuboid in the same chunk by chunk order as the section setters.
 	 */
-	public static class UncheckedSetters {
+	private static class CuboidSetWorkload implements Workload {
+
+		private final SectionCursor cursor;
+		private final Object nmsWorld;
+		private final Object blockPosition;
+		private final Object blockData;
+		private final PatternTable table;
+		private final SplittableRandom random;
+		private final int physics;
+		private boolean inSection;
+		private int y, z;
+
+		public CuboidSetWorkload(SectionCursor cursor, Object blockPosition, Object blockData, boolean physics) {
+			this(cursor, blockPosition, blockData, null, null, physics);
+		}
+
+		public CuboidSetWorkload(SectionCursor cursor, Object blockPosition, PatternTable table,
+				SplittableRandom random, boolean physics) {
+			this(cursor, blockPosition, null, table, random, physics);
+		}
+
+		private CuboidSetWorkload(SectionCursor cursor, Object blockPosition, Object blockData, PatternTable table,
+				SplittableRandom random, boolean physics) {
+			this.cursor = cursor;
+			this.nmsWorld = cursor.getWorld();
+			this.blockPosition = blockPosition;
+			this.blockData = blockData;
+			this.table = table;
+			this.random = random;
+			this.physics = physics ? 3 : 2;
+		}
+
+		@Override
+		public boolean compute() {
+			if (!inSection) {
+				if (!cursor.next()) return true;
+				inSection = true;
+				y = cursor.getFromY();
+				z = cursor.getFromZ();
+			}
+			for (int x = cursor.getFromX(); x <= cursor.getToX(); x++) {
+				BlockChanger.setBlockPosition(blockPosition, x, y, z);
+				BlockChanger.removeIfTileEntity(nmsWorld, blockPosition);
+				BlockChanger.setTypeAndData(nmsWorld, blockPosition, table == null ? blockData : table.next(random),
+						physics);
+			}
+			if (++z > cursor.getToZ()) {
+				z = cursor.getFromZ();
+				if (++y > cursor.getToY()) inSection = false;
+			}
+			return false;
+		}
+
+	}
+
+	/**
+	 * Pastes the bands of a {@link SchematicReader} as they come in, a section
+	 * per call. Waits for the reader whenever it has no band ready.
+	 */
+	private static class SchematicPasteWorkload implements Workload {
+
+		private final SchematicReader reader;
+		private final Edit edit;
+		private final int originX, originY, originZ;
+		private SchematicBand band;
+		private SectionCursor cursor;
+		private Throwable failure;
+
+		public SchematicPasteWorkload(SchematicReader reader, Edit edit, Location origin) {
+			this.reader = reader;
+			this.edit = edit;
+			this.originX = origin.getBlockX();
+			this.originY = origin.getBlockY();
+			this.originZ = origin.getBlockZ();
+		}
 
 		/**
-		 * 
-		 * @param nmsWorld      using {@link BlockChanger#getWorld(World)
-		 *                      getWorld(World)} or {@link BlockChanger#getWorld(String)
-		 *                      getWorld(String)}
-		 * @param blockPosition using
-		 *                      {@link BlockChanger#newMutableBlockPosition(Location)
-		 *                      newMutableBlockPosition(Location)}
-		 * @param nmsBlockData  {@link BlockChanger#getBlockData(ItemStack)
-		 *                      getBlockData(ItemStack)} or
-		 *                      {@link BlockChanger#getBlockData(Material)
-		 *                      getBlockData(Material)}
-		 * @param physics       3 = applies physics, 2 = doesn't
-		 *                      <p>
-		 *                      <i>blockPosition</i> can be further modified with new
-		 *                      coordinates using
-		 *                      {@link BlockChanger#setBlockPosition(Object, Object, Object, Object)}
+		 * @return why the paste ended early, or null
 		 */
-		public void setBlock(Object nmsWorld, Object blockPosition, Object nmsBlockData, int physics) {
-			setTypeAndData(nmsWorld, blockPosition, nmsBlockData, physics);
+		public @Nullable Throwable getFailure() {
+			return failure;
+		}
+
+		@Override
+		public boolean compute() {
+			try {
+				return pasteNext();
+			} catch (Throwable e) {
+				// Ends the paste, the reader would otherwise wait for its bands forever
+				failure = e;
+				reader.cancel();
+				return true;
+			}
+		}
+
+		private boolean pasteNext() {
+			if (band == null) {
+				// Checked before polling so a band queued right before the end isn't missed
+				boolean done = reader.isDone();
+				band = reader.pollBand();
+				if (band == null) return done;
+				if (band.blocks.length == 0) {
+					band = null;
+					return false;
+				}
+				int bottomY = originY + band.y;
+				cursor = new SectionCursor(edit.getWorld(), originX, bottomY, originZ, originX + band.width - 1,
+						bottomY + band.layers - 1, originZ + band.length - 1);
+			}
+			if (!cursor.next()) {
+				band = null;
+				return false;
+			}
+			cursor.forgetChunk();
+			pasteSection();
+			return false;
+		}
+
+		@Override
+		public boolean isWaiting() {
+			return band == null && !reader.isDone() && !reader.hasBand();
+		}
+
+		private void pasteSection() {
+			Object nmsWorld = edit.getWorld();
+			Object blockPosition = edit.getBlockPosition();
+			boolean notify = edit.sectionChanging(cursor);
+			boolean tileEntities = TILE_ENTITY_MANAGER.hasCapturedTileEntities(nmsWorld);
+			Object section = cursor.getSection();
+			Object[] palette = band.palette;
+			short[] blocks = band.blocks;
+			int bottomY = originY + band.y;
+			for (int y = cursor.getFromY(); y <= cursor.getToY(); y++) {
+				for (int z = cursor.getFromZ(); z <= cursor.getToZ(); z++) {
+					int row = ((y - bottomY) * band.length + z - originZ) * band.width - originX;
+					for (int x = cursor.getFromX(); x <= cursor.getToX(); x++) {
+						Object blockData = palette[blocks[row + x] & 0xFFFF];
+						if (!edit.sectionBlockChanging(section, x, y, z, blockData)) continue;
+						BlockChanger.setBlockPosition(blockPosition, x, y, z);
+						if (tileEntities) BlockChanger.removeIfTileEntity(nmsWorld, blockPosition);
+						BlockChanger.setTypeChunkSection(section, x & 15, y & 15, z & 15, blockData);
+						if (notify) BlockChanger.updateBlock(nmsWorld, blockPosition, blockData, edit.isPhysics());
+					}
+				}
+			}
+			edit.sectionChanged(cursor);
+		}
+
+	}
+
+	/**
+	 * Copies a cuboid into a {@link Clipboard} a section per call. Sections that
+	 * don't exist are copied as air without being created.
+	 */
+	private static class RegionCopy implements Workload {
+
+		private final SectionCursor cursor;
+		private final Clipboard clipboard;
+		private final int minX, minY, minZ;
+
+		public RegionCopy(Location loc1, Location loc2) {
+			if (CHUNK_SECTION_GET_TYPE == null)
+				throw new UnsupportedOperationException("Regions can only be copied on 1.8+");
+			this.cursor = new SectionCursor(BlockChanger.getWorld(loc1.getWorld()), loc1, loc2);
+			this.minX = Math.min(loc1.getBlockX(), loc2.getBlockX());
+			this.minY = Math.min(loc1.getBlockY(), loc2.getBlockY());
+			this.minZ = Math.min(loc1.getBlockZ(), loc2.getBlockZ());
+			this.clipboard = new Clipboard(Math.abs(loc1.getBlockX() - loc2.getBlockX()) + 1,
+					Math.abs(loc1.getBlockY() - loc2.getBlockY()) + 1,
+					Math.abs(loc1.getBlockZ() - loc2.getBlockZ()) + 1);
+		}
+
+		public Clipboard getClipboard() {
+			return clipboard;
+		}
+
+		@Override
+		public boolean compute() {
+			if (!cursor.next()) return true;
+			cursor.forgetChunk();
+			Object section = cursor.getExistingSection();
+			int width = clipboard.getWidth();
+			int length = clipboard.getLength();
+			for (int y = cursor.getFromY(); y <= cursor.getToY(); y++) {
+				for (int z = cursor.getFromZ(); z <= cursor.getToZ(); z++) {
+					int row = ((y - minY) * length + z - minZ) * width - minX;
+					for (int x = cursor.getFromX(); x <= cursor.getToX(); x++) {
+						clipboard.set(row + x, section == null ? AIR_BLOCK_DATA
+								: BlockChanger.getTypeChunkSection(section, x & 15, y & 15, z & 15));
+					}
+				}
+			}
+			return false;
+		}
+
+	}
+
+	/**
+	 * Pastes a {@link Clipboard} a section per call.
+	 */
+	private static class ClipboardPasteWorkload implements Workload {
+
+		private final Clipboard clipboard;
+		private final Edit edit;
+		private final SectionCursor cursor;
+		private final int originX, originY, originZ;
+
+		public ClipboardPasteWorkload(Clipboard clipboard, Edit edit, Location origin) {
+			this.clipboard = clipboard;
+			this.edit = edit;
+			this.originX = origin.getBlockX();
+			this.originY = origin.getBlockY();
+			this.originZ = origin.getBlockZ();
+			this.cursor = new SectionCursor(edit.getWorld(), originX, originY, originZ,
+					originX + clipboard.getWidth() - 1, originY + clipboard.getHeight() - 1,
+					originZ + clipboard.getLength() - 1);
+		}
+
+		@Override
+		public boolean compute() {
+			if (!cursor.next()) return true;
+			cursor.forgetChunk();
+			Object nmsWorld = edit.getWorld();
+			Object blockPosition = edit.getBlockPosition();
+			boolean notify = edit.sectionChanging(cursor);
+			boolean tileEntities = TILE_ENTITY_MANAGER.hasCapturedTileEntities(nmsWorld);
+			Object section = cursor.getSection();
+			int width = clipboard.getWidth();
+			int length = clipboard.getLength();
+			for (int y = cursor.getFromY(); y <= cursor.getToY(); y++) {
+				for (int z = cursor.getFromZ(); z <= cursor.getToZ(); z++) {
+					int row = ((y - originY) * length + z - originZ) * width - originX;
+					for (int x = cursor.getFromX(); x <= cursor.getToX(); x++) {
+						Object blockData = clipboard.getPaletteEntry(clipboard.get(row + x));
+						if (!edit.sectionBlockChanging(section, x, y, z, blockData)) continue;
+						BlockChanger.setBlockPosition(blockPosition, x, y, z);
+						if (tileEntities) BlockChanger.removeIfTileEntity(nmsWorld, blockPosition);
+						BlockChanger.setTypeChunkSection(section, x & 15, y & 15, z & 15, blockData);
+						if (notify) BlockChanger.updateBlock(nmsWorld, blockPosition, blockData, edit.isPhysics());
+					}
+				}
+			}
+			edit.sectionChanged(cursor);
+			return false;
 		}
 
+	}
+
+	private static class SectionScanTask<R> extends RecursiveTask<R> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<SectionSnapshot> sections;
+		private final int from, to;
+		private final Function<SectionSnapshot, R> mapper;
+		private final BinaryOperator<R> combiner;
+
 		/**
-		 * 
-		 * @param nmsWorld      using {@link BlockChanger#getWorld(World)
-		 *                      getWorld(World)} or {@link BlockChanger#getWorld(String)
-		 *                      getWorld(String)}
-		 * @param blockPosition using
-		 *                      {@link BlockChanger#newMutableBlockPosition(Location)
-		 *                      newMutableBlockPosition(Location)}
-		 * @param nmsBlockData  {@link BlockChanger#getBlockData(ItemStack)
-		 *                      getBlockData(ItemStack)} or
-		 *                      {@link BlockChanger#getBlockData(Material)
-		 *                      getBlockData(Material)}
-		 * @param x             x coordinate of the block
-		 * @param z             z coordinate of the block
-		 * @param physics       3 = applies physics, 2 = doesn't
-		 *                      <p>
-		 *                      <i>blockPosition</i> can be further modified with new
-		 *                      coordinates using
-		 *                      {@link BlockChanger#setBlockPosition(Object, Object, Object, Object)}
+		 * @param from first section, inclusive
+		 * @param to   last section, exclusive
+		 */
+		public SectionScanTask(List<SectionSnapshot> sections, int from, int to, Function<SectionSnapshot, R> mapper,
+				BinaryOperator<R> combiner) {
+			this.sections = sections;
+			this.from = from;
+			this.to = to;
+			this.mapper = mapper;
+			this.combiner = combiner;
+		}
+
+		@Override
+		protected R compute() {
+			if (to - from == 1) return mapper.apply(sections.get(from));
+			int middle = (from + to) >>> 1;
+			SectionScanTask<R> right = new SectionScanTask<>(sections, middle, to, mapper, combiner);
+			right.fork();
+			R left = new SectionScanTask<>(sections, from, middle, mapper, combiner).compute();
+			return combiner.apply(left, right.join());
+		}
+
+	}
+
+	/**
+	 * Block a {@link TrackedRegion} sets a marked position back to, null to leave
+	 * it as it is.
+	 */
+	@FunctionalInterface
+	private interface TrackedBlocks {
+
+		@Nullable
+		Object get(int x, int y, int z);
+
+	}
+
+	/**
+	 * Alias table of a {@link BlockPattern} built with Vose's method. Each column
+	 * holds a block and the chance to keep it, otherwise its alias is drawn, so
+	 * every draw is a column and a coin flip whatever the number of blocks.
+	 */
+	private static class PatternTable {
+
+		private final Object[] states;
+		private final double[] chances;
+		private final Object[] aliases;
+
+		public PatternTable(List<Object> blocks, List<Double> weights) {
+			int n = blocks.size();
+			this.states = blocks.toArray();
+			this.chances = new double[n];
+			this.aliases = new Object[n];
+			double sum = 0;
+			for (double weight : weights) sum += weight;
+			double[] scaled = new double[n];
+			int[] small = new int[n], large = new int[n];
+			int smallSize = 0, largeSize = 0;
+			for (int i = 0; i < n; i++) {
+				scaled[i] = weights.get(i) * n / sum;
+				if (scaled[i] < 1) small[smallSize++] = i;
+				else large[largeSize++] = i;
+			}
+			while (smallSize > 0 && largeSize > 0) {
+				int less = small[--smallSize];
+				int more = large[--largeSize];
+				chances[less] = scaled[less];
+				aliases[less] = states[more];
+				scaled[more] += scaled[less] - 1;
+				if (scaled[more] < 1) small[smallSize++] = more;
+				else large[largeSize++] = more;
+			}
+			// Whatever is left is 1 give or take rounding errors
+			while (largeSize > 0) chances[large[--largeSize]] = 1;
+			while (smallSize > 0) chances[small[--smallSize]] = 1;
+		}
+
+		public boolean isSingle() {
+			return states.length == 1;
+		}
+
+		public Object getSingle() {
+			return states[0];
+		}
+
+		public Object next(SplittableRandom random) {
+			int column = random.nextInt(states.length);
+			return random.nextDouble() < chances[column] ? states[column] : aliases[column];
+		}
+
+	}
+
+	/**
+	 * Blocks a section held before a change first set them. Sections hold at most
+	 * 4096 blocks so a clipboard of a section packs them in at most 12 bits each.
+	 */
+	private static class SectionDelta {
+
+		private final int chunkX, sectionY, chunkZ;
+		/**
+		 * Bit per block of the section, set once it's recorded
+		 */
+		private final long[] recorded;
+		private final Clipboard states;
+
+		public SectionDelta(int chunkX, int sectionY, int chunkZ) {
+			this(chunkX, sectionY, chunkZ, new long[64], new Clipboard(16, 16, 16));
+		}
+
+		private SectionDelta(int chunkX, int sectionY, int chunkZ, long[] recorded, Clipboard states) {
+			this.chunkX = chunkX;
+			this.sectionY = sectionY;
+			this.chunkZ = chunkZ;
+			this.recorded = recorded;
+			this.states = states;
+		}
+
+		/**
+		 * Keeps the first block recorded at each position, which is what it held
+		 * before the change.
 		 */
-		public void setChunkBlock(Object nmsWorld, Object blockPosition, Object nmsBlockData, int x, int z,
-				boolean physics) {
-			Object chunk = getChunkAt(nmsWorld, x, z);
-			setType(chunk, blockPosition, nmsBlockData, physics);
-			updateBlock(nmsWorld, blockPosition, nmsBlockData, physics);
+		public void record(int x, int y, int z, Object previous) {
+			int index = (y & 15) << 8 | (z & 15) << 4 | x & 15;
+			long bit = 1L << index;
+			if ((recorded[index >>> 6] & bit) != 0) return;
+			recorded[index >>> 6] |= bit;
+			states.set(index, previous);
 		}
 
 		/**
-		 * 
-		 * @param nmsWorld      using {@link BlockChanger#getWorld(World)
-		 *                      getWorld(World)} or {@link BlockChanger#getWorld(String)
-		 *                      getWorld(String)}
-		 * @param blockPosition using
-		 *                      {@link BlockChanger#newMutableBlockPosition(Location)
-		 *                      newMutableBlockPosition(Location)}
-		 * @param nmsBlockData  {@link BlockChanger#getBlockData(ItemStack)
-		 *                      getBlockData(ItemStack)} or
-		 *                      {@link BlockChanger#getBlockData(Material)
-		 *                      getBlockData(Material)}
-		 * @param x             x coordinate of the block
-		 * @param y             y coordinate of the block
-		 * @param z             z coordinate of the block
-		 * @param physics       3 = applies physics, 2 = doesn't
-		 *                      <p>
-		 *                      <i>blockPosition</i> can be further modified with new
-		 *                      coordinates using
-		 *                      {@link BlockChanger#setBlockPosition(Object, Object, Object, Object)}
+		 * Block data are written as their state ids, which are only valid while
+		 * the server runs the same version like the history itself.
 		 */
-		public void setSectionBlock(Object nmsWorld, Object blockPosition, Object nmsBlockData, int x, int y, int z,
-				boolean physics) {
-			Object nmsChunk = getChunkAt(nmsWorld, x, z);
-			int j = x & 15;
-			int k = y & 15;
-			int l = z & 15;
-			Object[] sections = getSections(nmsChunk);
-			Object section = getSection(nmsChunk, sections, y);
-			setTypeChunkSection(section, j, k, l, nmsBlockData);
-			updateBlock(nmsWorld, blockPosition, nmsWorld, physics);
+		public byte[] compress() {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+				out.writeInt(chunkX);
+				out.writeInt(sectionY);
+				out.writeInt(chunkZ);
+				for (long word : recorded) out.writeLong(word);
+				out.writeShort(states.palette.size());
+				for (Object blockData : states.palette) out.writeInt(BlockChanger.getStateId(blockData));
+				out.writeByte(states.bits[0]);
+				for (long word : states.data[0]) out.writeLong(word);
+			} catch (IOException e) {
+				// Not thrown by in-memory streams
+				throw new IllegalStateException(e);
+			}
+			return bytes.toByteArray();
+		}
+
+		public static SectionDelta decompress(byte[] compressed) throws IOException {
+			try (DataInputStream in = new DataInputStream(
+					new InflaterInputStream(new ByteArrayInputStream(compressed)))) {
+				int chunkX = in.readInt();
+				int sectionY = in.readInt();
+				int chunkZ = in.readInt();
+				long[] recorded = new long[64];
+				for (int i = 0; i < recorded.length; i++) recorded[i] = in.readLong();
+				Clipboard states = new Clipboard(16, 16, 16);
+				int paletteSize = in.readUnsignedShort();
+				for (int i = 0; i < paletteSize; i++) {
+					Object blockData = BlockChanger.getBlockData(in.readInt());
+					states.palette.add(blockData);
+					states.paletteIndices.putIfAbsent(blockData, i);
+				}
+				states.bits[0] = in.readByte();
+				long[] data = states.data[0] = new long[Clipboard.dataLength(4096, states.bits[0])];
+				for (int i = 0; i < data.length; i++) data[i] = in.readLong();
+				return new SectionDelta(chunkX, sectionY, chunkZ, recorded, states);
+			}
 		}
 
 	}
 
-	private interface TileEntityManager {
+	/**
+	 * Records the blocks of a single change into {@link SectionDelta}s. The
+	 * sections it's still writing to are kept open, a section is deflated once
+	 * too many others were written to after it.
+	 */
+	private static class HistoryRecorder {
 
-		default Object getCapturedTileEntities(Object nmsWorld) {
-			try {
-				return WORLD_CAPTURED_TILE_ENTITIES.invoke(nmsWorld);
-			} catch (Throwable e) {
-				e.printStackTrace();
+		private static final int MAX_OPEN_SECTIONS = 64;
+
+		private final History history;
+		private final UUID worldId;
+		private final boolean replay, redo;
+		/**
+		 * Null while recording an undo or redo, those are waited for on their own
+		 */
+		private final CompletableFuture<Void> recorded;
+		private final List<byte[]> sections = new ArrayList<>();
+		private final Map<Long, SectionDelta> openSections = new LinkedHashMap<Long, SectionDelta>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, SectionDelta> eldest) {
+				if (size() <= MAX_OPEN_SECTIONS) return false;
+				sections.add(eldest.getValue().compress());
+				if (eldest.getValue() == current) current = null;
+				return true;
 			}
-			return null;
+
+		};
+		private SectionDelta current;
+
+		/**
+		 * @param replay whether it records undoing or redoing a change
+		 * @param redo   whether it records into the redo entries
+		 */
+		public HistoryRecorder(History history, World world, boolean replay, boolean redo) {
+			this.history = history;
+			this.worldId = world.getUID();
+			this.replay = replay;
+			this.redo = redo;
+			this.recorded = replay ? null : history.startRecording();
 		}
 
-		default boolean isTileEntity(Object nmsWorld, Object blockPosition) {
-			try {
-				return (boolean) IS_TILE_ENTITY.invoke(getCapturedTileEntities(nmsWorld), blockPosition);
-			} catch (Throwable e) {
-				e.printStackTrace();
+		public void record(int x, int y, int z, Object previous) {
+			getDelta(x >> 4, y >> 4, z >> 4).record(x, y, z, previous);
+		}
+
+		/**
+		 * Records the part of the cuboid within the current section of the cursor.
+		 */
+		public void record(SectionCursor cursor) {
+			SectionDelta delta = getDelta(cursor.getFromX() >> 4, cursor.getFromY() >> 4, cursor.getFromZ() >> 4);
+			Object section = cursor.getExistingSection();
+			for (int y = cursor.getFromY(); y <= cursor.getToY(); y++) {
+				for (int z = cursor.getFromZ(); z <= cursor.getToZ(); z++) {
+					for (int x = cursor.getFromX(); x <= cursor.getToX(); x++) {
+						delta.record(x, y, z, section == null ? AIR_BLOCK_DATA
+								: BlockChanger.getTypeChunkSection(section, x & 15, y & 15, z & 15));
+					}
+				}
 			}
-			return false;
 		}
 
-		default void destroyTileEntity(Object nmsWorld, Object blockPosition) {
-			try {
-				WORLD_REMOVE_TILE_ENTITY.invoke(nmsWorld, blockPosition);
-			} catch (Throwable e) {
-				e.printStackTrace();
+		private SectionDelta getDelta(int chunkX, int sectionY, int chunkZ) {
+			if (current != null && current.chunkX == chunkX && current.sectionY == sectionY
+					&& current.chunkZ == chunkZ)
+				return current;
+			long key = BlockChanger.sectionKey(chunkX, sectionY, chunkZ);
+			SectionDelta delta = openSections.get(key);
+			if (delta == null) {
+				delta = new SectionDelta(chunkX, sectionY, chunkZ);
+				openSections.put(key, delta);
 			}
+			return current = delta;
 		}
 
-		/*
-		 * Store bukkit block variable {
-		 * Block block = ...
-		 * }
-		 * Get block data (title entity data still exists in old the bukkit block
-		 * variable) {
-		 * Object blockData = BlockChanger.getBlockData(block);
-		 * }
-		 * Set block using BlockChanger within the method {
-		 * setType(...)
-		 * }
-		 * Check if block is a title entity {
-		 * isTitleEntity
-		 * }
-		 * Get tile entity that was stored in the bukkit block variable {
-		 * CraftBlockState craftBlockState = (CraftBlockState)block.getState();
-		 * // getState() creates a new block state with the location of that block
-		 * TileEntity nmsTileEntity = craftBlockState.getTileEntity();
-		 * }
-		 * Set tile entity using BlockChanger {
-		 * <Use nms method that applies tile entity on the block>
-		 * }
+		/**
+		 * Deflates the sections still open and adds the change to the history.
 		 */
+		public void finish() {
+			openSections.values().forEach(delta -> sections.add(delta.compress()));
+			openSections.clear();
+			current = null;
+			if (!sections.isEmpty()) history.add(new HistoryEntry(worldId, sections), replay, redo);
+			if (recorded != null) history.finishRecording(recorded);
+		}
 
 	}
 
-	private static class TileEntityManagerSupported implements TileEntityManager {}
+	/**
+	 * Deflated sections of a single change, kept in memory until the history
+	 * spills them to a file.
+	 */
+	private static class HistoryEntry {
 
-	private static class TileEntityManagerDummy implements TileEntityManager {
+		private final UUID worldId;
+		private List<byte[]> sections;
+		private long memoryBytes;
+		private Path file;
 
-		@Override
-		public Object getCapturedTileEntities(Object nmsWorld) {
-			return null;
+		public HistoryEntry(UUID worldId, List<byte[]> sections) {
+			this.worldId = worldId;
+			this.sections = sections;
+			for (byte[] section : sections) memoryBytes += section.length;
 		}
 
-		@Override
-		public boolean isTileEntity(Object nmsWorld, Object blockPosition) {
-			return false;
+		/**
+		 * @return bytes it takes in memory, 0 once it's spilled
+		 */
+		public long getMemoryBytes() {
+			return memoryBytes;
 		}
 
-		@Override
-		public void destroyTileEntity(Object nmsWorld, Object blockPosition) {}
+		/**
+		 * @return the sections, null once it's spilled
+		 */
+		public @Nullable List<byte[]> getSections() {
+			return sections;
+		}
 
-	}
+		/**
+		 * Writes sections to a new file of the folder, from any thread.
+		 * 
+		 * @return the file, null if it couldn't be written
+		 */
+		public static @Nullable Path write(File folder, List<byte[]> sections) {
+			Path file = null;
+			try {
+				Files.createDirectories(folder.toPath());
+				file = Files.createTempFile(folder.toPath(), "history", ".bin");
+				try (DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(Files.newOutputStream(file)))) {
+					out.writeInt(sections.size());
+					for (byte[] section : sections) {
+						out.writeInt(section.length);
+						out.write(section);
+					}
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+				if (file != null) file.toFile().delete();
+				return null;
+			}
+			return file;
+		}
 
-	private interface BlockDataRetriever {
+		/**
+		 * Drops the sections in favor of the file they were written to.
+		 * 
+		 * @return bytes freed
+		 */
+		public long spilled(Path file) {
+			long freed = memoryBytes;
+			this.file = file;
+			sections = null;
+			memoryBytes = 0;
+			return freed;
+		}
 
-		default Object getNMSItem(ItemStack itemStack) throws Throwable {
-			if (itemStack == null) throw new NullPointerException("ItemStack is null!");
-			if (itemStack.getType() == Material.AIR) return null;
-			if (NMS_BLOCK_NAMES.containsKey(itemStack.getType().name())) return null;
-			Object nmsItemStack = NMS_ITEM_STACK_COPY.invoke(itemStack);
-			if (nmsItemStack == null) return null;
-			return NMS_ITEM_STACK_TO_ITEM.invoke(nmsItemStack);
+		/**
+		 * Reads the sections back if they were spilled, deleting the file.
+		 */
+		public List<byte[]> load() throws IOException {
+			if (sections != null) return sections;
+			List<byte[]> loaded;
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+				int count = in.readInt();
+				loaded = new ArrayList<>(count);
+				for (int i = 0; i < count; i++) {
+					byte[] section = new byte[in.readInt()];
+					in.readFully(section);
+					loaded.add(section);
+				}
+			}
+			delete();
+			return loaded;
 		}
 
-		// 1.7-1.12 requires 2 methods to get block data
-		default Object fromBlock(Block block) {
+		public void delete() {
+			if (file == null) return;
 			try {
-				Object nmsBlock = CRAFT_BLOCK_GET_NMS_BLOCK.invoke(block);
-				return NMS_BLOCK_GET_BLOCK_DATA.invoke(nmsBlock);
-			} catch (Throwable e) {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
 				e.printStackTrace();
 			}
-			return null;
+			file = null;
 		}
 
-		Object fromItemStack(ItemStack itemStack);
-
 	}
 
-	// 1.13+ or 1.8+ without data support
-	private static class BlockDataGetter implements BlockDataRetriever {
+	private static class WhenCompleteWorkload implements Workload {
 
-		@Override
-		public Object fromItemStack(ItemStack itemStack) {
-			try {
-				Object nmsItem = getNMSItem(itemStack);
-				Object block = nmsItem != null ? NMS_BLOCK_FROM_ITEM.invoke(nmsItem)
-						: NMS_BLOCK_NAMES.get(itemStack.getType().name());
-				return ITEM_TO_BLOCK_DATA.invoke(block);
-			} catch (Throwable e) {
-				e.printStackTrace();
-			}
-			return null;
+		private Runnable runnable;
+
+		public WhenCompleteWorkload(Runnable runnable) {
+			this.runnable = runnable;
 		}
 
-		// 1.13+ one method to get block data (getNMS())
 		@Override
-		public Object fromBlock(Block block) {
-			try {
-				return NMS_BLOCK_GET_BLOCK_DATA.invoke(block);
-			} catch (Throwable e) {
-				e.printStackTrace();
-			}
-			return null;
+		public boolean compute() {
+			runnable.run();
+			return true;
 		}
 
 	}
 
-	// 1.8-1.12
-	private static class BlockDataGetterLegacy implements BlockDataRetriever {
+}
 
-		@Override
-		public Object fromItemStack(ItemStack itemStack) {
-			try {
-				Object nmsItem = getNMSItem(itemStack);
-				Object possibleBlock = NMS_BLOCK_FROM_NAME.invoke(itemStack.getType().name().toLowerCase());
-				if (nmsItem == null && possibleBlock == null) return AIR_BLOCK_DATA;
-				Object block = possibleBlock == null ? NMS_BLOCK_FROM_ITEM.invoke(nmsItem) : possibleBlock;
-				short data = itemStack.getDurability();
-				return data > 0 ? BLOCK_DATA_FROM_LEGACY_DATA.invoke(block, data) : ITEM_TO_BLOCK_DATA.invoke(block);
-			} catch (Throwable e) {
-				e.printStackTrace();
+interface BlockPositionConstructor {
+
+	Object newBlockPosition(Object world, Object x, Object y, Object z);
+
+	Object newMutableBlockPosition(Object world, Object x, Object y, Object z);
+
+	Object set(Object mutableBlockPosition, Object x, Object y, Object z);
+
+	Object newBlockPosition(Object world, int x, int y, int z);
+
+	Object newMutableBlockPosition(Object world, int x, int y, int z);
+
+	Object set(Object mutableBlockPosition, int x, int y, int z);
+
+}
+
+interface BlockUpdater {
+
+	void setType(Object chunk, Object blockPosition, Object blockData, boolean physics);
+
+	void update(Object world, Object blockPosition, Object blockData, int physics);
+
+	Object getSection(Object nmsChunk, Object[] sections, int y);
+
+	int getSectionIndex(Object nmsChunk, int y);
+
+}
+
+interface SectionFiller {
+
+	/**
+	 * Puts a section that only contains <i>blockData</i> in place of
+	 * <i>section</i>.
+	 * 
+	 * @param sections  sections of the chunk
+	 * @param index     index of the section within <i>sections</i>
+	 * @param sectionY  y of the section (block y >> 4)
+	 * @param section   section to replace
+	 * @param blockData block data to fill the section with
+	 * @return false if the section couldn't be replaced
+	 */
+	boolean fill(Object[] sections, int index, int sectionY, Object section, Object blockData);
+
+}
+
+class SectionFillerLegacy implements SectionFiller {
+
+	private final MethodHandle chunkSection;
+	private final MethodHandle setSectionElement;
+	private final SectionSetter sectionSetter;
+	// Up to 1.13 only
+	private final MethodHandle getEmittedLight;
+	private final MethodHandle getSkyLight;
+	private final MethodHandle setEmittedLight;
+	private final MethodHandle setSkyLight;
+
+	public SectionFillerLegacy(MethodHandle chunkSection, MethodHandle setSectionElement, SectionSetter sectionSetter,
+			MethodHandle getEmittedLight, MethodHandle getSkyLight, MethodHandle setEmittedLight,
+			MethodHandle setSkyLight) {
+		this.chunkSection = chunkSection;
+		this.setSectionElement = setSectionElement;
+		this.sectionSetter = sectionSetter;
+		this.getEmittedLight = getEmittedLight;
+		this.getSkyLight = getSkyLight;
+		this.setEmittedLight = setEmittedLight;
+		this.setSkyLight = setSkyLight;
+	}
+
+	@Override
+	public boolean fill(Object[] sections, int index, int sectionY, Object section, Object blockData) {
+		try {
+			Object newSection;
+			if (getSkyLight != null) {
+				Object skyLight = getSkyLight.invoke(section);
+				newSection = chunkSection.invoke(sectionY << 4, skyLight != null);
+				setEmittedLight.invoke(newSection, getEmittedLight.invoke(section));
+				if (skyLight != null) setSkyLight.invoke(newSection, skyLight);
+			} else {
+				newSection = chunkSection.invoke(sectionY << 4);
 			}
-			return null;
+			// Nobody else sees the new section yet and its palette only ever holds one
+			// entry
+			for (int y = 0; y < 16; y++) {
+				for (int z = 0; z < 16; z++) {
+					for (int x = 0; x < 16; x++) sectionSetter.setType(newSection, x, y, z, blockData);
+				}
+			}
+			setSectionElement.invoke(sections, index, newSection);
+			return true;
+		} catch (Throwable e) {
+			e.printStackTrace();
 		}
+		return false;
+	}
+
+}
+
+interface PaletteRemapper {
+
+	/**
+	 * @return false if <i>blockData</i> is certainly not in the section
+	 */
+	boolean maybeHas(Object section, Object blockData);
+
+	/**
+	 * Replaces <i>from</i> with <i>to</i> in the palette of the section, which
+	 * changes every block of that state at once. Palettes shared between copies
+	 * of their container, like single value ones, are never rewritten.
+	 * 
+	 * @param sections sections of the chunk
+	 * @param index    index of the section within <i>sections</i>
+	 * @param sectionY y of the section (block y >> 4)
+	 * @param section  section to remap
+	 * @return false if its palette can't be rewritten, nothing was changed then
+	 */
+	boolean remap(Object[] sections, int index, int sectionY, Object section, Object from, Object to);
+
+	/**
+	 * @return the only block data of the section or null if its palette holds
+	 *         more than one
+	 */
+	@Nullable
+	Object getSingleValue(Object section);
+
+	/**
+	 * Copies the palette and the packed indices of a section whose palette is a
+	 * short list, in the order of {@link BlockChanger.SectionSnapshot}.
+	 * 
+	 * @return null if the palette is of any other kind
+	 */
+	@Nullable
+	PaletteCopy copy(Object section);
 
-	}
+	final class PaletteCopy {
 
-	// 1.7
-	private static class BlockDataGetterAncient implements BlockDataRetriever {
+		final Object[] palette;
+		final int bits;
+		final long[] data;
 
-		@Override
-		public Object fromItemStack(ItemStack itemStack) {
-			try {
-				Object nmsItem = getNMSItem(itemStack);
-				if (nmsItem == null) return AIR_BLOCK_DATA;
-				return NMS_BLOCK_FROM_ITEM.invoke(nmsItem);
-			} catch (Throwable e) {
-				e.printStackTrace();
-			}
-			return null;
+		PaletteCopy(Object[] palette, int bits, long[] data) {
+			this.palette = palette;
+			this.bits = bits;
+			this.data = data;
 		}
 
 	}
 
-	private static interface Workload {
+}
 
-		boolean compute();
+class PaletteRemapperLatest implements PaletteRemapper {
+
+	private final MethodHandle maybeHas;
+	private final MethodHandle statesGetter;
+	private final MethodHandle biomesGetter;
+	private final MethodHandle dataGetter;
+	private final MethodHandle paletteGetter;
+	private final MethodHandle rawGetter;
+	private final Class<?> singleValuePalette;
+	private final MethodHandle singleValueGetter;
+	private final Class<?> linearPalette;
+	private final MethodHandle linearValuesGetter;
+	private final MethodHandle linearSizeGetter;
+	private final MethodHandle newSection;
+	private final MethodHandle setSectionElement;
 
+	/**
+	 * @param dataGetter    data record of a container
+	 * @param paletteGetter palette of a data record
+	 * @param rawGetter     packed indices of a data record
+	 */
+	public PaletteRemapperLatest(MethodHandle maybeHas, MethodHandle statesGetter, MethodHandle biomesGetter,
+			MethodHandle dataGetter, MethodHandle paletteGetter, MethodHandle rawGetter, Class<?> singleValuePalette,
+			MethodHandle singleValueGetter, Class<?> linearPalette, MethodHandle linearValuesGetter,
+			MethodHandle linearSizeGetter, MethodHandle newSection, MethodHandle setSectionElement) {
+		this.maybeHas = maybeHas;
+		this.statesGetter = statesGetter;
+		this.biomesGetter = biomesGetter;
+		this.dataGetter = dataGetter;
+		this.paletteGetter = paletteGetter;
+		this.rawGetter = rawGetter;
+		this.singleValuePalette = singleValuePalette;
+		this.singleValueGetter = singleValueGetter;
+		this.linearPalette = linearPalette;
+		this.linearValuesGetter = linearValuesGetter;
+		this.linearSizeGetter = linearSizeGetter;
+		this.newSection = newSection;
+		this.setSectionElement = setSectionElement;
 	}
 
-	private static class WorkloadRunnable implements Runnable {
-
-		private static final double MAX_MILLIS_PER_TICK = 10.0;
-		private static final int MAX_NANOS_PER_TICK = (int) (MAX_MILLIS_PER_TICK * 1E6);
-
-		private final Deque<Workload> workloadDeque = new ArrayDeque<>();
-
-		public void addWorkload(Workload workload) {
-			this.workloadDeque.add(workload);
+	@Override
+	public boolean maybeHas(Object section, Object blockData) {
+		try {
+			Predicate<Object> isState = state -> state == blockData;
+			return (boolean) maybeHas.invokeExact((Object) statesGetter.invokeExact(section), isState);
+		} catch (Throwable e) {
+			e.printStackTrace();
 		}
+		return true;
+	}
 
-		public void whenComplete(Runnable runnable) {
-			WhenCompleteWorkload workload = new WhenCompleteWorkload(runnable);
-			this.workloadDeque.add(workload);
+	@Override
+	public boolean remap(Object[] sections, int index, int sectionY, Object section, Object from, Object to) {
+		try {
+			Object states = (Object) statesGetter.invokeExact(section);
+			Object palette = (Object) paletteGetter.invokeExact((Object) dataGetter.invokeExact(states));
+			if (singleValuePalette.isInstance(palette)) {
+				// Its copy() returns itself, rewriting it would change every copy of the container too
+				return (Object) singleValueGetter.invokeExact(palette) != from;
+			} else if (linearPalette.isInstance(palette)) {
+				Object[] values = (Object[]) linearValuesGetter.invokeExact(palette);
+				int size = (int) linearSizeGetter.invokeExact(palette);
+				boolean changed = false;
+				for (int i = 0; i < size; i++) {
+					if (values[i] != from) continue;
+					values[i] = to;
+					changed = true;
+				}
+				if (!changed) return true;
+			} else {
+				return false;
+			}
+			Object biomes = (Object) biomesGetter.invokeExact(section);
+			setSectionElement.invokeExact(sections, index, (Object) newSection.invokeExact(sectionY, states, biomes));
+			return true;
+		} catch (Throwable e) {
+			e.printStackTrace();
 		}
+		return false;
+	}
 
-		@Override
-		public void run() {
-			long stopTime = System.nanoTime() + MAX_NANOS_PER_TICK;
-
-			Workload nextLoad;
+	@Override
+	public @Nullable Object getSingleValue(Object section) {
+		try {
+			Object states = (Object) statesGetter.invokeExact(section);
+			Object palette = (Object) paletteGetter.invokeExact((Object) dataGetter.invokeExact(states));
+			return singleValuePalette.isInstance(palette) ? (Object) singleValueGetter.invokeExact(palette) : null;
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
 
-			while (System.nanoTime() <= stopTime && (nextLoad = this.workloadDeque.poll()) != null) {
-				nextLoad.compute();
+	@Override
+	public @Nullable PaletteCopy copy(Object section) {
+		try {
+			// The palette and indices are swapped together, reading both from one record keeps them in sync
+			Object data = (Object) dataGetter.invokeExact((Object) statesGetter.invokeExact(section));
+			Object palette = (Object) paletteGetter.invokeExact(data);
+			if (!linearPalette.isInstance(palette)) return null;
+			Object[] values = (Object[]) linearValuesGetter.invokeExact(palette);
+			int size = (int) linearSizeGetter.invokeExact(palette);
+			long[] raw = (long[]) rawGetter.invokeExact(data);
+			// Linear palettes take 1 to 4 bits, which each pack into a different number of longs
+			for (int bits = 1; bits <= 4; bits++) {
+				int perLong = 64 / bits;
+				if ((4096 + perLong - 1) / perLong == raw.length && size <= 1 << bits)
+					return new PaletteCopy(Arrays.copyOf(values, size), bits, raw.clone());
 			}
+		} catch (Throwable e) {
+			e.printStackTrace();
 		}
-
+		return null;
 	}
 
-	private static class BlockSetWorkload implements Workload {
+}
 
-		private Object nmsWorld;
-		private Object blockPosition;
-		private Object blockData;
-		private Location location;
-		private int physics;
+class SectionFillerLatest implements SectionFiller {
 
-		public BlockSetWorkload(Object nmsWorld, Object blockPosition, Object blockData, Location location,
-				boolean physics) {
-			this.nmsWorld = nmsWorld;
-			this.blockPosition = blockPosition;
-			this.blockData = blockData;
-			this.location = location;
-			this.physics = physics ? 3 : 2;
-		}
+	private final MethodHandle newStates;
+	private final MethodHandle newSection;
+	private final MethodHandle biomesGetter;
+	private final MethodHandle setSectionElement;
 
-		@Override
-		public boolean compute() {
-			BlockChanger.setBlockPosition(blockPosition, location.getBlockX(), location.getBlockY(),
-					location.getBlockZ());
-			BlockChanger.removeIfTileEntity(nmsWorld, blockPosition);
-			BlockChanger.setTypeAndData(nmsWorld, blockPosition, blockData, physics);
+	public SectionFillerLatest(MethodHandle newStates, MethodHandle newSection, MethodHandle biomesGetter,
+			MethodHandle setSectionElement) {
+		this.newStates = newStates.asType(MethodType.methodType(Object.class, Object.class));
+		this.newSection = newSection.asType(MethodType.methodType(Object.class, int.class, Object.class, Object.class));
+		this.biomesGetter = biomesGetter.asType(MethodType.methodType(Object.class, Object.class));
+		this.setSectionElement = setSectionElement
+				.asType(MethodType.methodType(void.class, Object[].class, int.class, Object.class));
+	}
+
+	@Override
+	public boolean fill(Object[] sections, int index, int sectionY, Object section, Object blockData) {
+		try {
+			Object states = (Object) newStates.invokeExact(blockData);
+			Object biomes = (Object) biomesGetter.invokeExact(section);
+			setSectionElement.invokeExact(sections, index, (Object) newSection.invokeExact(sectionY, states, biomes));
 			return true;
+		} catch (Throwable e) {
+			e.printStackTrace();
 		}
-
+		return false;
 	}
 
-	private static class ChunkSetWorkload implements Workload {
+}
 
-		private Object nmsWorld;
-		private Object blockPosition;
-		private Object blockData;
-		private Location location;
-		private boolean physics;
+/**
+ * Creates a multi block change packet for the changes of one section.
+ */
+interface SectionPacketFactory {
 
-		public ChunkSetWorkload(Object nmsWorld, Object blockPosition, Object blockData, Location location,
-				boolean physics) {
-			this.nmsWorld = nmsWorld;
-			this.blockPosition = blockPosition;
-			this.blockData = blockData;
-			this.location = location;
-			this.physics = physics;
-		}
+	/**
+	 * @param nmsChunk  chunk holding the section
+	 * @param section   section the blocks were changed in
+	 * @param positions changed blocks as <i>x &lt;&lt; 8 | z &lt;&lt; 4 | y</i>
+	 *                  relative to the section, may be rewritten
+	 * @return the packet
+	 */
+	Object create(Object nmsChunk, Object section, int chunkX, int sectionY, int chunkZ, short[] positions)
+			throws Throwable;
 
-		@Override
-		public boolean compute() {
-			BlockChanger.setBlockPosition(blockPosition, location.getBlockX(), location.getBlockY(),
-					location.getBlockZ());
-			Object chunk = BlockChanger.getChunkAt(nmsWorld, location.getBlockX(), location.getBlockZ());
-			BlockChanger.removeIfTileEntity(nmsWorld, blockPosition);
-			BlockChanger.setType(chunk, blockPosition, blockData, physics);
-			BlockChanger.updateBlock(nmsWorld, blockPosition, blockData, physics);
-			return true;
-		}
+}
+
+class SectionPacketFactoryLatest implements SectionPacketFactory {
 
+	private final MethodHandle sectionPosition;
+	private final MethodHandle shortSet;
+	private final MethodHandle packet;
+
+	/**
+	 * @param sectionPosition <i>(int, int, int)Object</i>
+	 * @param shortSet        <i>(short[], int)Object</i>
+	 * @param packet          <i>(Object, Object, Object)Object</i>
+	 */
+	public SectionPacketFactoryLatest(MethodHandle sectionPosition, MethodHandle shortSet, MethodHandle packet) {
+		this.sectionPosition = sectionPosition;
+		this.shortSet = shortSet;
+		this.packet = packet;
 	}
 
-	private static class SectionSetWorkload implements Workload {
+	@Override
+	public Object create(Object nmsChunk, Object section, int chunkX, int sectionY, int chunkZ, short[] positions)
+			throws Throwable {
+		Object position = (Object) sectionPosition.invokeExact(chunkX, sectionY, chunkZ);
+		Object set = (Object) shortSet.invokeExact(positions, positions.length);
+		return (Object) packet.invokeExact(position, set, section);
+	}
 
-		private Object nmsWorld;
-		private Object blockPosition;
-		private Object blockData;
-		private Location location;
-		private boolean physics;
+}
 
-		public SectionSetWorkload(Object nmsWorld, Object blockPosition, Object blockData, Location location,
-				boolean physics) {
-			this.nmsWorld = nmsWorld;
-			this.blockPosition = blockPosition;
-			this.blockData = blockData;
-			this.location = location;
-			this.physics = physics;
-		}
+class SectionPacketFactoryLegacy implements SectionPacketFactory {
 
-		@Override
-		public boolean compute() {
-			BlockChanger.setBlockPosition(blockPosition, location.getBlockX(), location.getBlockY(),
-					location.getBlockZ());
-			int x = location.getBlockX();
-			int y = location.getBlockY();
-			int z = location.getBlockZ();
-			Object nmsChunk = BlockChanger.getChunkAt(nmsWorld, x, z);
-			int j = x & 15;
-			int k = y & 15;
-			int l = z & 15;
-			Object[] sections = BlockChanger.getSections(nmsChunk);
-			Object section = BlockChanger.getSection(nmsChunk, sections, y);
-			BlockChanger.removeIfTileEntity(nmsWorld, blockPosition);
-			BlockChanger.setTypeChunkSection(section, j, k, l, blockData);
-			BlockChanger.updateBlock(nmsWorld, blockPosition, blockData, physics);
-			return true;
-		}
+	private final MethodHandle packet;
 
+	/**
+	 * @param packet <i>(int, short[], Object)Object</i>
+	 */
+	public SectionPacketFactoryLegacy(MethodHandle packet) {
+		this.packet = packet;
 	}
 
-	private static class WhenCompleteWorkload implements Workload {
+	@Override
+	public Object create(Object nmsChunk, Object section, int chunkX, int sectionY, int chunkZ, short[] positions)
+			throws Throwable {
+		// Chunk packets store x << 12 | z << 8 | y with y ranging from 0 to 255
+		for (int i = 0; i < positions.length; i++) {
+			int position = positions[i];
+			positions[i] = (short) ((position >> 8 & 15) << 12 | (position >> 4 & 15) << 8 | sectionY << 4
+					| position & 15);
+		}
+		return (Object) packet.invokeExact(positions.length, positions, nmsChunk);
+	}
 
-		private Runnable runnable;
+}
 
-		public WhenCompleteWorkload(Runnable runnable) {
-			this.runnable = runnable;
-		}
+class ChunkPacketFactory {
 
-		@Override
-		public boolean compute() {
-			runnable.run();
-			return false;
-		}
+	private final MethodHandle packet;
 
+	/**
+	 * @param packet <i>(Object chunk, Object world)Object</i>
+	 */
+	public ChunkPacketFactory(MethodHandle packet) {
+		this.packet = packet;
+	}
+
+	public Object create(Object nmsChunk, Object nmsWorld) throws Throwable {
+		return (Object) packet.invokeExact(nmsChunk, nmsWorld);
 	}
 
 }
 
-interface BlockPositionConstructor {
+interface BlockConsumer {
 
-	Object newBlockPosition(Object world, Object x, Object y, Object z);
+	void accept(int x, int y, int z) throws Throwable;
 
-	Object newMutableBlockPosition(Object world, Object x, Object y, Object z);
+}
 
-	Object set(Object mutableBlockPosition, Object x, Object y, Object z);
+/**
+ * <i>{@literal<ChunkSection>}.setType(x, y, z, blockData)</i> with local
+ * coordinates
+ */
+@FunctionalInterface
+interface SectionSetter {
+
+	void setType(Object section, int x, int y, int z, Object blockData);
 
 }
 
-interface BlockUpdater {
+/**
+ * <i>{@literal<WorldServer>}.getChunkAt(chunkX, chunkZ)</i>
+ */
+@FunctionalInterface
+interface ChunkGetter {
 
-	void setType(Object chunk, Object blockPosition, Object blockData, boolean physics);
+	Object getChunkAt(Object nmsWorld, int chunkX, int chunkZ);
 
-	void update(Object world, Object blockPosition, Object blockData, int physics);
+}
 
-	Object getSection(Object nmsChunk, Object[] sections, int y);
+/**
+ * <i>{@literal<Chunk>}.getSections()</i>
+ */
+@FunctionalInterface
+interface SectionsGetter {
 
-	int getSectionIndex(Object nmsChunk, int y);
+	Object[] getSections(Object nmsChunk);
+
+}
+
+/**
+ * <i>{@literal<WorldServer>}.setTypeAndData(blockPosition, blockData,
+ * physics)</i>
+ */
+@FunctionalInterface
+interface WorldBlockSetter {
+
+	void setTypeAndData(Object nmsWorld, Object blockPosition, Object blockData, int physics);
+
+}
+
+/**
+ * <i>{@literal<MutableBlockPosition>}.set(x, y, z)</i>
+ */
+@FunctionalInterface
+interface PositionSetter {
+
+	Object set(Object mutableBlockPosition, int x, int y, int z);
 
 }
 
 class BlockPositionNormal implements BlockPositionConstructor {
 
-	private MethodHandle blockPositionConstructor;
-	private MethodHandle mutableBlockPositionConstructor;
-	private MethodHandle mutableBlockPositionSet;
+	private final MethodHandle blockPositionConstructor;
+	private final MethodHandle mutableBlockPositionConstructor;
+	private final MethodHandle mutableBlockPositionSet;
+	// (int, int, int)Object and (Object, int, int, int)Object, invoked exactly
+	private final MethodHandle blockPositionConstructorExact;
+	private final MethodHandle mutableBlockPositionConstructorExact;
+	private final MethodHandle mutableBlockPositionSetExact;
 
 	public BlockPositionNormal(MethodHandle blockPositionXYZ, MethodHandle mutableBlockPositionXYZ,
 			MethodHandle mutableBlockPositionSet) {
 		this.blockPositionConstructor = blockPositionXYZ;
 		this.mutableBlockPositionConstructor = mutableBlockPositionXYZ;
 		this.mutableBlockPositionSet = mutableBlockPositionSet;
+		MethodType xyz = MethodType.methodType(Object.class, int.class, int.class, int.class);
+		this.blockPositionConstructorExact = blockPositionXYZ.asType(xyz);
+		this.mutableBlockPositionConstructorExact = mutableBlockPositionXYZ.asType(xyz);
+		this.mutableBlockPositionSetExact = mutableBlockPositionSet.asType(xyz.insertParameterTypes(0, Object.class));
+	}
+
+	@Override
+	public Object newBlockPosition(Object world, int x, int y, int z) {
+		try {
+			return (Object) blockPositionConstructorExact.invokeExact(x, y, z);
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	@Override
+	public Object newMutableBlockPosition(Object world, int x, int y, int z) {
+		try {
+			return (Object) mutableBlockPositionConstructorExact.invokeExact(x, y, z);
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	@Override
+	public Object set(Object mutableBlockPosition, int x, int y, int z) {
+		try {
+			return (Object) mutableBlockPositionSetExact.invokeExact(mutableBlockPosition, x, y, z);
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
 	}
 
 	@Override
@@ -2339,12 +8141,41 @@ class BlockPositionNormal implements BlockPositionConstructor {
 
 class BlockPositionAncient implements BlockPositionConstructor {
 
-	private MethodHandle blockPositionConstructor;
-	private MethodHandle mutableBlockPositionConstructor;
+	private final MethodHandle blockPositionConstructor;
+	private final MethodHandle mutableBlockPositionConstructor;
+	// (Object, int, int, int)Object, invoked exactly
+	private final MethodHandle blockPositionConstructorExact;
 
 	public BlockPositionAncient(MethodHandle blockPositionXYZ, MethodHandle mutableBlockPositionXYZ) {
 		this.blockPositionConstructor = blockPositionXYZ;
 		this.mutableBlockPositionConstructor = mutableBlockPositionXYZ;
+		this.blockPositionConstructorExact = blockPositionXYZ
+				.asType(MethodType.methodType(Object.class, Object.class, int.class, int.class, int.class));
+	}
+
+	@Override
+	public Object newBlockPosition(Object world, int x, int y, int z) {
+		try {
+			return (Object) blockPositionConstructorExact.invokeExact(world, x, y, z);
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	// Locations are mutable already
+	@Override
+	public Object newMutableBlockPosition(Object world, int x, int y, int z) {
+		return newBlockPosition(world, x, y, z);
+	}
+
+	@Override
+	public Object set(Object mutableBlockPosition, int x, int y, int z) {
+		Location loc = (Location) mutableBlockPosition;
+		loc.setX(x);
+		loc.setY(y);
+		loc.setZ(z);
+		return loc;
 	}
 
 	@Override
@@ -2385,10 +8216,10 @@ class BlockPositionAncient implements BlockPositionConstructor {
 
 class BlockUpdaterAncient implements BlockUpdater {
 
-	private MethodHandle blockNotify;
-	private MethodHandle chunkSetType;
-	private MethodHandle chunkSection;
-	private MethodHandle setSectionElement;
+	private final MethodHandle blockNotify;
+	private final MethodHandle chunkSetType;
+	private final MethodHandle chunkSection;
+	private final MethodHandle setSectionElement;
 
 	public BlockUpdaterAncient(MethodHandle blockNotify, MethodHandle chunkSetType, MethodHandle chunkSection,
 			MethodHandle setSectionElement) {
@@ -2441,10 +8272,10 @@ class BlockUpdaterAncient implements BlockUpdater {
 
 class BlockUpdaterLegacy implements BlockUpdater {
 
-	private MethodHandle blockNotify;
-	private MethodHandle chunkSetType;
-	private MethodHandle chunkSection;
-	private MethodHandle setSectionElement;
+	private final MethodHandle blockNotify;
+	private final MethodHandle chunkSetType;
+	private final MethodHandle chunkSection;
+	private final MethodHandle setSectionElement;
 
 	public BlockUpdaterLegacy(MethodHandle blockNotify, MethodHandle chunkSetType, MethodHandle chunkSection,
 			MethodHandle setSectionElement) {
@@ -2496,10 +8327,10 @@ class BlockUpdaterLegacy implements BlockUpdater {
 
 class BlockUpdater9 implements BlockUpdater {
 
-	private MethodHandle blockNotify;
-	private MethodHandle chunkSetType;
-	private MethodHandle chunkSection;
-	private MethodHandle setSectionElement;
+	private final MethodHandle blockNotify;
+	private final MethodHandle chunkSetType;
+	private final MethodHandle chunkSection;
+	private final MethodHandle setSectionElement;
 
 	public BlockUpdater9(MethodHandle blockNotify, MethodHandle chunkSetType, MethodHandle chunkSection,
 			MethodHandle setSectionElement) {
@@ -2551,10 +8382,10 @@ class BlockUpdater9 implements BlockUpdater {
 
 class BlockUpdater13 implements BlockUpdater {
 
-	private MethodHandle blockNotify;
-	private MethodHandle chunkSetType;
-	private MethodHandle chunkSection;
-	private MethodHandle setSectionElement;
+	private final MethodHandle blockNotify;
+	private final MethodHandle chunkSetType;
+	private final MethodHandle chunkSection;
+	private final MethodHandle setSectionElement;
 
 	public BlockUpdater13(MethodHandle blockNotify, MethodHandle chunkSetType, MethodHandle chunkSection,
 			MethodHandle setSectionElement) {
@@ -2606,11 +8437,11 @@ class BlockUpdater13 implements BlockUpdater {
 
 class BlockUpdater17 implements BlockUpdater {
 
-	private MethodHandle blockNotify;
-	private MethodHandle chunkSetType;
-	private MethodHandle sectionIndexGetter;
-	private MethodHandle chunkSection;
-	private MethodHandle setSectionElement;
+	private final MethodHandle blockNotify;
+	private final MethodHandle chunkSetType;
+	private final MethodHandle sectionIndexGetter;
+	private final MethodHandle chunkSection;
+	private final MethodHandle setSectionElement;
 
 	public BlockUpdater17(MethodHandle blockNotify, MethodHandle chunkSetType, MethodHandle sectionIndexGetter,
 			MethodHandle chunkSection, MethodHandle setSectionElement) {
@@ -2668,10 +8499,10 @@ class BlockUpdater17 implements BlockUpdater {
 
 class BlockUpdaterLatest implements BlockUpdater {
 
-	private MethodHandle blockNotify;
-	private MethodHandle chunkSetType;
-	private MethodHandle sectionIndexGetter;
-	private MethodHandle levelHeightAccessorGetter;
+	private final MethodHandle blockNotify;
+	private final MethodHandle chunkSetType;
+	private final MethodHandle sectionIndexGetter;
+	private final MethodHandle levelHeightAccessorGetter;
 
 	public BlockUpdaterLatest(MethodHandle blockNotify, MethodHandle chunkSetType, MethodHandle sectionIndexGetter,
 			MethodHandle levelHeightAccessorGetter) {
@@ -3139,6 +8970,24 @@ final class ReflectionUtils {
 		}
 	}
 
+	/**
+	 * Sends a packet to the player synchronously if they're online.
+	 *
+	 * @param handle  the {@code EntityPlayer} to send the packet to.
+	 * @param packets the packets to send.
+	 * @see #sendPacketSync(Player, Object...)
+	 */
+	public static void sendPacketSync(@Nonnull Object handle, @Nonnull Object... packets) {
+		try {
+			Object connection = PLAYER_CONNECTION.invoke(handle);
+			if (connection != null) {
+				for (Object packet : packets) SEND_PACKET.invoke(connection, packet);
+			}
+		} catch (Throwable throwable) {
+			throwable.printStackTrace();
+		}
+	}
+
 	@Nullable
 	public static Object getHandle(@Nonnull Player player) {
 		Objects.requireNonNull(player, "Cannot get handle of null player");